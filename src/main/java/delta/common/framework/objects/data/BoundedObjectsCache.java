@@ -0,0 +1,406 @@
+package delta.common.framework.objects.data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache for data objects, with a bounded size or weight.
+ * <p>
+ * Eviction uses the W-TinyLFU policy:
+ * <ul>
+ * <li>new objects enter a small LRU admission window (1% of the capacity),
+ * <li>objects leaving the window are candidates for the main area,
+ * which is a segmented LRU (probation and protected segments),
+ * <li>when the cache is full, a candidate only enters the main area if it
+ * is more frequently used than the probation victim. Frequencies are estimated
+ * by a count-min sketch that also remembers recently evicted keys.
+ * </ul>
+ * <p>
+ * This class is not thread-safe, even for reads: {@link #get(Long)} updates the access
+ * order and the frequency sketch. Concurrent use requires external synchronization,
+ * for instance using it as the stripes of a {@link StripedObjectsCache}.
+ * Its views are weakly consistent though: they can be traversed without synchronization.
+ * @author DAM
+ * @param <E> Type of the data objects to manage.
+ */
+public class BoundedObjectsCache<E extends Identifiable<Long>> extends ObjectsCache<E>
+{
+  private static final int WINDOW=0;
+  private static final int PROBATION=1;
+  private static final int PROTECTED=2;
+  private static final int INITIAL_SKETCH_SIZE=1024;
+
+  // Concurrent, so that views are weakly consistent
+  private ConcurrentHashMap<Long,Node<E>> _nodes;
+  private AccessQueue<E> _window;
+  private AccessQueue<E> _probation;
+  private AccessQueue<E> _protected;
+  private FrequencySketch _sketch;
+  private ObjectWeigher<E> _weigher;
+  private long _maximumWeight;
+  private long _windowMaximum;
+  private long _protectedMaximum;
+  private long _weight;
+
+  /**
+   * Constructor for a cache bounded by a number of objects.
+   * @param maximumSize Maximum number of objects.
+   */
+  public BoundedObjectsCache(long maximumSize)
+  {
+    this(maximumSize,null);
+  }
+
+  /**
+   * Constructor for a cache bounded by a total weight.
+   * @param maximumWeight Maximum total weight.
+   * @param weigher Weigher for objects, or <code>null</code> to give a weight of 1 to each object.
+   */
+  public BoundedObjectsCache(long maximumWeight, ObjectWeigher<E> weigher)
+  {
+    super(null);
+    if (maximumWeight<0)
+    {
+      throw new IllegalArgumentException("Negative maximum weight: "+maximumWeight);
+    }
+    _nodes=new ConcurrentHashMap<Long,Node<E>>();
+    _window=new AccessQueue<E>();
+    _probation=new AccessQueue<E>();
+    _protected=new AccessQueue<E>();
+    _weigher=weigher;
+    _maximumWeight=maximumWeight;
+    _windowMaximum=Math.min(maximumWeight,Math.max(1,maximumWeight/100));
+    _protectedMaximum=(long)(0.8*(maximumWeight-_windowMaximum));
+    // The sketch grows with the number of objects, up to its own limit
+    _sketch=new FrequencySketch(Math.min(maximumWeight,INITIAL_SKETCH_SIZE));
+    _weight=0;
+  }
+
+  /**
+   * Get the maximum total weight of this cache.
+   * @return a weight (a number of objects if no weigher is used).
+   */
+  public long getMaximumWeight()
+  {
+    return _maximumWeight;
+  }
+
+  /**
+   * Get the current total weight of this cache.
+   * @return a weight (a number of objects if no weigher is used).
+   */
+  public long getWeight()
+  {
+    return _weight;
+  }
+
+  @Override
+  public E get(Long primaryKey)
+  {
+    if (primaryKey==null)
+    {
+      return null;
+    }
+    Node<E> node=_nodes.get(primaryKey);
+    if (node==null)
+    {
+      return recordAccess(null);
+    }
+    onAccess(node);
+    return recordAccess(node._value);
+  }
+
+  @Override
+  public List<E> getAll()
+  {
+    List<E> ret=new ArrayList<E>(_nodes.size());
+    for(Node<E> node : _nodes.values())
+    {
+      ret.add(node._value);
+    }
+    return ret;
+  }
+
+  @Override
+  public boolean hasWeaklyConsistentViews()
+  {
+    return true;
+  }
+
+  @Override
+  public Spliterator<E> spliterator()
+  {
+    return new MappingSpliterator<Node<E>,E>(_nodes.values().spliterator(),node -> node._value);
+  }
+
+  @Override
+  public void put(E object)
+  {
+    Long id=object.getPrimaryKey();
+    if (id==null)
+    {
+      return;
+    }
+    int weight=weigh(object);
+    Node<E> node=_nodes.get(id);
+    if (node!=null)
+    {
+      queueOf(node).changeWeight(node,weight);
+      _weight+=weight-node._weight;
+      node._weight=weight;
+      node._value=object;
+      onAccess(node);
+      evict(null);
+    }
+    else
+    {
+      _sketch.increment(id.longValue());
+      node=new Node<E>(id,object,weight);
+      _nodes.put(id,node);
+      node._queue=WINDOW;
+      _window.addLast(node);
+      _weight+=weight;
+      _sketch.ensureCapacity(_nodes.size());
+      Node<E> candidate=balanceWindow();
+      evict(candidate);
+    }
+  }
+
+  @Override
+  public void remove(Long primaryKey)
+  {
+    Node<E> node=_nodes.remove(primaryKey);
+    if (node!=null)
+    {
+      queueOf(node).remove(node);
+      _weight-=node._weight;
+    }
+  }
+
+  @Override
+  public int size()
+  {
+    return _nodes.size();
+  }
+
+  @Override
+  public void clear()
+  {
+    _nodes.clear();
+    _window.clear();
+    _probation.clear();
+    _protected.clear();
+    _weight=0;
+  }
+
+  private int weigh(E object)
+  {
+    if (_weigher==null)
+    {
+      return 1;
+    }
+    int weight=_weigher.weigh(object);
+    if (weight<0)
+    {
+      throw new IllegalArgumentException("Negative weight for object: "+object.getPrimaryKey());
+    }
+    return weight;
+  }
+
+  private AccessQueue<E> queueOf(Node<E> node)
+  {
+    if (node._queue==WINDOW)
+    {
+      return _window;
+    }
+    return (node._queue==PROBATION)?_probation:_protected;
+  }
+
+  private void onAccess(Node<E> node)
+  {
+    _sketch.increment(node._key.longValue());
+    if (node._queue==PROBATION)
+    {
+      _probation.remove(node);
+      node._queue=PROTECTED;
+      _protected.addLast(node);
+      // Demote the least recently used protected objects
+      while ((_protected._weight>_protectedMaximum) && (_protected._first!=node))
+      {
+        Node<E> demoted=_protected._first;
+        _protected.remove(demoted);
+        demoted._queue=PROBATION;
+        _probation.addLast(demoted);
+      }
+    }
+    else
+    {
+      queueOf(node).moveToLast(node);
+    }
+  }
+
+  /**
+   * Move the objects that overflow the window to the tail of the probation segment.
+   * @return the first moved object (the following ones come next in the
+   * probation segment), or <code>null</code> if none.
+   */
+  private Node<E> balanceWindow()
+  {
+    Node<E> first=null;
+    while ((_window._weight>_windowMaximum) && (_window._first!=null))
+    {
+      Node<E> candidate=_window._first;
+      _window.remove(candidate);
+      candidate._queue=PROBATION;
+      _probation.addLast(candidate);
+      if (first==null)
+      {
+        first=candidate;
+      }
+    }
+    return first;
+  }
+
+  /**
+   * Evict objects until the cache fits its maximum weight.
+   * The objects that just left the window are compared to the probation victims.
+   * @param firstCandidate First object that just left the window, or <code>null</code>.
+   */
+  private void evict(Node<E> firstCandidate)
+  {
+    Node<E> candidate=firstCandidate;
+    while (_weight>_maximumWeight)
+    {
+      Node<E> victim=_probation._first;
+      if (victim==null)
+      {
+        victim=(_protected._first!=null)?_protected._first:_window._first;
+        evictNode(victim);
+      }
+      else if (candidate==null)
+      {
+        evictNode(victim);
+      }
+      else if ((victim==candidate) || (candidate._weight>_maximumWeight) || (!admit(candidate,victim)))
+      {
+        Node<E> next=candidate._next;
+        evictNode(candidate);
+        candidate=next;
+      }
+      else
+      {
+        evictNode(victim);
+      }
+    }
+  }
+
+  private boolean admit(Node<E> candidate, Node<E> victim)
+  {
+    int candidateFrequency=_sketch.frequency(candidate._key.longValue());
+    int victimFrequency=_sketch.frequency(victim._key.longValue());
+    return candidateFrequency>victimFrequency;
+  }
+
+  private void evictNode(Node<E> node)
+  {
+    queueOf(node).remove(node);
+    _nodes.remove(node._key);
+    _weight-=node._weight;
+    notifyEviction(node._value);
+  }
+
+  /**
+   * Cache entry.
+   * @param <E> Type of the data objects to manage.
+   */
+  private static class Node<E>
+  {
+    private Long _key;
+    // Read by views without synchronization
+    private volatile E _value;
+    private int _weight;
+    private int _queue;
+    private Node<E> _previous;
+    private Node<E> _next;
+
+    private Node(Long key, E value, int weight)
+    {
+      _key=key;
+      _value=value;
+      _weight=weight;
+    }
+  }
+
+  /**
+   * Doubly-linked list of entries, from the least recently used to the most recently used.
+   * @param <E> Type of the data objects to manage.
+   */
+  private static class AccessQueue<E>
+  {
+    private Node<E> _first;
+    private Node<E> _last;
+    private long _weight;
+
+    private void addLast(Node<E> node)
+    {
+      node._previous=_last;
+      node._next=null;
+      if (_last!=null)
+      {
+        _last._next=node;
+      }
+      else
+      {
+        _first=node;
+      }
+      _last=node;
+      _weight+=node._weight;
+    }
+
+    private void remove(Node<E> node)
+    {
+      if (node._previous!=null)
+      {
+        node._previous._next=node._next;
+      }
+      else
+      {
+        _first=node._next;
+      }
+      if (node._next!=null)
+      {
+        node._next._previous=node._previous;
+      }
+      else
+      {
+        _last=node._previous;
+      }
+      node._previous=null;
+      node._next=null;
+      _weight-=node._weight;
+    }
+
+    private void moveToLast(Node<E> node)
+    {
+      if (node!=_last)
+      {
+        remove(node);
+        addLast(node);
+      }
+    }
+
+    private void changeWeight(Node<E> node, int weight)
+    {
+      _weight+=weight-node._weight;
+    }
+
+    private void clear()
+    {
+      _first=null;
+      _last=null;
+      _weight=0;
+    }
+  }
+}
@@ -0,0 +1,87 @@
+package delta.common.framework.objects.data;
+
+/**
+ * Snapshot of the statistics of a cache.
+ * @author DAM
+ */
+public class CacheStats
+{
+  private long _hits;
+  private long _misses;
+  private long _evictions;
+
+  /**
+   * Constructor.
+   * @param hits Number of lookups that found an object.
+   * @param misses Number of lookups that did not find an object.
+   * @param evictions Number of objects evicted because of the cache capacity.
+   */
+  public CacheStats(long hits, long misses, long evictions)
+  {
+    _hits=hits;
+    _misses=misses;
+    _evictions=evictions;
+  }
+
+  /**
+   * Get the number of lookups that found an object.
+   * @return a number of lookups.
+   */
+  public long getHits()
+  {
+    return _hits;
+  }
+
+  /**
+   * Get the number of lookups that did not find an object.
+   * @return a number of lookups.
+   */
+  public long getMisses()
+  {
+    return _misses;
+  }
+
+  /**
+   * Get the total number of lookups.
+   * @return a number of lookups.
+   */
+  public long getRequests()
+  {
+    return _hits+_misses;
+  }
+
+  /**
+   * Get the ratio of lookups that found an object.
+   * @return a ratio in the range [0,1] (1 if there was no lookup).
+   */
+  public double getHitRatio()
+  {
+    long requests=getRequests();
+    return (requests==0)?1.0:((double)_hits)/requests;
+  }
+
+  /**
+   * Get the number of objects evicted because of the cache capacity.
+   * @return a number of objects.
+   */
+  public long getEvictions()
+  {
+    return _evictions;
+  }
+
+  /**
+   * Combine these statistics with other ones.
+   * @param other Other statistics.
+   * @return the sum of both statistics.
+   */
+  public CacheStats plus(CacheStats other)
+  {
+    return new CacheStats(_hits+other._hits,_misses+other._misses,_evictions+other._evictions);
+  }
+
+  @Override
+  public String toString()
+  {
+    return "hits="+_hits+", misses="+_misses+", evictions="+_evictions;
+  }
+}
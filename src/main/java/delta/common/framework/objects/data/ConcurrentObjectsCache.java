@@ -0,0 +1,49 @@
+package delta.common.framework.objects.data;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Thread-safe unbounded cache for data objects.
+ * <p>
+ * Lookups do not lock, updates only lock a small part of the storage.
+ * @author DAM
+ * @param <E> Type of the data objects to manage.
+ */
+public class ConcurrentObjectsCache<E extends Identifiable<Long>> extends ObjectsCache<E>
+{
+  /**
+   * Constructor.
+   */
+  public ConcurrentObjectsCache()
+  {
+    super(new ConcurrentHashMap<Long,E>());
+  }
+
+  @Override
+  public E get(Long primaryKey)
+  {
+    if (primaryKey==null)
+    {
+      return null;
+    }
+    return super.get(primaryKey);
+  }
+
+  @Override
+  public void put(E object)
+  {
+    if (object.getPrimaryKey()!=null)
+    {
+      super.put(object);
+    }
+  }
+
+  @Override
+  public void remove(Long primaryKey)
+  {
+    if (primaryKey!=null)
+    {
+      super.remove(primaryKey);
+    }
+  }
+}
@@ -5,7 +5,7 @@ package delta.common.framework.objects.data;
  * @author DAM
  * @param <E> Type of the data object.
  */
-public abstract class DataObject<E extends Identifiable<Long>> implements Identifiable<Long>
+public abstract class DataObject<E extends Identifiable<Long>> implements LongIdentifiable
 {
   private Long _primaryKey;
 
@@ -26,6 +26,21 @@ public abstract class DataObject<E extends Identifiable<Long>> implements Identi
     return _primaryKey;
   }
 
+  /**
+   * Get the value of the primary key of this object.
+   * @return the primary key of this object.
+   * @throws IllegalStateException if it has none.
+   */
+  public long getPrimaryKeyValue()
+  {
+    Long primaryKey=_primaryKey;
+    if (primaryKey==null)
+    {
+      throw new IllegalStateException("No primary key!");
+    }
+    return primaryKey.longValue();
+  }
+
   /**
    * Set the primary key of this object.
    * @param primaryKey Primary key to set.
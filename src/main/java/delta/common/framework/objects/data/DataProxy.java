@@ -1,15 +1,26 @@
 package delta.common.framework.objects.data;
 
+import java.util.List;
+
 /**
  * Proxy for a data object.
+ * <p>
+ * Proxies may be shared by several threads: the proxied object is safely published
+ * to other threads. Threads that dereference an unresolved proxy concurrently may
+ * each load the object. When a proxy is reset (because its object was written),
+ * resolutions that were in progress meanwhile do not restore their stale result.
  * @author DAM
  * @param <E> Type of the data object to manage.
  */
 public class DataProxy<E extends Identifiable<Long>>
 {
   private Long _primaryKey;
-  private E _target;
+  private volatile E _target;
+  // Incremented by each reset (guarded by this proxy)
+  private int _generation;
   private ObjectsManager<E> _source;
+  // Batch of proxies to resolve with this one, if any
+  private volatile List<DataProxy<E>> _batch;
 
   /**
    * Full constructor.
@@ -32,13 +43,83 @@ public class DataProxy<E extends Identifiable<Long>>
    */
   public E getDataObject()
   {
-    if ((_target==null) && (_primaryKey!=null))
+    E ret=_target;
+    if ((ret==null) && (_primaryKey!=null))
     {
-      _target=_source.load(_primaryKey);
+      int generation=getGeneration();
+      ret=_source.resolveProxy(this);
+      setResolvedObject(ret,generation);
     }
+    return ret;
+  }
+
+  /**
+   * Indicates if the proxied object is loaded.
+   * @return <code>true</code> if it is, <code>false</code> otherwise.
+   */
+  boolean isResolved()
+  {
+    return _target!=null;
+  }
+
+  /**
+   * Get the proxied object, if loaded.
+   * @return a data object or <code>null</code>.
+   */
+  E getResolvedObject()
+  {
     return _target;
   }
 
+  /**
+   * Get the generation of this proxy, to read before resolving it.
+   * @return a generation.
+   */
+  synchronized int getGeneration()
+  {
+    return _generation;
+  }
+
+  /**
+   * Set the proxied object, unless this proxy was reset since the given generation.
+   * @param target Proxied object.
+   * @param generation Generation read before loading the proxied object.
+   */
+  synchronized void setResolvedObject(E target, int generation)
+  {
+    if (generation==_generation)
+    {
+      _target=target;
+    }
+  }
+
+  /**
+   * Forget the proxied object, so that it is loaded again on next use.
+   */
+  synchronized void reset()
+  {
+    _generation++;
+    _target=null;
+  }
+
+  /**
+   * Get the batch of proxies to resolve with this one.
+   * @return a list of proxies or <code>null</code>.
+   */
+  List<DataProxy<E>> getBatch()
+  {
+    return _batch;
+  }
+
+  /**
+   * Set the batch of proxies to resolve with this one.
+   * @param batch List of proxies, or <code>null</code>.
+   */
+  void setBatch(List<DataProxy<E>> batch)
+  {
+    _batch=batch;
+  }
+
   /**
    * Get the objects source of this proxy.
    * @return the objects source of this proxy.
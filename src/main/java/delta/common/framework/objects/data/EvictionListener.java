@@ -0,0 +1,15 @@
+package delta.common.framework.objects.data;
+
+/**
+ * Listener for objects evicted from a cache because of its capacity.
+ * @author DAM
+ * @param <E> Type of the data objects to manage.
+ */
+public interface EvictionListener<E extends Identifiable<Long>>
+{
+  /**
+   * Called when an object was evicted.
+   * @param object Evicted object.
+   */
+  void objectEvicted(E object);
+}
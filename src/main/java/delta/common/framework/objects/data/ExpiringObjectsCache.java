@@ -0,0 +1,310 @@
+package delta.common.framework.objects.data;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Thread-safe cache for data objects, with time-based expiry.
+ * <p>
+ * Objects may expire:
+ * <ul>
+ * <li>after a fixed time since they were put in the cache (expire after write),
+ * <li>after a fixed time since they were last read (expire after access).
+ * </ul>
+ * Expired objects are not returned by the cache, so that they are loaded again
+ * from the persistence system.
+ * <p>
+ * In addition, objects may be refreshed ahead: when an object older than the
+ * refresh delay is read, the cache returns it and reloads it asynchronously
+ * through its objects manager (see {@link ObjectsManager#refresh(Long)}), so that
+ * pending writes, statistics and the negative cache are taken into account.
+ * Readers never wait for such a reload.
+ * @author DAM
+ * @param <E> Type of the data objects to manage.
+ */
+public class ExpiringObjectsCache<E extends Identifiable<Long>> extends ObjectsCache<E>
+{
+  private static final Logger LOGGER=LoggerFactory.getLogger(ExpiringObjectsCache.class);
+
+  private static final int CLEANUP_PERIOD=1024;
+
+  private ConcurrentHashMap<Long,Entry<E>> _entries;
+  // Configuration, read by the threads that use this cache
+  private volatile long _expireAfterWrite;
+  private volatile long _expireAfterAccess;
+  private volatile RefreshSetup<E> _refreshSetup;
+  private AtomicInteger _writesSinceCleanUp;
+
+  /**
+   * Constructor.
+   * By default, objects never expire: use the setters to configure expiry.
+   */
+  public ExpiringObjectsCache()
+  {
+    super(null);
+    _entries=new ConcurrentHashMap<Long,Entry<E>>();
+    _writesSinceCleanUp=new AtomicInteger();
+  }
+
+  /**
+   * Set the time after which objects expire, since they were put in the cache.
+   * @param duration Duration (zero or negative to disable).
+   * @param unit Unit of duration.
+   */
+  public void setExpireAfterWrite(long duration, TimeUnit unit)
+  {
+    _expireAfterWrite=(duration>0)?unit.toNanos(duration):0;
+  }
+
+  /**
+   * Set the time after which objects expire, since they were last read or written.
+   * @param duration Duration (zero or negative to disable).
+   * @param unit Unit of duration.
+   */
+  public void setExpireAfterAccess(long duration, TimeUnit unit)
+  {
+    _expireAfterAccess=(duration>0)?unit.toNanos(duration):0;
+  }
+
+  /**
+   * Enable asynchronous refresh of objects read after the given time since they were
+   * put in the cache. This delay shall be less than the expiry delays.
+   * @param duration Duration (zero or negative to disable).
+   * @param unit Unit of duration.
+   * @param manager Objects manager that uses this cache, to reload objects.
+   * @param executor Executor to run reloads, or <code>null</code> to use the default one
+   * (see {@link ObjectsExecutors#getDefaultExecutor()}).
+   */
+  public void setRefreshAfterWrite(long duration, TimeUnit unit, ObjectsManager<E> manager, Executor executor)
+  {
+    if (duration<=0)
+    {
+      _refreshSetup=null;
+      return;
+    }
+    if (manager==null)
+    {
+      throw new IllegalArgumentException("No manager for refresh-ahead!");
+    }
+    Executor refreshExecutor=(executor!=null)?executor:ObjectsExecutors.getDefaultExecutor();
+    _refreshSetup=new RefreshSetup<E>(unit.toNanos(duration),manager,refreshExecutor);
+  }
+
+  @Override
+  public E get(Long primaryKey)
+  {
+    if (primaryKey==null)
+    {
+      return null;
+    }
+    Entry<E> entry=_entries.get(primaryKey);
+    if (entry==null)
+    {
+      return recordAccess(null);
+    }
+    long now=System.nanoTime();
+    if (isExpired(entry,now))
+    {
+      _entries.remove(primaryKey,entry);
+      return recordAccess(null);
+    }
+    if (_expireAfterAccess>0)
+    {
+      entry._accessTime=now;
+    }
+    RefreshSetup<E> refreshSetup=_refreshSetup;
+    if ((refreshSetup!=null) && (now-entry._writeTime>=refreshSetup._refreshAfterWrite))
+    {
+      if (entry._refreshing.compareAndSet(false,true))
+      {
+        refresh(refreshSetup,primaryKey,entry);
+      }
+    }
+    return recordAccess(entry._value);
+  }
+
+  private void refresh(final RefreshSetup<E> refreshSetup, final Long primaryKey, final Entry<E> entry)
+  {
+    Runnable r=new Runnable()
+    {
+      @Override
+      public void run()
+      {
+        try
+        {
+          // The manager puts the reloaded object in this cache
+          if (!refreshSetup._manager.refresh(primaryKey))
+          {
+            // Skipped (pending or concurrent write): retry on a later read
+            entry._refreshing.set(false);
+          }
+        }
+        catch(RuntimeException e)
+        {
+          LOGGER.warn("Could not refresh object: "+primaryKey,e);
+          entry._refreshing.set(false);
+        }
+      }
+    };
+    try
+    {
+      refreshSetup._executor.execute(r);
+    }
+    catch(RuntimeException e)
+    {
+      LOGGER.warn("Could not schedule refresh of object: "+primaryKey,e);
+      entry._refreshing.set(false);
+    }
+  }
+
+  private boolean isExpired(Entry<E> entry, long now)
+  {
+    if ((_expireAfterWrite>0) && (now-entry._writeTime>=_expireAfterWrite))
+    {
+      return true;
+    }
+    if ((_expireAfterAccess>0) && (now-entry._accessTime>=_expireAfterAccess))
+    {
+      return true;
+    }
+    return false;
+  }
+
+  @Override
+  public List<E> getAll()
+  {
+    long now=System.nanoTime();
+    List<E> ret=new ArrayList<E>(_entries.size());
+    for(Entry<E> entry : _entries.values())
+    {
+      if (!isExpired(entry,now))
+      {
+        ret.add(entry._value);
+      }
+    }
+    return ret;
+  }
+
+  @Override
+  public boolean hasWeaklyConsistentViews()
+  {
+    return true;
+  }
+
+  @Override
+  public Spliterator<E> spliterator()
+  {
+    final long now=System.nanoTime();
+    return new MappingSpliterator<Entry<E>,E>(_entries.values().spliterator(),
+        entry -> isExpired(entry,now)?null:entry._value);
+  }
+
+  @Override
+  public void put(E object)
+  {
+    Long id=object.getPrimaryKey();
+    if (id!=null)
+    {
+      _entries.put(id,new Entry<E>(object,System.nanoTime()));
+      if (_writesSinceCleanUp.incrementAndGet()>=CLEANUP_PERIOD)
+      {
+        _writesSinceCleanUp.set(0);
+        cleanUp();
+      }
+    }
+  }
+
+  @Override
+  public void remove(Long primaryKey)
+  {
+    if (primaryKey!=null)
+    {
+      _entries.remove(primaryKey);
+    }
+  }
+
+  /**
+   * Get the number of cached objects (expired objects not yet removed included).
+   * @return a number of objects.
+   */
+  @Override
+  public int size()
+  {
+    return _entries.size();
+  }
+
+  @Override
+  public void clear()
+  {
+    _entries.clear();
+  }
+
+  /**
+   * Remove expired objects.
+   * This is also done periodically on writes.
+   */
+  public void cleanUp()
+  {
+    if ((_expireAfterWrite<=0) && (_expireAfterAccess<=0))
+    {
+      return;
+    }
+    long now=System.nanoTime();
+    for(Iterator<Entry<E>> it=_entries.values().iterator();it.hasNext();)
+    {
+      Entry<E> entry=it.next();
+      if (isExpired(entry,now))
+      {
+        it.remove();
+      }
+    }
+  }
+
+  /**
+   * Setup of the refresh-ahead.
+   * @param <E> Type of the data objects to manage.
+   */
+  private static class RefreshSetup<E extends Identifiable<Long>>
+  {
+    private final long _refreshAfterWrite;
+    private final ObjectsManager<E> _manager;
+    private final Executor _executor;
+
+    private RefreshSetup(long refreshAfterWrite, ObjectsManager<E> manager, Executor executor)
+    {
+      _refreshAfterWrite=refreshAfterWrite;
+      _manager=manager;
+      _executor=executor;
+    }
+  }
+
+  /**
+   * Cache entry.
+   * @param <E> Type of the data objects to manage.
+   */
+  private static class Entry<E>
+  {
+    private final E _value;
+    private final long _writeTime;
+    private volatile long _accessTime;
+    private final AtomicBoolean _refreshing;
+
+    private Entry(E value, long now)
+    {
+      _value=value;
+      _writeTime=now;
+      _accessTime=now;
+      _refreshing=new AtomicBoolean(false);
+    }
+  }
+}
@@ -0,0 +1,130 @@
+package delta.common.framework.objects.data;
+
+/**
+ * Approximate access frequency of primary keys (count-min sketch with 4-bit counters).
+ * <p>
+ * Counters are halved periodically so that the frequencies of old keys decay.
+ * The table is limited to 2^22 longs (32MB): above that, frequencies are less accurate.
+ * @author DAM
+ */
+final class FrequencySketch
+{
+  private static final long[] SEEDS={0xc3a5c85c97cb3127L,0xb492b66fbe98f273L,0x9ae16a3b2f90404fL,0xcbf29ce484222325L};
+  private static final long RESET_MASK=0x7777777777777777L;
+  private static final long ONE_MASK=0x1111111111111111L;
+  private static final int MAXIMUM_CAPACITY=1<<22;
+
+  private long[] _table;
+  private int _tableMask;
+  private int _sampleSize;
+  private int _size;
+
+  /**
+   * Constructor.
+   * @param expectedSize Expected number of distinct keys.
+   */
+  FrequencySketch(long expectedSize)
+  {
+    ensureCapacity(expectedSize);
+  }
+
+  /**
+   * Grow this sketch if it is too small for the given number of keys.
+   * Frequencies are lost when the sketch grows.
+   * @param expectedSize Expected number of distinct keys.
+   */
+  void ensureCapacity(long expectedSize)
+  {
+    int maximum=(int)Math.min(Math.max(expectedSize,16),MAXIMUM_CAPACITY);
+    if ((_table!=null) && (_table.length>=maximum))
+    {
+      return;
+    }
+    int tableSize=Integer.highestOneBit(maximum-1)<<1;
+    _table=new long[tableSize];
+    _tableMask=tableSize-1;
+    _sampleSize=(maximum>Integer.MAX_VALUE/10)?Integer.MAX_VALUE:10*maximum;
+    _size=0;
+  }
+
+  /**
+   * Get the estimated frequency of a key.
+   * @param key Key to use.
+   * @return a frequency in the range [0,15].
+   */
+  int frequency(long key)
+  {
+    int hash=spread(key);
+    int start=(hash&3)<<2;
+    int frequency=Integer.MAX_VALUE;
+    for(int i=0;i<4;i++)
+    {
+      int index=indexOf(hash,i);
+      int count=(int)((_table[index]>>>((start+i)<<2))&0xfL);
+      frequency=Math.min(frequency,count);
+    }
+    return frequency;
+  }
+
+  /**
+   * Record an access to a key.
+   * @param key Key to use.
+   */
+  void increment(long key)
+  {
+    int hash=spread(key);
+    int start=(hash&3)<<2;
+    boolean added=false;
+    for(int i=0;i<4;i++)
+    {
+      int index=indexOf(hash,i);
+      added|=incrementAt(index,start+i);
+    }
+    if (added)
+    {
+      _size++;
+      if (_size==_sampleSize)
+      {
+        reset();
+      }
+    }
+  }
+
+  private boolean incrementAt(int index, int counter)
+  {
+    int offset=counter<<2;
+    long mask=0xfL<<offset;
+    if ((_table[index]&mask)!=mask)
+    {
+      _table[index]+=1L<<offset;
+      return true;
+    }
+    return false;
+  }
+
+  private void reset()
+  {
+    int count=0;
+    for(int i=0;i<_table.length;i++)
+    {
+      count+=Long.bitCount(_table[i]&ONE_MASK);
+      _table[i]=(_table[i]>>>1)&RESET_MASK;
+    }
+    _size=(_size-(count>>>2))>>>1;
+  }
+
+  private int indexOf(int item, int i)
+  {
+    long hash=(item+SEEDS[i])*SEEDS[i];
+    hash+=(hash>>>32);
+    return ((int)hash)&_tableMask;
+  }
+
+  private static int spread(long key)
+  {
+    long h=key*0x9E3779B97F4A7C15L;
+    int x=(int)(h^(h>>>32));
+    x=((x>>>16)^x)*0x45d9f3b;
+    return (x>>>16)^x;
+  }
+}
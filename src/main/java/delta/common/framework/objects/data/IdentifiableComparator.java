@@ -4,6 +4,7 @@ import java.util.Comparator;
 
 /**
  * Comparator for Identifiables, using their primary key.
+ * Objects without primary key are rejected with an {@link IllegalArgumentException}.
  * @param <E> Type of managed identifiables.
  * @author DAM
  */
@@ -13,8 +14,8 @@ public class IdentifiableComparator<E extends Identifiable<Long>> implements Com
   @Override
   public int compare(E o1, E o2)
   {
-    Long p1=o1.getPrimaryKey();
-    Long p2=o2.getPrimaryKey();
-    return Long.compare(p1.longValue(),p2.longValue());
+    long p1=LongIdentifiable.getPrimaryKeyValue(o1);
+    long p2=LongIdentifiable.getPrimaryKeyValue(o2);
+    return Long.compare(p1,p2);
   }
 }
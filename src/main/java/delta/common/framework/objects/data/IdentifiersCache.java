@@ -0,0 +1,180 @@
+package delta.common.framework.objects.data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Bounded cache for lists of primary keys (for instance, the results of relation queries).
+ * <p>
+ * When the maximum size is reached, the least recently used entries are removed first.
+ * Entries may also expire after a time to live.
+ * Cached lists are immutable. This class is thread-safe.
+ * @author DAM
+ */
+public class IdentifiersCache
+{
+  private int _maxSize;
+  private long _timeToLive;
+  // Key -> primary keys, in access order
+  private LinkedHashMap<Object,Entry> _identifiers;
+  // Incremented on each invalidation
+  private long _generation;
+
+  /**
+   * Constructor (entries never expire).
+   * @param maxSize Maximum number of entries.
+   */
+  public IdentifiersCache(int maxSize)
+  {
+    this(0,TimeUnit.NANOSECONDS,maxSize);
+  }
+
+  /**
+   * Constructor.
+   * @param timeToLive Time to live of entries (zero or negative: entries never expire).
+   * @param unit Unit of the time to live.
+   * @param maxSize Maximum number of entries.
+   */
+  public IdentifiersCache(long timeToLive, TimeUnit unit, int maxSize)
+  {
+    if (maxSize<=0)
+    {
+      throw new IllegalArgumentException("Bad identifiers cache size: "+maxSize);
+    }
+    _maxSize=maxSize;
+    _timeToLive=(timeToLive>0)?unit.toNanos(timeToLive):0;
+    _identifiers=new LinkedHashMap<Object,Entry>(16,0.75f,true);
+  }
+
+  /**
+   * Get the primary keys for a key.
+   * @param key Key to search.
+   * @return An immutable list of primary keys, or <code>null</code> if not found.
+   */
+  public synchronized List<Long> get(Object key)
+  {
+    Entry entry=_identifiers.get(key);
+    if (entry==null)
+    {
+      return null;
+    }
+    if ((_timeToLive>0) && (System.nanoTime()-entry._expiration>=0))
+    {
+      _identifiers.remove(key);
+      return null;
+    }
+    return entry._primaryKeys;
+  }
+
+  /**
+   * Get the current generation of this cache.
+   * The generation changes each time entries are invalidated.
+   * @return a generation.
+   */
+  public synchronized long getGeneration()
+  {
+    return _generation;
+  }
+
+  /**
+   * Put the primary keys for a key.
+   * @param key Key to use.
+   * @param primaryKeys Primary keys to store (copied).
+   * @return the stored immutable list.
+   */
+  public List<Long> put(Object key, List<Long> primaryKeys)
+  {
+    return put(key,primaryKeys,-1);
+  }
+
+  /**
+   * Put the primary keys for a key, unless entries were invalidated since the given generation.
+   * This prevents caching stale results computed concurrently with a write.
+   * @param key Key to use.
+   * @param primaryKeys Primary keys to store (copied).
+   * @param generation Generation read before computing the primary keys, or <code>-1</code> to always store them.
+   * @return an immutable copy of the given list.
+   */
+  public List<Long> put(Object key, List<Long> primaryKeys, long generation)
+  {
+    List<Long> value=Collections.unmodifiableList(new ArrayList<Long>(primaryKeys));
+    synchronized (this)
+    {
+      if ((generation>=0) && (generation!=_generation))
+      {
+        return value;
+      }
+      _identifiers.put(key,new Entry(value,System.nanoTime()+_timeToLive));
+      if (_identifiers.size()>_maxSize)
+      {
+        Iterator<Map.Entry<Object,Entry>> it=_identifiers.entrySet().iterator();
+        while (_identifiers.size()>_maxSize)
+        {
+          it.next();
+          it.remove();
+        }
+      }
+    }
+    return value;
+  }
+
+  /**
+   * Remove the entry for a key.
+   * @param key Key to remove.
+   */
+  public synchronized void remove(Object key)
+  {
+    _generation++;
+    _identifiers.remove(key);
+  }
+
+  /**
+   * Remove the entries whose key matches the given filter.
+   * @param filter Filter to use.
+   */
+  public synchronized void removeIf(Predicate<Object> filter)
+  {
+    _generation++;
+    _identifiers.keySet().removeIf(filter);
+  }
+
+  /**
+   * Get the number of entries (expired entries included).
+   * @return a number of entries.
+   */
+  public synchronized int size()
+  {
+    return _identifiers.size();
+  }
+
+  /**
+   * Remove all entries.
+   */
+  public synchronized void clear()
+  {
+    _generation++;
+    _identifiers.clear();
+  }
+
+  /**
+   * Cache entry.
+   */
+  private static class Entry
+  {
+    private final List<Long> _primaryKeys;
+    // Expiration time (nanoseconds), if a time to live is set
+    private final long _expiration;
+
+    private Entry(List<Long> primaryKeys, long expiration)
+    {
+      _primaryKeys=primaryKeys;
+      _expiration=expiration;
+    }
+  }
+}
@@ -0,0 +1,104 @@
+package delta.common.framework.objects.data;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe histogram of durations, with logarithmic buckets.
+ * <p>
+ * Each power of 2 is split into 4 buckets, so that the relative error of
+ * the computed percentiles is less than 25%.
+ * @author DAM
+ */
+final class LatencyHistogram
+{
+  private static final int SUB_BUCKET_BITS=2;
+  private static final int SUB_BUCKETS=1<<SUB_BUCKET_BITS;
+  private static final int NB_BUCKETS=64*SUB_BUCKETS;
+
+  private AtomicLongArray _counts;
+
+  /**
+   * Constructor.
+   */
+  LatencyHistogram()
+  {
+    _counts=new AtomicLongArray(NB_BUCKETS);
+  }
+
+  /**
+   * Record a duration.
+   * @param duration Duration to record (nanoseconds).
+   */
+  void record(long duration)
+  {
+    _counts.incrementAndGet(indexOf(Math.max(duration,0)));
+  }
+
+  /**
+   * Get a copy of the bucket counts.
+   * @return an array of counts.
+   */
+  long[] snapshot()
+  {
+    long[] ret=new long[NB_BUCKETS];
+    for(int i=0;i<NB_BUCKETS;i++)
+    {
+      ret[i]=_counts.get(i);
+    }
+    return ret;
+  }
+
+  /**
+   * Compute a percentile from bucket counts.
+   * @param counts Bucket counts.
+   * @param percentile Percentile to compute, in the range [0,100].
+   * @return a duration (nanoseconds), or 0 if there is no recorded duration.
+   */
+  static long getPercentile(long[] counts, double percentile)
+  {
+    long total=0;
+    for(long count : counts)
+    {
+      total+=count;
+    }
+    if (total==0)
+    {
+      return 0;
+    }
+    long rank=Math.max(1,(long)Math.ceil((percentile/100)*total));
+    long cumulated=0;
+    for(int i=0;i<counts.length;i++)
+    {
+      cumulated+=counts[i];
+      if (cumulated>=rank)
+      {
+        return upperBound(i);
+      }
+    }
+    return upperBound(counts.length-1);
+  }
+
+  private static int indexOf(long value)
+  {
+    if (value<SUB_BUCKETS)
+    {
+      return (int)value;
+    }
+    int exponent=63-Long.numberOfLeadingZeros(value);
+    int subBucket=(int)((value>>>(exponent-SUB_BUCKET_BITS))&(SUB_BUCKETS-1));
+    return (exponent*SUB_BUCKETS)+subBucket;
+  }
+
+  private static long upperBound(int index)
+  {
+    if (index<SUB_BUCKETS)
+    {
+      return index;
+    }
+    int exponent=index/SUB_BUCKETS;
+    int subBucket=index%SUB_BUCKETS;
+    long width=1L<<(exponent-SUB_BUCKET_BITS);
+    long lowerBound=(1L<<exponent)+(subBucket*width);
+    return lowerBound+width-1;
+  }
+}
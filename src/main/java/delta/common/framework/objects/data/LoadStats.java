@@ -0,0 +1,153 @@
+package delta.common.framework.objects.data;
+
+/**
+ * Snapshot of the load statistics of an objects manager.
+ * @author DAM
+ */
+public class LoadStats
+{
+  private long _hits;
+  private long _secondLevelHits;
+  private long _misses;
+  private long _loads;
+  private long _loadFailures;
+  private long _totalLoadTime;
+  private long[] _loadTimeBuckets;
+  private CacheStats _cacheStats;
+
+  /**
+   * Constructor.
+   * @param hits Number of loads served by the cache.
+   * @param secondLevelHits Number of loads served by the second-level cache.
+   * @param misses Number of loads not served by the cache.
+   * @param loads Number of loads sent to the connector.
+   * @param loadFailures Number of connector loads that threw an exception.
+   * @param totalLoadTime Total time spent in connector loads (nanoseconds).
+   * @param loadTimeBuckets Histogram of connector load times.
+   * @param cacheStats Statistics of the cache, if any.
+   */
+  LoadStats(long hits, long secondLevelHits, long misses, long loads, long loadFailures,
+      long totalLoadTime, long[] loadTimeBuckets, CacheStats cacheStats)
+  {
+    _hits=hits;
+    _secondLevelHits=secondLevelHits;
+    _misses=misses;
+    _loads=loads;
+    _loadFailures=loadFailures;
+    _totalLoadTime=totalLoadTime;
+    _loadTimeBuckets=loadTimeBuckets;
+    _cacheStats=cacheStats;
+  }
+
+  /**
+   * Get the number of loads served by the cache.
+   * @return a number of loads.
+   */
+  public long getHits()
+  {
+    return _hits;
+  }
+
+  /**
+   * Get the number of loads served by the second-level cache.
+   * These are also counted as misses.
+   * @return a number of loads.
+   */
+  public long getSecondLevelHits()
+  {
+    return _secondLevelHits;
+  }
+
+  /**
+   * Get the number of loads not served by the cache.
+   * @return a number of loads.
+   */
+  public long getMisses()
+  {
+    return _misses;
+  }
+
+  /**
+   * Get the ratio of loads served by the cache.
+   * @return a ratio in the range [0,1] (1 if there was no load).
+   */
+  public double getHitRatio()
+  {
+    long requests=_hits+_misses;
+    return (requests==0)?1.0:((double)_hits)/requests;
+  }
+
+  /**
+   * Get the number of loads sent to the connector.
+   * @return a number of loads.
+   */
+  public long getLoads()
+  {
+    return _loads;
+  }
+
+  /**
+   * Get the number of connector loads that threw an exception.
+   * @return a number of loads.
+   */
+  public long getLoadFailures()
+  {
+    return _loadFailures;
+  }
+
+  /**
+   * Get the total time spent in connector loads.
+   * @return a duration (nanoseconds).
+   */
+  public long getTotalLoadTime()
+  {
+    return _totalLoadTime;
+  }
+
+  /**
+   * Get the average time of connector loads.
+   * @return a duration (nanoseconds).
+   */
+  public double getAverageLoadTime()
+  {
+    return (_loads==0)?0:((double)_totalLoadTime)/_loads;
+  }
+
+  /**
+   * Get a percentile of connector load times.
+   * The result is an approximation (less than 25% relative error).
+   * @param percentile Percentile to get, in the range [0,100].
+   * @return a duration (nanoseconds).
+   */
+  public long getLoadTimePercentile(double percentile)
+  {
+    return LatencyHistogram.getPercentile(_loadTimeBuckets,percentile);
+  }
+
+  /**
+   * Get the statistics of the cache.
+   * @return some cache statistics or <code>null</code> if there is no cache.
+   */
+  public CacheStats getCacheStats()
+  {
+    return _cacheStats;
+  }
+
+  @Override
+  public String toString()
+  {
+    StringBuilder sb=new StringBuilder();
+    sb.append("hits=").append(_hits);
+    sb.append(", misses=").append(_misses);
+    sb.append(", L2 hits=").append(_secondLevelHits);
+    sb.append(", loads=").append(_loads);
+    sb.append(", failures=").append(_loadFailures);
+    sb.append(", p50=").append(getLoadTimePercentile(50)).append("ns");
+    sb.append(", p99=").append(getLoadTimePercentile(99)).append("ns");
+    if (_cacheStats!=null)
+    {
+      sb.append(", evictions=").append(_cacheStats.getEvictions());
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,302 @@
+package delta.common.framework.objects.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Map with primitive <code>long</code> keys.
+ * <p>
+ * Uses open addressing with linear probing: keys and values are stored in two
+ * parallel arrays, so that there is no entry object nor key boxing.
+ * <code>null</code> values are not supported.
+ * @author DAM
+ * @param <V> Type of values.
+ */
+final class LongHashMap<V>
+{
+  private static final int MINIMUM_CAPACITY=16;
+
+  private long[] _keys;
+  private Object[] _values;
+  private int _mask;
+  private int _size;
+  private int _threshold;
+
+  /**
+   * Constructor.
+   */
+  LongHashMap()
+  {
+    allocate(MINIMUM_CAPACITY);
+  }
+
+  /**
+   * Get the value for a key.
+   * @param key Key to search.
+   * @return A value or <code>null</code> if not found.
+   */
+  @SuppressWarnings("unchecked")
+  V get(long key)
+  {
+    int index=hash(key)&_mask;
+    while (true)
+    {
+      Object value=_values[index];
+      if (value==null)
+      {
+        return null;
+      }
+      if (_keys[index]==key)
+      {
+        return (V)value;
+      }
+      index=(index+1)&_mask;
+    }
+  }
+
+  /**
+   * Put a value.
+   * @param key Key to use.
+   * @param value Value to set (not <code>null</code>).
+   * @return the previous value for this key, or <code>null</code>.
+   */
+  @SuppressWarnings("unchecked")
+  V put(long key, V value)
+  {
+    if (value==null)
+    {
+      throw new IllegalArgumentException("null value for key: "+key);
+    }
+    int index=hash(key)&_mask;
+    while (true)
+    {
+      Object current=_values[index];
+      if (current==null)
+      {
+        _keys[index]=key;
+        _values[index]=value;
+        _size++;
+        if (_size>_threshold)
+        {
+          resize(_values.length<<1);
+        }
+        return null;
+      }
+      if (_keys[index]==key)
+      {
+        _values[index]=value;
+        return (V)current;
+      }
+      index=(index+1)&_mask;
+    }
+  }
+
+  /**
+   * Remove a key.
+   * @param key Key to remove.
+   * @return the removed value, or <code>null</code> if not found.
+   */
+  @SuppressWarnings("unchecked")
+  V remove(long key)
+  {
+    int index=hash(key)&_mask;
+    while (true)
+    {
+      Object current=_values[index];
+      if (current==null)
+      {
+        return null;
+      }
+      if (_keys[index]==key)
+      {
+        shiftKeys(index);
+        _size--;
+        return (V)current;
+      }
+      index=(index+1)&_mask;
+    }
+  }
+
+  /**
+   * Get the number of keys in this map.
+   * @return a number of keys.
+   */
+  int size()
+  {
+    return _size;
+  }
+
+  /**
+   * Get a copy of the values of this map.
+   * @return A list of values.
+   */
+  @SuppressWarnings("unchecked")
+  List<V> values()
+  {
+    List<V> ret=new ArrayList<V>(_size);
+    for(Object value : _values)
+    {
+      if (value!=null)
+      {
+        ret.add((V)value);
+      }
+    }
+    return ret;
+  }
+
+  /**
+   * Get a spliterator on the values of this map (no copy).
+   * The map shall not be modified while it is used.
+   * @return a spliterator.
+   */
+  Spliterator<V> valuesSpliterator()
+  {
+    return new ValuesSpliterator<V>(_values,0,_values.length);
+  }
+
+  /**
+   * Remove all the keys of this map.
+   */
+  void clear()
+  {
+    if (_values.length>MINIMUM_CAPACITY)
+    {
+      allocate(MINIMUM_CAPACITY);
+    }
+    else
+    {
+      Arrays.fill(_values,null);
+    }
+    _size=0;
+  }
+
+  /**
+   * Removes the entry at the given slot and moves back the following
+   * entries of the probe sequence, so that lookups never need tombstones.
+   * @param position Slot to free.
+   */
+  private void shiftKeys(int position)
+  {
+    int last;
+    int slot;
+    while (true)
+    {
+      last=position;
+      position=(position+1)&_mask;
+      while (true)
+      {
+        if (_values[position]==null)
+        {
+          _values[last]=null;
+          return;
+        }
+        slot=hash(_keys[position])&_mask;
+        if ((last<=position)?((last>=slot) || (slot>position)):((last>=slot) && (slot>position)))
+        {
+          break;
+        }
+        position=(position+1)&_mask;
+      }
+      _keys[last]=_keys[position];
+      _values[last]=_values[position];
+    }
+  }
+
+  private void resize(int capacity)
+  {
+    long[] oldKeys=_keys;
+    Object[] oldValues=_values;
+    allocate(capacity);
+    for(int i=0;i<oldValues.length;i++)
+    {
+      Object value=oldValues[i];
+      if (value!=null)
+      {
+        int index=hash(oldKeys[i])&_mask;
+        while (_values[index]!=null)
+        {
+          index=(index+1)&_mask;
+        }
+        _keys[index]=oldKeys[i];
+        _values[index]=value;
+      }
+    }
+  }
+
+  private void allocate(int capacity)
+  {
+    _keys=new long[capacity];
+    _values=new Object[capacity];
+    _mask=capacity-1;
+    // Load factor: 2/3
+    _threshold=(capacity/3)*2;
+  }
+
+  private static int hash(long key)
+  {
+    long h=key*0x9E3779B97F4A7C15L;
+    return (int)(h^(h>>>32));
+  }
+
+  /**
+   * Spliterator on a range of the values array.
+   * @param <V> Type of values.
+   */
+  private static class ValuesSpliterator<V> implements Spliterator<V>
+  {
+    private Object[] _values;
+    private int _index;
+    private int _fence;
+
+    private ValuesSpliterator(Object[] values, int index, int fence)
+    {
+      _values=values;
+      _index=index;
+      _fence=fence;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean tryAdvance(Consumer<? super V> action)
+    {
+      while (_index<_fence)
+      {
+        Object value=_values[_index++];
+        if (value!=null)
+        {
+          action.accept((V)value);
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public Spliterator<V> trySplit()
+    {
+      int middle=(_index+_fence)>>>1;
+      if (middle<=_index)
+      {
+        return null;
+      }
+      Spliterator<V> ret=new ValuesSpliterator<V>(_values,_index,middle);
+      _index=middle;
+      return ret;
+    }
+
+    @Override
+    public long estimateSize()
+    {
+      return _fence-_index;
+    }
+
+    @Override
+    public int characteristics()
+    {
+      return NONNULL;
+    }
+  }
+}
@@ -0,0 +1,34 @@
+package delta.common.framework.objects.data;
+
+/**
+ * Interface of an object that has a <code>long</code> technical identifier.
+ * <p>
+ * Gives access to the identifier as a primitive value, so that bulk operations
+ * on keys do not need boxing.
+ * @author DAM
+ */
+public interface LongIdentifiable extends Identifiable<Long>
+{
+  /**
+   * Get the value of the identifier.
+   * @return an identifier.
+   * @throws IllegalStateException if there is none.
+   */
+  long getPrimaryKeyValue();
+
+  /**
+   * Get the value of the identifier of an object.
+   * @param object Object to use.
+   * @return an identifier.
+   * @throws IllegalArgumentException if there is none.
+   */
+  static long getPrimaryKeyValue(Identifiable<Long> object)
+  {
+    Long primaryKey=object.getPrimaryKey();
+    if (primaryKey==null)
+    {
+      throw new IllegalArgumentException("No primary key for object: "+object);
+    }
+    return primaryKey.longValue();
+  }
+}
@@ -0,0 +1,91 @@
+package delta.common.framework.objects.data;
+
+import java.util.List;
+import java.util.Spliterator;
+
+/**
+ * Unbounded cache for data objects, indexed by primitive <code>long</code> keys.
+ * <p>
+ * Avoids the boxing of keys and the entry objects of a <code>HashMap</code>:
+ * best suited to caches that hold a lot of objects.
+ * @author DAM
+ * @param <E> Type of the data objects to manage.
+ */
+public class LongObjectsCache<E extends Identifiable<Long>> extends ObjectsCache<E>
+{
+  private LongHashMap<E> _objects;
+
+  /**
+   * Constructor.
+   */
+  public LongObjectsCache()
+  {
+    super(null);
+    _objects=new LongHashMap<E>();
+  }
+
+  @Override
+  public E get(Long primaryKey)
+  {
+    if (primaryKey==null)
+    {
+      return null;
+    }
+    return recordAccess(_objects.get(primaryKey.longValue()));
+  }
+
+  @Override
+  public E get(long primaryKey)
+  {
+    return recordAccess(_objects.get(primaryKey));
+  }
+
+  @Override
+  public List<E> getAll()
+  {
+    return _objects.values();
+  }
+
+  @Override
+  public Spliterator<E> spliterator()
+  {
+    return _objects.valuesSpliterator();
+  }
+
+  @Override
+  public void put(E object)
+  {
+    Long id=object.getPrimaryKey();
+    if (id!=null)
+    {
+      _objects.put(id.longValue(),object);
+    }
+  }
+
+  @Override
+  public void remove(Long primaryKey)
+  {
+    if (primaryKey!=null)
+    {
+      _objects.remove(primaryKey.longValue());
+    }
+  }
+
+  @Override
+  public void remove(long primaryKey)
+  {
+    _objects.remove(primaryKey);
+  }
+
+  @Override
+  public int size()
+  {
+    return _objects.size();
+  }
+
+  @Override
+  public void clear()
+  {
+    _objects.clear();
+  }
+}
@@ -0,0 +1,83 @@
+package delta.common.framework.objects.data;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Spliterator that maps the elements of another spliterator.
+ * Elements mapped to <code>null</code> are skipped.
+ * @author DAM
+ * @param <T> Type of source elements.
+ * @param <E> Type of mapped elements.
+ */
+final class MappingSpliterator<T,E> implements Spliterator<E>,Consumer<T>
+{
+  private Spliterator<T> _source;
+  private Function<? super T,? extends E> _mapper;
+  private E _next;
+
+  /**
+   * Constructor.
+   * @param source Source spliterator.
+   * @param mapper Mapping function.
+   */
+  MappingSpliterator(Spliterator<T> source, Function<? super T,? extends E> mapper)
+  {
+    _source=source;
+    _mapper=mapper;
+  }
+
+  @Override
+  public void accept(T element)
+  {
+    _next=_mapper.apply(element);
+  }
+
+  @Override
+  public boolean tryAdvance(Consumer<? super E> action)
+  {
+    while (_source.tryAdvance(this))
+    {
+      E value=_next;
+      _next=null;
+      if (value!=null)
+      {
+        action.accept(value);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public void forEachRemaining(Consumer<? super E> action)
+  {
+    _source.forEachRemaining(element -> {
+      E value=_mapper.apply(element);
+      if (value!=null)
+      {
+        action.accept(value);
+      }
+    });
+  }
+
+  @Override
+  public Spliterator<E> trySplit()
+  {
+    Spliterator<T> split=_source.trySplit();
+    return (split!=null)?new MappingSpliterator<T,E>(split,_mapper):null;
+  }
+
+  @Override
+  public long estimateSize()
+  {
+    return _source.estimateSize();
+  }
+
+  @Override
+  public int characteristics()
+  {
+    return (_source.characteristics()&(CONCURRENT|IMMUTABLE))|NONNULL;
+  }
+}
@@ -0,0 +1,107 @@
+package delta.common.framework.objects.data;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache for the primary keys of objects that were not found.
+ * <p>
+ * Entries expire after a configurable time to live. When the maximum size is reached,
+ * the oldest entries are removed first. This class is thread-safe.
+ * @author DAM
+ */
+public class NegativeCache
+{
+  private long _timeToLive;
+  private int _maxSize;
+  // Primary key -> expiration time (nanoseconds)
+  private LinkedHashMap<Long,Long> _expirations;
+
+  /**
+   * Constructor.
+   * @param timeToLive Time to live of entries.
+   * @param unit Unit of the time to live.
+   * @param maxSize Maximum number of entries.
+   */
+  public NegativeCache(long timeToLive, TimeUnit unit, int maxSize)
+  {
+    if ((timeToLive<=0) || (maxSize<=0))
+    {
+      throw new IllegalArgumentException("Bad negative cache setup: TTL="+timeToLive+", size="+maxSize);
+    }
+    _timeToLive=unit.toNanos(timeToLive);
+    _maxSize=maxSize;
+    _expirations=new LinkedHashMap<Long,Long>();
+  }
+
+  /**
+   * Indicates if the given key is known to be absent.
+   * @param primaryKey Primary key to test.
+   * @return <code>true</code> if it is, <code>false</code> if unknown.
+   */
+  public synchronized boolean isAbsent(Long primaryKey)
+  {
+    Long expiration=_expirations.get(primaryKey);
+    if (expiration==null)
+    {
+      return false;
+    }
+    if (System.nanoTime()-expiration.longValue()>=0)
+    {
+      _expirations.remove(primaryKey);
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Record that an object is absent.
+   * @param primaryKey Primary key of the absent object.
+   */
+  public synchronized void markAbsent(Long primaryKey)
+  {
+    if (primaryKey==null)
+    {
+      return;
+    }
+    _expirations.remove(primaryKey);
+    _expirations.put(primaryKey,Long.valueOf(System.nanoTime()+_timeToLive));
+    if (_expirations.size()>_maxSize)
+    {
+      Iterator<Map.Entry<Long,Long>> it=_expirations.entrySet().iterator();
+      while (_expirations.size()>_maxSize)
+      {
+        it.next();
+        it.remove();
+      }
+    }
+  }
+
+  /**
+   * Forget about a key (for instance, because the object has been created).
+   * @param primaryKey Primary key to remove.
+   */
+  public synchronized void remove(Long primaryKey)
+  {
+    _expirations.remove(primaryKey);
+  }
+
+  /**
+   * Get the number of entries (expired entries included).
+   * @return a number of entries.
+   */
+  public synchronized int size()
+  {
+    return _expirations.size();
+  }
+
+  /**
+   * Remove all entries.
+   */
+  public synchronized void clear()
+  {
+    _expirations.clear();
+  }
+}
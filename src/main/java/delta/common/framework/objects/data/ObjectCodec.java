@@ -0,0 +1,26 @@
+package delta.common.framework.objects.data;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Serializes data objects to bytes, and back.
+ * @author DAM
+ * @param <E> Type of the data objects to manage.
+ */
+public interface ObjectCodec<E extends Identifiable<Long>>
+{
+  /**
+   * Encode an object.
+   * @param object Object to encode.
+   * @return the encoded bytes.
+   */
+  byte[] encode(E object);
+
+  /**
+   * Decode an object.
+   * @param buffer Buffer to read from: the encoded bytes are those between its position and its limit.
+   * The buffer shall not be kept after this call.
+   * @return the decoded object.
+   */
+  E decode(ByteBuffer buffer);
+}
@@ -0,0 +1,66 @@
+package delta.common.framework.objects.data;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Key of an objects set query: set identifier and parameters.
+ * Parameters are compared using deep equality, so that arrays
+ * with the same contents give the same key.
+ * @author DAM
+ */
+final class ObjectSetKey
+{
+  private final String _setID;
+  private final Object[] _parameters;
+  private final int _hashCode;
+
+  /**
+   * Constructor.
+   * @param setID Set identifier.
+   * @param parameters Parameters of the set (copied).
+   */
+  ObjectSetKey(String setID, Object[] parameters)
+  {
+    _setID=setID;
+    _parameters=(parameters!=null)?parameters.clone():null;
+    _hashCode=31*Objects.hashCode(setID)+Arrays.deepHashCode(_parameters);
+  }
+
+  /**
+   * Get the set identifier.
+   * @return a set identifier.
+   */
+  String getSetID()
+  {
+    return _setID;
+  }
+
+  @Override
+  public boolean equals(Object obj)
+  {
+    if (this==obj)
+    {
+      return true;
+    }
+    if (!(obj instanceof ObjectSetKey))
+    {
+      return false;
+    }
+    ObjectSetKey other=(ObjectSetKey)obj;
+    return (_hashCode==other._hashCode) && Objects.equals(_setID,other._setID)
+        && Arrays.deepEquals(_parameters,other._parameters);
+  }
+
+  @Override
+  public int hashCode()
+  {
+    return _hashCode;
+  }
+
+  @Override
+  public String toString()
+  {
+    return _setID+Arrays.deepToString(_parameters);
+  }
+}
@@ -0,0 +1,16 @@
+package delta.common.framework.objects.data;
+
+/**
+ * Computes the weight of a cached object.
+ * @author DAM
+ * @param <E> Type of the data objects to weigh.
+ */
+public interface ObjectWeigher<E extends Identifiable<Long>>
+{
+  /**
+   * Get the weight of an object.
+   * @param object Object to use.
+   * @return a weight (zero or positive).
+   */
+  int weigh(E object);
+}
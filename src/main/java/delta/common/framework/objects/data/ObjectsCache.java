@@ -1,26 +1,118 @@
 package delta.common.framework.objects.data;
 
+import java.util.AbstractCollection;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Cache for data objects.
+ * <p>
+ * This default implementation is unbounded: objects stay in the cache until they
+ * are explicitly removed. Sub-classes may provide other storage or eviction policies.
+ * <p>
+ * Cached objects can be traversed without copy, using {@link #values()}, {@link #forEach(Consumer)},
+ * {@link #spliterator()} or {@link #stream()}. These views are live, not snapshots: a snapshot
+ * requires a copy (see {@link #getAll()}). They are weakly consistent for thread-safe caches
+ * (see {@link #hasWeaklyConsistentViews()}): they tolerate concurrent modifications, and may
+ * or may not reflect them. For other caches, the cache shall not be modified during the traversal.
  * @author DAM
  * @param <E> Type of the data objects to manage.
  */
-public class ObjectsCache<E extends Identifiable<Long>>
+public class ObjectsCache<E extends Identifiable<Long>> implements Iterable<E>
 {
-  private HashMap<Long,E> _cache;
+  private Map<Long,E> _cache;
+  private volatile EvictionListener<E> _evictionListener;
+  private LongAdder _hits=new LongAdder();
+  private LongAdder _misses=new LongAdder();
+  private LongAdder _evictions=new LongAdder();
 
   /**
    * Default constructor.
    */
   public ObjectsCache()
   {
-    _cache=new HashMap<Long,E>();
+    this(new HashMap<Long,E>());
+  }
+
+  /**
+   * Constructor.
+   * @param storage Storage to use, or <code>null</code> if the sub-class
+   * manages its own storage (it shall then override all the public methods).
+   */
+  protected ObjectsCache(Map<Long,E> storage)
+  {
+    _cache=storage;
+  }
+
+  /**
+   * Set the listener for objects evicted because of the capacity of this cache.
+   * Unbounded caches never call it.
+   * @param listener Listener to set, or <code>null</code>.
+   */
+  public void setEvictionListener(EvictionListener<E> listener)
+  {
+    _evictionListener=listener;
+  }
+
+  /**
+   * Get the listener for evicted objects.
+   * @return a listener or <code>null</code>.
+   */
+  public EvictionListener<E> getEvictionListener()
+  {
+    return _evictionListener;
+  }
+
+  /**
+   * Notify the eviction listener, if any.
+   * @param object Evicted object.
+   */
+  protected void notifyEviction(E object)
+  {
+    _evictions.increment();
+    EvictionListener<E> listener=_evictionListener;
+    if (listener!=null)
+    {
+      listener.objectEvicted(object);
+    }
+  }
+
+  /**
+   * Record the result of a lookup in the statistics of this cache.
+   * @param object Found object, or <code>null</code> if not found.
+   * @return the given object.
+   */
+  protected E recordAccess(E object)
+  {
+    if (object!=null)
+    {
+      _hits.increment();
+    }
+    else
+    {
+      _misses.increment();
+    }
+    return object;
+  }
+
+  /**
+   * Get a snapshot of the statistics of this cache.
+   * @return some statistics.
+   */
+  public CacheStats getStats()
+  {
+    return new CacheStats(_hits.sum(),_misses.sum(),_evictions.sum());
   }
 
   /**
@@ -31,7 +123,17 @@ public class ObjectsCache<E extends Identifiable<Long>>
   public E get(Long primaryKey)
   {
     E ret=_cache.get(primaryKey);
-    return ret;
+    return recordAccess(ret);
+  }
+
+  /**
+   * Find an object in this cache, using a primitive key.
+   * @param primaryKey Primary key of the object to get.
+   * @return An object or <code>null</code> if not found.
+   */
+  public E get(long primaryKey)
+  {
+    return get(Long.valueOf(primaryKey));
   }
 
   /**
@@ -43,6 +145,90 @@ public class ObjectsCache<E extends Identifiable<Long>>
     return new ArrayList<E>(_cache.values());
   }
 
+  /**
+   * Indicates if the views of this cache are weakly consistent, that is if they can be
+   * traversed while other threads modify this cache.
+   * This default implementation returns <code>true</code> if the storage is a concurrent map.
+   * @return <code>true</code> if they are, <code>false</code> otherwise.
+   */
+  public boolean hasWeaklyConsistentViews()
+  {
+    return (_cache instanceof ConcurrentMap);
+  }
+
+  /**
+   * Get an unmodifiable live view of the cached objects (not a snapshot).
+   * @return A collection view.
+   */
+  public Collection<E> values()
+  {
+    return new AbstractCollection<E>()
+    {
+      @Override
+      public Iterator<E> iterator()
+      {
+        return ObjectsCache.this.iterator();
+      }
+
+      @Override
+      public Spliterator<E> spliterator()
+      {
+        return ObjectsCache.this.spliterator();
+      }
+
+      @Override
+      public int size()
+      {
+        return ObjectsCache.this.size();
+      }
+    };
+  }
+
+  /**
+   * Get an iterator on the cached objects. It does not support removal.
+   * @return an iterator.
+   */
+  @Override
+  public Iterator<E> iterator()
+  {
+    return Spliterators.iterator(spliterator());
+  }
+
+  /**
+   * Get a spliterator on the cached objects.
+   * Sub-classes with their own storage shall override this method.
+   * @return a spliterator.
+   */
+  @Override
+  public Spliterator<E> spliterator()
+  {
+    return _cache.values().spliterator();
+  }
+
+  @Override
+  public void forEach(Consumer<? super E> action)
+  {
+    spliterator().forEachRemaining(action);
+  }
+
+  /**
+   * Get a sequential stream on the cached objects.
+   * @return a stream.
+   */
+  public Stream<E> stream()
+  {
+    return StreamSupport.stream(spliterator(),false);
+  }
+
+  /**
+   * Get a parallel stream on the cached objects.
+   * @return a stream.
+   */
+  public Stream<E> parallelStream()
+  {
+    return StreamSupport.stream(spliterator(),true);
+  }
+
   /**
    * Put an object in this cache.
    * @param object Object to put.
@@ -78,4 +264,30 @@ public class ObjectsCache<E extends Identifiable<Long>>
   {
     _cache.remove(primaryKey);
   }
+
+  /**
+   * Remove an object from this cache, using a primitive key.
+   * @param primaryKey Primary key of the object to remove.
+   */
+  public void remove(long primaryKey)
+  {
+    remove(Long.valueOf(primaryKey));
+  }
+
+  /**
+   * Get the number of cached objects.
+   * @return a number of objects.
+   */
+  public int size()
+  {
+    return _cache.size();
+  }
+
+  /**
+   * Remove all the objects of this cache.
+   */
+  public void clear()
+  {
+    _cache.clear();
+  }
 }
@@ -2,6 +2,7 @@ package delta.common.framework.objects.data;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -53,6 +54,17 @@ public class ObjectsConnector<E extends Identifiable<Long>>
     return null;
   }
 
+  /**
+   * Load an object from the data source, using a primitive key.
+   * This default implementation uses {@link #getByPrimaryKey(Long)}.
+   * @param primaryKey Identifying key for the targeted object.
+   * @return The loaded object or <code>null</code> if not found.
+   */
+  public E getByPrimaryKey(long primaryKey)
+  {
+    return getByPrimaryKey(Long.valueOf(primaryKey));
+  }
+
   /**
    * Partially load an object from the data source (that is: only load the main
    * attributes of the object, and not other fields or aggregated objects).
@@ -64,6 +76,18 @@ public class ObjectsConnector<E extends Identifiable<Long>>
     return getByPrimaryKey(primaryKey);
   }
 
+  /**
+   * Complete a partially loaded object (see {@link #getPartialByPrimaryKey(Long)}).
+   * This default implementation loads the full object: sub-classes may override it
+   * to load the missing data only, and return the given object.
+   * @param partialObject Partial object to complete.
+   * @return The full object or <code>null</code> if not found.
+   */
+  public E completePartial(E partialObject)
+  {
+    return getByPrimaryKey(partialObject.getPrimaryKey());
+  }
+
   /**
    * Get all the objects of the managed class.
    * @return a list of such objects.
@@ -73,6 +97,19 @@ public class ObjectsConnector<E extends Identifiable<Long>>
   	return new ArrayList<E>();
   }
 
+  /**
+   * Get a stream on all the objects of the managed class.
+   * The returned stream may hold resources (files, database cursors...):
+   * it shall be closed after use.
+   * This default implementation streams the list returned by {@link #getAll()}:
+   * sub-classes should override it to read objects incrementally.
+   * @return a stream of such objects.
+   */
+  public Stream<E> streamAll()
+  {
+    return getAll().stream();
+  }
+
   /**
    * Get a list of objects of the managed class, designated by
    * their primary keys.
@@ -80,12 +117,16 @@ public class ObjectsConnector<E extends Identifiable<Long>>
    * @return A list of objects. If an object cannot be found, it is not
    * put in the list, so that the size of the returned list may be less than
    * the size of the given primary keys list.
+   * This default implementation loads objects one by one: sub-classes should
+   * override it to load all the objects at once.
+   * @throws IllegalArgumentException if a key is <code>null</code>.
    */
   public List<E> getByPrimaryKeyList(List<Long> primaryKeys)
   {
     List<E> list=new ArrayList<E>();
     for(Long l : primaryKeys)
     {
+      checkPrimaryKey(l);
       E element=getByPrimaryKey(l);
       if (element!=null)
       {
@@ -99,6 +140,85 @@ public class ObjectsConnector<E extends Identifiable<Long>>
     return list;
   }
 
+  /**
+   * Get a list of objects of the managed class, designated by
+   * their primary keys (primitive version).
+   * This default implementation uses {@link #getByPrimaryKeyList(List)}:
+   * sub-classes should override it to avoid boxing.
+   * @param primaryKeys Primary keys to use.
+   * @return A list of objects (see {@link #getByPrimaryKeyList(List)}).
+   */
+  public List<E> getByPrimaryKeys(long[] primaryKeys)
+  {
+    List<Long> keys=new ArrayList<Long>(primaryKeys.length);
+    for(long primaryKey : primaryKeys)
+    {
+      keys.add(Long.valueOf(primaryKey));
+    }
+    return getByPrimaryKeyList(keys);
+  }
+
+  /**
+   * Get the values of a list of primary keys.
+   * @param primaryKeys Primary keys.
+   * @return an array of primary key values, in the same order.
+   * @throws IllegalArgumentException if a key is <code>null</code>.
+   */
+  public static long[] toPrimaryKeyValues(List<Long> primaryKeys)
+  {
+    long[] ret=new long[primaryKeys.size()];
+    int index=0;
+    for(Long primaryKey : primaryKeys)
+    {
+      checkPrimaryKey(primaryKey);
+      ret[index++]=primaryKey.longValue();
+    }
+    return ret;
+  }
+
+  private static void checkPrimaryKey(Long primaryKey)
+  {
+    if (primaryKey==null)
+    {
+      throw new IllegalArgumentException("Null primary key!");
+    }
+  }
+
+  /**
+   * Sort objects using the order of the given keys.
+   * @param primaryKeys Primary keys.
+   * @param objects Objects to sort.
+   * @return A list of objects, in the order of the given keys. Missing objects are ignored.
+   */
+  protected static <E extends Identifiable<Long>> List<E> sortByKeys(long[] primaryKeys, List<E> objects)
+  {
+    LongHashMap<E> objectsByKey=new LongHashMap<E>();
+    for(E object : objects)
+    {
+      objectsByKey.put(LongIdentifiable.getPrimaryKeyValue(object),object);
+    }
+    List<E> ret=new ArrayList<E>(objects.size());
+    int nbMissing=0;
+    for(long primaryKey : primaryKeys)
+    {
+      E object=objectsByKey.get(primaryKey);
+      if (object!=null)
+      {
+        ret.add(object);
+      }
+      else
+      {
+        nbMissing++;
+      }
+    }
+    // Missing keys are expected (absences may be cached by the manager)
+    if ((nbMissing>0) && (LOGGER.isDebugEnabled()))
+    {
+      LOGGER.debug("Objects not found: "+nbMissing+"/"+primaryKeys.length);
+    }
+    return ret;
+  }
+
   /**
    * Get the primary keys of the objects related to object whose primary
    * key is <code>primaryKey</code> using the designated relation.
@@ -150,4 +270,116 @@ public class ObjectsConnector<E extends Identifiable<Long>>
   {
     // Nothing to do !
   }
+
+  /**
+   * Create a series of objects in the managed persistence system.
+   * This default implementation creates objects one by one:
+   * sub-classes should override it to create objects at once.
+   * @param objectsToCreate Objects to create.
+   * @throws PartialWriteException if it fails after some objects were created.
+   */
+  public void createAll(List<E> objectsToCreate)
+  {
+    int nbWritten=0;
+    try
+    {
+      for(E objectToCreate : objectsToCreate)
+      {
+        create(objectToCreate);
+        nbWritten++;
+      }
+    }
+    catch(RuntimeException e)
+    {
+      throw wrapFailure("create",nbWritten,e);
+    }
+  }
+
+  /**
+   * Update a series of objects in the managed persistence system.
+   * This default implementation updates objects one by one:
+   * sub-classes should override it to update objects at once.
+   * @param objectsToUpdate Objects to update.
+   * @throws PartialWriteException if it fails after some objects were updated.
+   */
+  public void updateAll(List<E> objectsToUpdate)
+  {
+    int nbWritten=0;
+    try
+    {
+      for(E objectToUpdate : objectsToUpdate)
+      {
+        update(objectToUpdate);
+        nbWritten++;
+      }
+    }
+    catch(RuntimeException e)
+    {
+      throw wrapFailure("update",nbWritten,e);
+    }
+  }
+
+  /**
+   * Delete a series of objects in the managed persistence system.
+   * This default implementation deletes objects one by one:
+   * sub-classes should override it to delete objects at once.
+   * @param primaryKeys Primary keys of the objects to delete.
+   * @throws PartialWriteException if it fails after some objects were deleted.
+   */
+  public void deleteAll(List<Long> primaryKeys)
+  {
+    int nbWritten=0;
+    try
+    {
+      for(Long primaryKey : primaryKeys)
+      {
+        delete(primaryKey);
+        nbWritten++;
+      }
+    }
+    catch(RuntimeException e)
+    {
+      throw wrapFailure("delete",nbWritten,e);
+    }
+  }
+
+  /**
+   * Build the exception to throw when a bulk write that writes objects one by one fails.
+   * @param operation Name of the operation.
+   * @param nbWritten Number of objects written before the failure.
+   * @param failure Failure.
+   * @return the exception to throw.
+   */
+  private static RuntimeException wrapFailure(String operation, int nbWritten, RuntimeException failure)
+  {
+    if (nbWritten==0)
+    {
+      return failure;
+    }
+    return new PartialWriteException("Cannot "+operation+" all objects ("+nbWritten+" written)",nbWritten,failure);
+  }
+
+  /**
+   * Apply a set of changes in the managed persistence system.
+   * This default implementation creates, updates then deletes objects, using
+   * {@link #createAll(List)}, {@link #updateAll(List)} and {@link #deleteAll(List)}.
+   * @param createdObjects Objects to create.
+   * @param updatedObjects Objects to update.
+   * @param deletedKeys Primary keys of the objects to delete.
+   */
+  public void applyChanges(List<E> createdObjects, List<E> updatedObjects, List<Long> deletedKeys)
+  {
+    if (!createdObjects.isEmpty())
+    {
+      createAll(createdObjects);
+    }
+    if (!updatedObjects.isEmpty())
+    {
+      updateAll(updatedObjects);
+    }
+    if (!deletedKeys.isEmpty())
+    {
+      deleteAll(deletedKeys);
+    }
+  }
 }
@@ -0,0 +1,114 @@
+package delta.common.framework.objects.data;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Provides the default executor for asynchronous operations on objects.
+ * <p>
+ * When the JVM supports virtual threads, the default executor starts a new
+ * virtual thread for each task. Otherwise, it uses a pool of daemon threads.
+ * <p>
+ * Also provides a scheduler for delayed tasks, that uses a single daemon thread.
+ * @author DAM
+ */
+public final class ObjectsExecutors
+{
+  private static final Logger LOGGER=LoggerFactory.getLogger(ObjectsExecutors.class);
+
+  private static ExecutorService _defaultExecutor;
+  private static ScheduledExecutorService _defaultScheduler;
+
+  private ObjectsExecutors()
+  {
+    // Nothing!
+  }
+
+  /**
+   * Get the default executor.
+   * @return an executor.
+   */
+  public static synchronized Executor getDefaultExecutor()
+  {
+    if (_defaultExecutor==null)
+    {
+      _defaultExecutor=buildVirtualThreadsExecutor();
+      if (_defaultExecutor==null)
+      {
+        _defaultExecutor=buildDaemonThreadsExecutor();
+      }
+    }
+    return _defaultExecutor;
+  }
+
+  /**
+   * Get the default scheduler for delayed tasks.
+   * Scheduled tasks shall be short, or hand over their work to an executor.
+   * @return a scheduler.
+   */
+  public static synchronized ScheduledExecutorService getDefaultScheduler()
+  {
+    if (_defaultScheduler==null)
+    {
+      ThreadFactory factory=new ThreadFactory()
+      {
+        @Override
+        public Thread newThread(Runnable r)
+        {
+          Thread thread=new Thread(r,"Objects scheduler");
+          thread.setDaemon(true);
+          return thread;
+        }
+      };
+      ScheduledThreadPoolExecutor scheduler=new ScheduledThreadPoolExecutor(1,factory);
+      scheduler.setRemoveOnCancelPolicy(true);
+      _defaultScheduler=scheduler;
+    }
+    return _defaultScheduler;
+  }
+
+  private static ExecutorService buildVirtualThreadsExecutor()
+  {
+    try
+    {
+      Method method=Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return (ExecutorService)method.invoke(null);
+    }
+    catch(NoSuchMethodException e)
+    {
+      // Virtual threads are not supported by this JVM
+      return null;
+    }
+    catch(Exception e)
+    {
+      LOGGER.warn("Could not build virtual threads executor",e);
+      return null;
+    }
+  }
+
+  private static ExecutorService buildDaemonThreadsExecutor()
+  {
+    ThreadFactory factory=new ThreadFactory()
+    {
+      private AtomicInteger _index=new AtomicInteger();
+
+      @Override
+      public Thread newThread(Runnable r)
+      {
+        Thread thread=new Thread(r,"Objects worker "+_index.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      }
+    };
+    return Executors.newCachedThreadPool(factory);
+  }
+}
@@ -1,22 +1,54 @@
 package delta.common.framework.objects.data;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
 
 /**
  * Objects manager.
  * Manages all the objects of a class in a single data location.
+ * <p>
+ * A manager can be shared by several threads, provided that its cache
+ * (if any) is thread-safe (see {@link ConcurrentObjectsCache} and
+ * {@link StripedObjectsCache}) and that its connector is thread-safe.
  * @author DAM
  * @param <E> Type of the data objects to manage.
  */
 public class ObjectsManager<E extends Identifiable<Long>>
 {
-  /**
-   * Number of load requests.
-   */
-  public static long _nbGetRequests=0;
-  private ObjectsCache<E> _cache;
-  private ObjectsConnector<E> _driver;
+  private volatile ObjectsCache<E> _cache;
+  private volatile ObjectsConnector<E> _driver;
+  private volatile ConcurrentHashMap<Long,CompletableFuture<E>> _inFlightLoads;
+  private volatile NegativeCache _negativeCache;
+  private volatile OffHeapObjectsStore<E> _secondLevelCache;
+  private volatile Executor _executor;
+  private volatile IdentifiersCache _relationsCache;
+  private volatile RelationsInvalidator<E> _relationsInvalidator;
+  private volatile IdentifiersCache _objectSetsCache;
+  private volatile ObjectsCache<E> _partialsCache;
+  private volatile WriteBehindQueue<E> _writeBehind;
+  private volatile ProxyResolver<E> _proxyResolver;
+  private volatile ProxyInterner<E> _proxyInterner;
+  // Incremented by each write, so that loads concurrent with a write do not
+  // cache stale results (guarded by _writesLock)
+  private final Object _writesLock;
+  private long _writeGeneration;
+  // Statistics
+  private LongAdder _hits;
+  private LongAdder _secondLevelHits;
+  private LongAdder _misses;
+  private LongAdder _loads;
+  private LongAdder _loadFailures;
+  private LongAdder _totalLoadTime;
+  private LatencyHistogram _loadTimes;
 
   /**
    * Constructor.
@@ -25,6 +57,27 @@ public class ObjectsManager<E extends Identifiable<Long>>
   {
     // By default: no cache!
     _cache=null;
+    _writesLock=new Object();
+    _writeGeneration=0;
+    _hits=new LongAdder();
+    _secondLevelHits=new LongAdder();
+    _misses=new LongAdder();
+    _loads=new LongAdder();
+    _loadFailures=new LongAdder();
+    _totalLoadTime=new LongAdder();
+    _loadTimes=new LatencyHistogram();
+  }
+
+  /**
+   * Get a snapshot of the load statistics of this manager.
+   * @return some statistics.
+   */
+  public LoadStats getStats()
+  {
+    ObjectsCache<E> cache=_cache;
+    CacheStats cacheStats=(cache!=null)?cache.getStats():null;
+    return new LoadStats(_hits.sum(),_secondLevelHits.sum(),_misses.sum(),_loads.sum(),
+        _loadFailures.sum(),_totalLoadTime.sum(),_loadTimes.snapshot(),cacheStats);
   }
 
   /**
@@ -41,6 +94,423 @@ public class ObjectsManager<E extends Identifiable<Long>>
     {
       _cache=null;
     }
+    wireSecondLevelCache();
+  }
+
+  /**
+   * Use the given cache.
+   * @param cache Cache to use, or <code>null</code> to disable cache.
+   * @see BoundedObjectsCache
+   * @see ConcurrentObjectsCache
+   */
+  public void useCache(ObjectsCache<E> cache)
+  {
+    _cache=cache;
+    wireSecondLevelCache();
+  }
+
+  /**
+   * Use a cache for partially loaded objects (see {@link #loadPartial(Long)}).
+   * Partial objects are kept apart from full objects: when a full object is requested
+   * and only its partial version is cached, the partial object is completed
+   * (see {@link ObjectsConnector#completePartial(Identifiable)}) and moved to the main cache.
+   * @param partialsCache Cache to use, or <code>null</code> to disable the caching of partial objects.
+   */
+  public void usePartialsCache(ObjectsCache<E> partialsCache)
+  {
+    _partialsCache=partialsCache;
+  }
+
+  /**
+   * Get the cache for partially loaded objects.
+   * @return a cache or <code>null</code>.
+   */
+  public ObjectsCache<E> getPartialsCache()
+  {
+    return _partialsCache;
+  }
+
+  private void removeFromPartialsCache(Long primaryKey)
+  {
+    ObjectsCache<E> partialsCache=_partialsCache;
+    if (partialsCache!=null)
+    {
+      partialsCache.remove(primaryKey);
+    }
+  }
+
+  /**
+   * Use a second-level cache, that stores serialized objects outside of the heap.
+   * Objects evicted from the cache (first level) are put in this store, and objects
+   * missing in the cache are searched in this store before using the connector.
+   * @param store Store to use, or <code>null</code> to disable the second level.
+   */
+  public void useSecondLevelCache(OffHeapObjectsStore<E> store)
+  {
+    _secondLevelCache=store;
+    wireSecondLevelCache();
+  }
+
+  /**
+   * Get the second-level cache.
+   * @return a store or <code>null</code>.
+   */
+  public OffHeapObjectsStore<E> getSecondLevelCache()
+  {
+    return _secondLevelCache;
+  }
+
+  private void wireSecondLevelCache()
+  {
+    ObjectsCache<E> cache=_cache;
+    if (cache==null)
+    {
+      return;
+    }
+    final OffHeapObjectsStore<E> store=_secondLevelCache;
+    if (store!=null)
+    {
+      EvictionListener<E> listener=new EvictionListener<E>()
+      {
+        @Override
+        public void objectEvicted(E object)
+        {
+          store.put(object);
+        }
+      };
+      cache.setEvictionListener(listener);
+    }
+    else
+    {
+      cache.setEvictionListener(null);
+    }
+  }
+
+  /**
+   * Coalesce concurrent loads of the same object or not.
+   * When enabled, concurrent cache misses on the same primary key result
+   * in a single connector call: the other callers wait for its result.
+   * @param coalesceLoads <code>true</code> to coalesce loads.
+   */
+  public void setCoalesceLoads(boolean coalesceLoads)
+  {
+    if (coalesceLoads)
+    {
+      if (_inFlightLoads==null)
+      {
+        _inFlightLoads=new ConcurrentHashMap<Long,CompletableFuture<E>>();
+      }
+    }
+    else
+    {
+      _inFlightLoads=null;
+    }
+  }
+
+  /**
+   * Use a cache for the keys of absent objects.
+   * @param negativeCache Cache to use, or <code>null</code> to disable negative caching.
+   */
+  public void useNegativeCache(NegativeCache negativeCache)
+  {
+    _negativeCache=negativeCache;
+  }
+
+  /**
+   * Get the cache for the keys of absent objects.
+   * @return a negative cache or <code>null</code>.
+   */
+  public NegativeCache getNegativeCache()
+  {
+    return _negativeCache;
+  }
+
+  /**
+   * Use a cache for the primary keys of related objects (see {@link #loadRelation(String, Long)}).
+   * By default, all cached relations are invalidated when an object of the managed class
+   * is created, updated or deleted (see {@link #setRelationsInvalidator(RelationsInvalidator)}).
+   * @param relationsCache Cache to use, or <code>null</code> to disable relations caching.
+   */
+  public void useRelationsCache(IdentifiersCache relationsCache)
+  {
+    _relationsCache=relationsCache;
+  }
+
+  /**
+   * Get the cache for the primary keys of related objects.
+   * @return a cache or <code>null</code>.
+   */
+  public IdentifiersCache getRelationsCache()
+  {
+    return _relationsCache;
+  }
+
+  /**
+   * Set the policy used to invalidate cached relations when objects are written.
+   * @param invalidator Invalidator to use, or <code>null</code> to invalidate all relations.
+   */
+  public void setRelationsInvalidator(RelationsInvalidator<E> invalidator)
+  {
+    _relationsInvalidator=invalidator;
+  }
+
+  /**
+   * Invalidate all the cached entries of a relation.
+   * @param relationName Name of the relation to invalidate.
+   */
+  public void invalidateRelation(String relationName)
+  {
+    IdentifiersCache relationsCache=_relationsCache;
+    if (relationsCache!=null)
+    {
+      relationsCache.removeIf(key -> relationName.equals(((RelationKey)key).getRelationName()));
+    }
+  }
+
+  /**
+   * Invalidate the cached entry of a relation for a root object.
+   * @param relationName Name of the relation to invalidate.
+   * @param primaryKey Primary key of the root object.
+   */
+  public void invalidateRelation(String relationName, Long primaryKey)
+  {
+    IdentifiersCache relationsCache=_relationsCache;
+    if (relationsCache!=null)
+    {
+      relationsCache.remove(new RelationKey(relationName,primaryKey));
+    }
+  }
+
+  /**
+   * Invalidate the cached queries after a series of writes.
+   * @param primaryKeys Primary keys of the written objects.
+   * @param objects Written objects (same order as keys), or <code>null</code> for deletions.
+   */
+  private void invalidateQueries(List<Long> primaryKeys, List<E> objects)
+  {
+    IdentifiersCache objectSetsCache=_objectSetsCache;
+    if (objectSetsCache!=null)
+    {
+      objectSetsCache.clear();
+    }
+    IdentifiersCache relationsCache=_relationsCache;
+    if (relationsCache==null)
+    {
+      return;
+    }
+    RelationsInvalidator<E> invalidator=_relationsInvalidator;
+    if (invalidator!=null)
+    {
+      int nbKeys=primaryKeys.size();
+      for(int i=0;i<nbKeys;i++)
+      {
+        E object=(objects!=null)?objects.get(i):null;
+        invalidator.objectWritten(this,primaryKeys.get(i),object);
+      }
+    }
+    else
+    {
+      relationsCache.clear();
+    }
+  }
+
+  private void invalidateQueries(Long primaryKey, E object)
+  {
+    IdentifiersCache objectSetsCache=_objectSetsCache;
+    if (objectSetsCache!=null)
+    {
+      objectSetsCache.clear();
+    }
+    IdentifiersCache relationsCache=_relationsCache;
+    if (relationsCache==null)
+    {
+      return;
+    }
+    RelationsInvalidator<E> invalidator=_relationsInvalidator;
+    if (invalidator!=null)
+    {
+      invalidator.objectWritten(this,primaryKey,object);
+    }
+    else
+    {
+      relationsCache.clear();
+    }
+  }
+
+  /**
+   * Use a cache for the results of objects set queries (see {@link #loadObjectSet(String, Object[])}).
+   * Results are keyed by set identifier and parameters (compared using deep equality).
+   * All cached results are invalidated when an object of the managed class
+   * is created, updated or deleted. Use a cache with a time to live
+   * (see {@link IdentifiersCache#IdentifiersCache(long, java.util.concurrent.TimeUnit, int)})
+   * if sets also depend on other data.
+   * @param objectSetsCache Cache to use, or <code>null</code> to disable objects sets caching.
+   */
+  public void useObjectSetsCache(IdentifiersCache objectSetsCache)
+  {
+    _objectSetsCache=objectSetsCache;
+  }
+
+  /**
+   * Get the cache for the results of objects set queries.
+   * @return a cache or <code>null</code>.
+   */
+  public IdentifiersCache getObjectSetsCache()
+  {
+    return _objectSetsCache;
+  }
+
+  /**
+   * Invalidate all the cached results of an objects set.
+   * @param setID Identifier of the set to invalidate.
+   */
+  public void invalidateObjectSet(String setID)
+  {
+    IdentifiersCache objectSetsCache=_objectSetsCache;
+    if (objectSetsCache!=null)
+    {
+      objectSetsCache.removeIf(key -> setID.equals(((ObjectSetKey)key).getSetID()));
+    }
+  }
+
+  /**
+   * Enable write-behind: creations, updates and deletions are queued and coalesced
+   * per primary key, then applied to the connector in batches.
+   * <p>
+   * The caches are updated immediately. Loads of objects with pending writes are served
+   * from the queue; queries (all objects, relations, sets) flush pending writes first.
+   * Objects without primary key are written through, after a flush of pending writes.
+   * @param maxPendingWrites Number of pending writes that triggers a flush.
+   * @param maxDelay Maximum delay before pending writes are flushed (zero or negative for no delay).
+   * @param unit Unit of delay.
+   * @param listener Listener for durability and errors, or <code>null</code>.
+   */
+  public void useWriteBehind(int maxPendingWrites, long maxDelay, TimeUnit unit, WriteBehindListener<E> listener)
+  {
+    WriteBehindQueue<E> old=_writeBehind;
+    _writeBehind=new WriteBehindQueue<E>(this,maxPendingWrites,maxDelay,unit,listener);
+    if (old!=null)
+    {
+      old.close();
+    }
+  }
+
+  /**
+   * Disable write-behind. Pending writes are flushed.
+   */
+  public void disableWriteBehind()
+  {
+    WriteBehindQueue<E> old=_writeBehind;
+    _writeBehind=null;
+    if (old!=null)
+    {
+      old.close();
+    }
+  }
+
+  /**
+   * Get the number of pending writes (write-behind mode).
+   * @return a number of writes.
+   */
+  public int getPendingWritesCount()
+  {
+    WriteBehindQueue<E> writeBehind=_writeBehind;
+    return (writeBehind!=null)?writeBehind.size():0;
+  }
+
+  /**
+   * Apply pending writes (write-behind mode).
+   */
+  public void flush()
+  {
+    WriteBehindQueue<E> writeBehind=_writeBehind;
+    if (writeBehind!=null)
+    {
+      writeBehind.flush();
+    }
+  }
+
+  /**
+   * Close this manager: pending writes are flushed.
+   */
+  public void close()
+  {
+    disableWriteBehind();
+  }
+
+  private boolean writeBehind(WriteOperation.Type type, Long primaryKey, E object)
+  {
+    WriteBehindQueue<E> writeBehind=_writeBehind;
+    if (writeBehind==null)
+    {
+      return false;
+    }
+    if (primaryKey==null)
+    {
+      // Write through, after the pending writes
+      writeBehind.flush();
+      return false;
+    }
+    return writeBehind.enqueue(new WriteOperation<E>(type,primaryKey,object));
+  }
+
+  /**
+   * Called when a pending write could not be applied.
+   * @param primaryKey Primary key of the written object.
+   */
+  void writeBehindFailed(Long primaryKey)
+  {
+    removeFromCaches(primaryKey);
+    invalidateQueries(primaryKey,null);
+    resetProxy(primaryKey);
+  }
+
+  private void removeFromCaches(Long primaryKey)
+  {
+    synchronized (_writesLock)
+    {
+      _writeGeneration++;
+      ObjectsCache<E> cache=_cache;
+      if (cache!=null)
+      {
+        cache.remove(primaryKey);
+      }
+      removeFromSecondLevelCache(primaryKey);
+      removeFromPartialsCache(primaryKey);
+      NegativeCache negativeCache=_negativeCache;
+      if (negativeCache!=null)
+      {
+        negativeCache.remove(primaryKey);
+      }
+    }
+  }
+
+  private long getWriteGeneration()
+  {
+    synchronized (_writesLock)
+    {
+      return _writeGeneration;
+    }
+  }
+
+  /**
+   * Set the executor for asynchronous operations.
+   * @param executor Executor to use, or <code>null</code> to use the default one
+   * (see {@link ObjectsExecutors#getDefaultExecutor()}).
+   */
+  public void setExecutor(Executor executor)
+  {
+    _executor=executor;
+  }
+
+  /**
+   * Get the executor for asynchronous operations.
+   * @return an executor.
+   */
+  public Executor getExecutor()
+  {
+    Executor executor=_executor;
+    return (executor!=null)?executor:ObjectsExecutors.getDefaultExecutor();
   }
 
   /**
@@ -61,108 +531,738 @@ public class ObjectsManager<E extends Identifiable<Long>>
     return _driver;
   }
 
-  /**
-   * Set driver.
-   * @param driver Driver to use to create/read/update/delete objects.
-   */
-  public void setDriver(ObjectsConnector<E> driver)
+  /**
+   * Set driver.
+   * @param driver Driver to use to create/read/update/delete objects.
+   */
+  public void setDriver(ObjectsConnector<E> driver)
+  {
+    _driver=driver;
+  }
+
+  /**
+   * Build a proxy for an object of this source.
+   * @param key Identifier for the proxied object.
+   * @return A proxy.
+   */
+  public DataProxy<E> buildProxy(Long key)
+  {
+    ProxyInterner<E> proxyInterner=_proxyInterner;
+    if ((proxyInterner==null) || (key==null))
+    {
+      return newProxy(key);
+    }
+    synchronized (proxyInterner)
+    {
+      DataProxy<E> proxy=proxyInterner.get(key);
+      if (proxy==null)
+      {
+        proxy=newProxy(key);
+        proxyInterner.put(proxy);
+      }
+      return proxy;
+    }
+  }
+
+  private DataProxy<E> newProxy(Long key)
+  {
+    DataProxy<E> proxy=new DataProxy<E>(key,this);
+    ProxyResolver<E> proxyResolver=_proxyResolver;
+    if (proxyResolver!=null)
+    {
+      proxyResolver.register(proxy);
+    }
+    return proxy;
+  }
+
+  /**
+   * Share proxies or not.
+   * When enabled, {@link #buildProxy(Long)} returns the same proxy for a primary key,
+   * as long as this proxy is used. Shared proxies are reset when their object is written.
+   * @param internProxies <code>true</code> to share proxies.
+   */
+  public void setInternProxies(boolean internProxies)
+  {
+    _proxyInterner=internProxies?new ProxyInterner<E>():null;
+  }
+
+  private void resetProxy(Long primaryKey)
+  {
+    ProxyInterner<E> proxyInterner=_proxyInterner;
+    if ((proxyInterner!=null) && (primaryKey!=null))
+    {
+      DataProxy<E> proxy=proxyInterner.get(primaryKey);
+      if (proxy!=null)
+      {
+        proxy.reset();
+      }
+    }
+  }
+
+  /**
+   * Resolve proxies by batches or not.
+   * When enabled, the proxies built by this manager are recorded, and the first
+   * dereference of one of them loads all the recorded proxies at once.
+   * @param maxBatchSize Maximum number of recorded proxies (zero or negative to disable).
+   */
+  public void setBatchProxyResolution(int maxBatchSize)
+  {
+    _proxyResolver=(maxBatchSize>0)?new ProxyResolver<E>(this,maxBatchSize):null;
+  }
+
+  /**
+   * Load the object of a proxy.
+   * @param proxy Proxy to use.
+   * @return The proxied object or <code>null</code> if not found.
+   */
+  E resolveProxy(DataProxy<E> proxy)
+  {
+    ProxyResolver<E> proxyResolver=_proxyResolver;
+    if (proxyResolver!=null)
+    {
+      return proxyResolver.resolve(proxy);
+    }
+    return load(proxy.getPrimaryKey());
+  }
+
+  /**
+   * Load the objects of the given proxies, using a single batched load.
+   * @param proxies Proxies to resolve.
+   */
+  public void resolveAll(Collection<DataProxy<E>> proxies)
+  {
+    ProxyResolver<E> proxyResolver=_proxyResolver;
+    if (proxyResolver==null)
+    {
+      proxyResolver=new ProxyResolver<E>(this,0);
+    }
+    proxyResolver.resolveAll(proxies);
+  }
+
+  /**
+   * Create an object in the managed persistence system.
+   * @param object Object to create.
+   */
+  public void create(E object)
+  {
+    if (!writeBehind(WriteOperation.Type.CREATE,object.getPrimaryKey(),object))
+    {
+      _driver.create(object);
+    }
+    objectWritten(object);
+  }
+
+  /**
+   * Update an object in the managed persistence system.
+   * @param object Object to update.
+   */
+  public void update(E object)
+  {
+    if (!writeBehind(WriteOperation.Type.UPDATE,object.getPrimaryKey(),object))
+    {
+      _driver.update(object);
+    }
+    objectWritten(object);
+  }
+
+  /**
+   * Delete an object in the managed persistence system.
+   * @param primaryKey Primary of the object to delete.
+   */
+  public void delete(Long primaryKey)
+  {
+    if (!writeBehind(WriteOperation.Type.DELETE,primaryKey,null))
+    {
+      _driver.delete(primaryKey);
+    }
+    objectDeleted(primaryKey);
+  }
+
+  /**
+   * Create a series of objects in the managed persistence system, at once if the driver supports it.
+   * In write-behind mode, pending writes are flushed first, then objects are written through.
+   * Caches are updated once all the objects are written.
+   * @param objects Objects to create.
+   */
+  public void createAll(List<E> objects)
+  {
+    if (objects.isEmpty())
+    {
+      return;
+    }
+    flushBeforeBulkWrite();
+    try
+    {
+      _driver.createAll(objects);
+    }
+    catch(RuntimeException e)
+    {
+      bulkWriteFailed(getPrimaryKeys(objects));
+      throw e;
+    }
+    objectsWritten(objects);
+  }
+
+  /**
+   * Update a series of objects in the managed persistence system, at once if the driver supports it.
+   * In write-behind mode, pending writes are flushed first, then objects are written through.
+   * Caches are updated once all the objects are written.
+   * @param objects Objects to update.
+   */
+  public void updateAll(List<E> objects)
+  {
+    if (objects.isEmpty())
+    {
+      return;
+    }
+    flushBeforeBulkWrite();
+    try
+    {
+      _driver.updateAll(objects);
+    }
+    catch(RuntimeException e)
+    {
+      bulkWriteFailed(getPrimaryKeys(objects));
+      throw e;
+    }
+    objectsWritten(objects);
+  }
+
+  /**
+   * Delete a series of objects in the managed persistence system, at once if the driver supports it.
+   * In write-behind mode, pending writes are flushed first, then objects are deleted.
+   * Caches are updated once all the objects are deleted.
+   * @param primaryKeys Primary keys of the objects to delete.
+   */
+  public void deleteAll(List<Long> primaryKeys)
+  {
+    if (primaryKeys.isEmpty())
+    {
+      return;
+    }
+    flushBeforeBulkWrite();
+    try
+    {
+      _driver.deleteAll(primaryKeys);
+    }
+    catch(RuntimeException e)
+    {
+      bulkWriteFailed(primaryKeys);
+      throw e;
+    }
+    objectsDeleted(primaryKeys);
+  }
+
+  private void flushBeforeBulkWrite()
+  {
+    WriteBehindQueue<E> writeBehind=_writeBehind;
+    if (writeBehind!=null)
+    {
+      writeBehind.flush();
+    }
+  }
+
+  private List<Long> getPrimaryKeys(List<E> objects)
+  {
+    List<Long> ret=new ArrayList<Long>(objects.size());
+    for(E object : objects)
+    {
+      ret.add(object.getPrimaryKey());
+    }
+    return ret;
+  }
+
+  /**
+   * Called when a bulk write failed: some objects may have been written,
+   * so they are all removed from caches.
+   * @param primaryKeys Primary keys of the written objects.
+   */
+  private void bulkWriteFailed(List<Long> primaryKeys)
+  {
+    for(Long primaryKey : primaryKeys)
+    {
+      if (primaryKey!=null)
+      {
+        removeFromCaches(primaryKey);
+        resetProxy(primaryKey);
+      }
+    }
+    invalidateQueries(primaryKeys,null);
+  }
+
+  /**
+   * Update caches after an object was created or updated.
+   * @param object Written object.
+   */
+  void objectWritten(E object)
+  {
+    synchronized (_writesLock)
+    {
+      _writeGeneration++;
+      ObjectsCache<E> cache=_cache;
+      if (cache!=null)
+      {
+        cache.put(object);
+      }
+      removeFromSecondLevelCache(object.getPrimaryKey());
+      removeFromPartialsCache(object.getPrimaryKey());
+      NegativeCache negativeCache=_negativeCache;
+      if (negativeCache!=null)
+      {
+        negativeCache.remove(object.getPrimaryKey());
+      }
+    }
+    invalidateQueries(object.getPrimaryKey(),object);
+    resetProxy(object.getPrimaryKey());
+  }
+
+  /**
+   * Update caches after a series of objects were created or updated.
+   * Queries are invalidated once for all the objects.
+   * @param objects Written objects.
+   */
+  void objectsWritten(List<E> objects)
+  {
+    ObjectsCache<E> cache=_cache;
+    NegativeCache negativeCache=_negativeCache;
+    synchronized (_writesLock)
+    {
+      _writeGeneration++;
+      for(E object : objects)
+      {
+        Long primaryKey=object.getPrimaryKey();
+        if (cache!=null)
+        {
+          cache.put(object);
+        }
+        removeFromSecondLevelCache(primaryKey);
+        removeFromPartialsCache(primaryKey);
+        if (negativeCache!=null)
+        {
+          negativeCache.remove(primaryKey);
+        }
+      }
+    }
+    for(E object : objects)
+    {
+      resetProxy(object.getPrimaryKey());
+    }
+    invalidateQueries(getPrimaryKeys(objects),objects);
+  }
+
+  /**
+   * Update caches after a series of objects were deleted.
+   * Queries are invalidated once for all the objects.
+   * @param primaryKeys Primary keys of the deleted objects.
+   */
+  void objectsDeleted(List<Long> primaryKeys)
+  {
+    ObjectsCache<E> cache=_cache;
+    NegativeCache negativeCache=_negativeCache;
+    synchronized (_writesLock)
+    {
+      _writeGeneration++;
+      for(Long primaryKey : primaryKeys)
+      {
+        if (cache!=null)
+        {
+          cache.remove(primaryKey);
+        }
+        removeFromSecondLevelCache(primaryKey);
+        removeFromPartialsCache(primaryKey);
+        if (negativeCache!=null)
+        {
+          negativeCache.markAbsent(primaryKey);
+        }
+      }
+    }
+    for(Long primaryKey : primaryKeys)
+    {
+      resetProxy(primaryKey);
+    }
+    invalidateQueries(primaryKeys,null);
+  }
+
+  /**
+   * Update caches after an object was deleted.
+   * @param primaryKey Primary key of the deleted object.
+   */
+  void objectDeleted(Long primaryKey)
+  {
+    synchronized (_writesLock)
+    {
+      _writeGeneration++;
+      ObjectsCache<E> cache=_cache;
+      if (cache!=null)
+      {
+        cache.remove(primaryKey);
+      }
+      removeFromSecondLevelCache(primaryKey);
+      removeFromPartialsCache(primaryKey);
+      NegativeCache negativeCache=_negativeCache;
+      if (negativeCache!=null)
+      {
+        negativeCache.markAbsent(primaryKey);
+      }
+    }
+    invalidateQueries(primaryKey,null);
+    resetProxy(primaryKey);
+  }
+
+  /**
+   * Load an object (from cache or from the managed persistence system).
+   * @param primaryKey Identifying key for the targeted object.
+   * @return The loaded object or <code>null</code> if not found.
+   */
+  public E load(Long primaryKey)
+  {
+    E ret=null;
+    ObjectsCache<E> cache=_cache;
+    if (cache!=null)
+    {
+      ret=cache.get(primaryKey);
+    }
+    if (ret!=null)
+    {
+      _hits.increment();
+    }
+    else
+    {
+      _misses.increment();
+      ret=loadMissing(primaryKey);
+    }
+    return ret;
+  }
+
+  /**
+   * Load an object (from cache or from the managed persistence system),
+   * using a primitive key. The key is boxed only if the object is not cached.
+   * @param primaryKey Identifying key for the targeted object.
+   * @return The loaded object or <code>null</code> if not found.
+   */
+  public E load(long primaryKey)
+  {
+    E ret=null;
+    ObjectsCache<E> cache=_cache;
+    if (cache!=null)
+    {
+      ret=cache.get(primaryKey);
+    }
+    if (ret!=null)
+    {
+      _hits.increment();
+    }
+    else
+    {
+      _misses.increment();
+      ret=loadMissing(Long.valueOf(primaryKey));
+    }
+    return ret;
+  }
+
+  private void removeFromSecondLevelCache(Long primaryKey)
   {
-    _driver=driver;
+    OffHeapObjectsStore<E> store=_secondLevelCache;
+    if ((store!=null) && (primaryKey!=null))
+    {
+      store.remove(primaryKey.longValue());
+    }
   }
 
-  /**
-   * Build a proxy for an object of this source.
-   * @param key Identifier for the proxied object.
-   * @return A proxy.
-   */
-  public DataProxy<E> buildProxy(Long key)
+  private E loadMissing(Long primaryKey)
   {
-    return new DataProxy<E>(key,this);
+    E ret=(primaryKey!=null)?loadFromSecondLevelCache(primaryKey.longValue()):null;
+    if (ret==null)
+    {
+      ret=loadFromDriver(primaryKey);
+    }
+    return ret;
   }
 
-  /**
-   * Create an object in the managed persistence system.
-   * @param object Object to create.
-   */
-  public void create(E object)
+  private E loadFromSecondLevelCache(long primaryKey)
   {
-    _driver.create(object);
-    if (_cache!=null)
+    E ret=null;
+    OffHeapObjectsStore<E> store=_secondLevelCache;
+    if (store!=null)
     {
-      _cache.put(object);
+      long generation=getWriteGeneration();
+      ret=store.get(primaryKey);
+      if (ret!=null)
+      {
+        _secondLevelHits.increment();
+        ObjectsCache<E> cache=_cache;
+        if (cache!=null)
+        {
+          synchronized (_writesLock)
+          {
+            if (generation==_writeGeneration)
+            {
+              // Move the object back to the first level
+              store.remove(primaryKey);
+              cache.put(ret);
+              ObjectsCache<E> partialsCache=_partialsCache;
+              if (partialsCache!=null)
+              {
+                partialsCache.remove(primaryKey);
+              }
+            }
+          }
+        }
+      }
     }
+    return ret;
   }
 
-  /**
-   * Update an object in the managed persistence system.
-   * @param object Object to update.
-   */
-  public void update(E object)
+  private E loadFromDriver(Long primaryKey)
   {
-    _driver.update(object);
-    if (_cache!=null)
+    ObjectsConnector<E> driver=_driver;
+    if (driver==null)
+    {
+      return null;
+    }
+    // Read before pending writes are checked: writes are queued before the generation changes
+    long generation=getWriteGeneration();
+    WriteBehindQueue<E> writeBehind=_writeBehind;
+    if (writeBehind!=null)
+    {
+      WriteOperation<E> pendingWrite=writeBehind.getPendingWrite(primaryKey);
+      if (pendingWrite!=null)
+      {
+        return pendingWrite.getObject();
+      }
+    }
+    NegativeCache negativeCache=_negativeCache;
+    if ((negativeCache!=null) && (negativeCache.isAbsent(primaryKey)))
+    {
+      return null;
+    }
+    ConcurrentHashMap<Long,CompletableFuture<E>> inFlightLoads=_inFlightLoads;
+    if ((inFlightLoads==null) || (primaryKey==null))
+    {
+      return loadFromDriver(driver,primaryKey,generation);
+    }
+    CompletableFuture<E> future=new CompletableFuture<E>();
+    CompletableFuture<E> pending=inFlightLoads.putIfAbsent(primaryKey,future);
+    if (pending!=null)
+    {
+      return waitForLoad(pending);
+    }
+    try
+    {
+      // The object may have been loaded and cached by a load that ended
+      // between our cache miss and the registration of our future
+      E ret=null;
+      ObjectsCache<E> cache=_cache;
+      if (cache!=null)
+      {
+        ret=cache.get(primaryKey);
+      }
+      if (ret==null)
+      {
+        ret=loadFromDriver(driver,primaryKey,generation);
+      }
+      future.complete(ret);
+      return ret;
+    }
+    catch(RuntimeException|Error e)
+    {
+      future.completeExceptionally(e);
+      throw e;
+    }
+    finally
     {
-      _cache.put(object);
+      inFlightLoads.remove(primaryKey,future);
     }
   }
 
-  /**
-   * Delete an object in the managed persistence system.
-   * @param primaryKey Primary of the object to delete.
-   */
-  public void delete(Long primaryKey)
+  private E loadFromDriver(ObjectsConnector<E> driver, Long primaryKey, long generation)
   {
-    _driver.delete(primaryKey);
-    if (_cache!=null)
+    E ret=null;
+    ObjectsCache<E> partialsCache=_partialsCache;
+    E partial=((partialsCache!=null) && (primaryKey!=null))?partialsCache.get(primaryKey):null;
+    long start=System.nanoTime();
+    try
+    {
+      if (partial!=null)
+      {
+        // Upgrade the cached partial object
+        ret=driver.completePartial(partial);
+      }
+      else
+      {
+        ret=driver.getByPrimaryKey(primaryKey);
+      }
+    }
+    catch(RuntimeException e)
+    {
+      _loadFailures.increment();
+      throw e;
+    }
+    finally
+    {
+      recordLoad(start);
+    }
+    synchronized (_writesLock)
     {
-      _cache.remove(primaryKey);
+      // Results loaded concurrently with a write may be stale: not cached
+      if (generation!=_writeGeneration)
+      {
+        return ret;
+      }
+      if (partial!=null)
+      {
+        partialsCache.remove(primaryKey);
+      }
+      if (ret!=null)
+      {
+        ObjectsCache<E> cache=_cache;
+        if (cache!=null)
+        {
+          cache.put(ret);
+        }
+      }
+      else
+      {
+        NegativeCache negativeCache=_negativeCache;
+        if (negativeCache!=null)
+        {
+          negativeCache.markAbsent(primaryKey);
+        }
+      }
     }
+    return ret;
   }
 
   /**
-   * Load an object (from cache or from the managed persistence system).
-   * @param primaryKey Identifying key for the targeted object.
-   * @return The loaded object or <code>null</code> if not found.
+   * Reload an object and update the caches (used by the refresh-ahead of {@link ExpiringObjectsCache}).
+   * Nothing is done if the object has a pending write, or if it is written during the reload.
+   * @param primaryKey Primary key of the object to reload.
+   * @return <code>true</code> if the object was reloaded, <code>false</code> if the reload was skipped.
    */
-  public E load(Long primaryKey)
+  boolean refresh(Long primaryKey)
   {
-    E ret=null;
-    if (_cache!=null)
+    ObjectsConnector<E> driver=_driver;
+    if ((driver==null) || (primaryKey==null))
     {
-      ret=_cache.get(primaryKey);
+      return false;
     }
-    if (ret==null)
+    long generation=getWriteGeneration();
+    WriteBehindQueue<E> writeBehind=_writeBehind;
+    if ((writeBehind!=null) && (writeBehind.getPendingWrite(primaryKey)!=null))
+    {
+      return false;
+    }
+    E object=null;
+    long start=System.nanoTime();
+    try
+    {
+      object=driver.getByPrimaryKey(primaryKey);
+    }
+    catch(RuntimeException e)
+    {
+      _loadFailures.increment();
+      throw e;
+    }
+    finally
     {
-      if(_driver!=null)
+      recordLoad(start);
+    }
+    synchronized (_writesLock)
+    {
+      if (generation!=_writeGeneration)
+      {
+        return false;
+      }
+      ObjectsCache<E> cache=_cache;
+      if (object!=null)
+      {
+        if (cache!=null)
+        {
+          cache.put(object);
+        }
+      }
+      else
       {
-        ret=_driver.getByPrimaryKey(primaryKey);
-        _nbGetRequests++;
-        if ((ret!=null) && (_cache!=null))
+        if (cache!=null)
         {
-          _cache.put(ret);
+          cache.remove(primaryKey);
+        }
+        NegativeCache negativeCache=_negativeCache;
+        if (negativeCache!=null)
+        {
+          negativeCache.markAbsent(primaryKey);
         }
       }
     }
-    else
+    return true;
+  }
+
+  private void recordLoad(long start)
+  {
+    long duration=System.nanoTime()-start;
+    _loads.increment();
+    _totalLoadTime.add(duration);
+    _loadTimes.record(duration);
+  }
+
+  private E waitForLoad(CompletableFuture<E> pending)
+  {
+    try
     {
-      //System.out.println("Cache hit for : "+ret);
+      return pending.join();
+    }
+    catch(CompletionException ce)
+    {
+      Throwable cause=ce.getCause();
+      if (cause instanceof RuntimeException)
+      {
+        throw (RuntimeException)cause;
+      }
+      if (cause instanceof Error)
+      {
+        throw (Error)cause;
+      }
+      throw ce;
     }
-    return ret;
   }
 
   /**
    * Partially load an object from the managed persistence system
    * (that is: only load the main attributes of the object, and not
    * other fields or aggregated objects).
+   * The full object is returned if it is cached.
    * @param primaryKey Identifying key for the targeted object.
    * @return The loaded object or <code>null</code> if not found.
    */
   public E loadPartial(Long primaryKey)
   {
     E ret=null;
-    if(_driver!=null)
+    ObjectsConnector<E> driver=_driver;
+    if(driver!=null)
     {
-      ret=_driver.getPartialByPrimaryKey(primaryKey);
+      ObjectsCache<E> cache=_cache;
+      if (cache!=null)
+      {
+        ret=cache.get(primaryKey);
+      }
+      if (ret!=null)
+      {
+        return ret;
+      }
+      ObjectsCache<E> partialsCache=_partialsCache;
+      if (partialsCache!=null)
+      {
+        ret=partialsCache.get(primaryKey);
+        if (ret!=null)
+        {
+          return ret;
+        }
+      }
+      ret=driver.getPartialByPrimaryKey(primaryKey);
+      if ((ret!=null) && (partialsCache!=null))
+      {
+        partialsCache.put(ret);
+      }
     }
     return ret;
   }
@@ -176,16 +1276,40 @@ public class ObjectsManager<E extends Identifiable<Long>>
   	List<E> ret=new ArrayList<E>();
   	if(_driver!=null)
     {
+  	  flush();
   	  ret=_driver.getAll();
       if (_cache!=null)
       {
         _cache.putAll(ret);
-        //System.out.println("Cache/loadAll : "+_driver.getClass().getName());
       }
     }
   	return ret;
   }
 
+  /**
+   * Get a stream on all the objects of the managed class, without loading them all in memory.
+   * The returned stream shall be closed after use.
+   * @param populateCache <code>true</code> to put the streamed objects in the cache (if any),
+   * <code>false</code> to leave the cache untouched.
+   * @return a stream of such objects.
+   */
+  public Stream<E> streamAll(boolean populateCache)
+  {
+    ObjectsConnector<E> driver=_driver;
+    if (driver==null)
+    {
+      return Stream.empty();
+    }
+    flush();
+    Stream<E> ret=driver.streamAll();
+    final ObjectsCache<E> cache=_cache;
+    if ((populateCache) && (cache!=null))
+    {
+      ret=ret.peek(object -> cache.put(object));
+    }
+    return ret;
+  }
+
   /**
    * Get the objects that belong to the designated set, using the given parameters
    * (the number and types of the parameters depend on the nature of the designated
@@ -197,42 +1321,190 @@ public class ObjectsManager<E extends Identifiable<Long>>
   public List<E> loadObjectSet(String setID, Object[] parameters)
   {
   	List<E> ret=null;
-    if(_driver!=null)
+    ObjectsConnector<E> driver=_driver;
+    if(driver!=null)
     {
-      List<Long> ids=_driver.getObjectIDsSet(setID, parameters);
+      List<Long> ids=getObjectIDsSet(driver,setID,parameters);
       ret=loadAll(ids);
     }
     return ret;
   }
 
+  private List<Long> getObjectIDsSet(ObjectsConnector<E> driver, String setID, Object[] parameters)
+  {
+    IdentifiersCache objectSetsCache=_objectSetsCache;
+    if (objectSetsCache==null)
+    {
+      flush();
+      return driver.getObjectIDsSet(setID,parameters);
+    }
+    ObjectSetKey key=new ObjectSetKey(setID,parameters);
+    List<Long> ids=objectSetsCache.get(key);
+    if (ids==null)
+    {
+      flush();
+      long generation=objectSetsCache.getGeneration();
+      ids=driver.getObjectIDsSet(setID,parameters);
+      if (ids!=null)
+      {
+        ids=objectSetsCache.put(key,ids,generation);
+      }
+    }
+    return ids;
+  }
+
   /**
    * Get a series of objects of the managed class, designated by their primary key.
+   * Objects that are not cached are fetched using a single connector call
+   * (see {@link ObjectsConnector#getByPrimaryKeys(long[])}).
    * @param primaryKeys Primary keys of the objects to get.
-   * @return a list of these objects.
+   * @return a list of these objects, in the order of the given keys.
+   * @throws IllegalArgumentException if a key is <code>null</code>.
    */
   public List<E> loadAll(List<Long> primaryKeys)
   {
-  	List<E> ret=new ArrayList<E>();
-  	if(_driver!=null)
+    return loadAll(ObjectsConnector.toPrimaryKeyValues(primaryKeys));
+  }
+
+  /**
+   * Get a series of objects of the managed class, designated by their primary key.
+   * Keys are not boxed, except for the keys of the objects that are not cached.
+   * Objects that are not cached are fetched using a single connector call
+   * (see {@link ObjectsConnector#getByPrimaryKeys(long[])}).
+   * @param primaryKeys Primary keys of the objects to get.
+   * @return a list of these objects, in the order of the given keys.
+   */
+  public List<E> loadAll(long[] primaryKeys)
+  {
+    List<E> ret=new ArrayList<E>();
+    ObjectsConnector<E> driver=_driver;
+    if(driver==null)
     {
-      int nb=primaryKeys.size();
-      E o=null;
-      Long id;
+      return ret;
+    }
+    ObjectsCache<E> cache=_cache;
+    NegativeCache negativeCache=_negativeCache;
+    WriteBehindQueue<E> writeBehind=_writeBehind;
+    // Read before pending writes are checked: writes are queued before the generation changes
+    long generation=getWriteGeneration();
+    int nb=primaryKeys.length;
+    Object[] objects=new Object[nb];
+    long[] missingKeys=new long[nb];
+    int nbMissingKeys=0;
+    LongHashMap<Boolean> requestedKeys=null;
+    for(int i=0;i<nb;i++)
+    {
+      long id=primaryKeys[i];
+      E o=(cache!=null)?cache.get(id):null;
+      if (o!=null)
+      {
+        _hits.increment();
+      }
+      else
+      {
+        _misses.increment();
+        o=loadFromSecondLevelCache(id);
+        if (o==null)
+        {
+          WriteOperation<E> pendingWrite=(writeBehind!=null)?writeBehind.getPendingWrite(Long.valueOf(id)):null;
+          if (pendingWrite!=null)
+          {
+            o=pendingWrite.getObject();
+          }
+          else if ((negativeCache==null) || (!negativeCache.isAbsent(Long.valueOf(id))))
+          {
+            if (requestedKeys==null)
+            {
+              requestedKeys=new LongHashMap<Boolean>();
+            }
+            if (requestedKeys.put(id,Boolean.TRUE)==null)
+            {
+              missingKeys[nbMissingKeys++]=id;
+            }
+          }
+        }
+      }
+      objects[i]=o;
+    }
+    if (nbMissingKeys>0)
+    {
+      LongHashMap<E> loadedObjects=loadFromDriver(driver,Arrays.copyOf(missingKeys,nbMissingKeys),generation);
       for(int i=0;i<nb;i++)
       {
-        id=primaryKeys.get(i);
-        o=load(id);
-        if(o!=null)
+        if (objects[i]==null)
         {
-          ret.add(o);
+          objects[i]=loadedObjects.get(primaryKeys[i]);
         }
       }
     }
-    if (_cache!=null)
+    for(int i=0;i<nb;i++)
     {
-      _cache.putAll(ret);
+      @SuppressWarnings("unchecked")
+      E o=(E)objects[i];
+      if (o!=null)
+      {
+        ret.add(o);
+      }
     }
-  	return ret;
+    return ret;
+  }
+
+  private LongHashMap<E> loadFromDriver(ObjectsConnector<E> driver, long[] primaryKeys, long generation)
+  {
+    List<E> objects=null;
+    long start=System.nanoTime();
+    try
+    {
+      objects=driver.getByPrimaryKeys(primaryKeys);
+    }
+    catch(RuntimeException e)
+    {
+      _loadFailures.increment();
+      throw e;
+    }
+    finally
+    {
+      recordLoad(start);
+    }
+    LongHashMap<E> ret=new LongHashMap<E>();
+    for(E object : objects)
+    {
+      ret.put(LongIdentifiable.getPrimaryKeyValue(object),object);
+    }
+    synchronized (_writesLock)
+    {
+      // Results loaded concurrently with a write may be stale: not cached
+      if (generation!=_writeGeneration)
+      {
+        return ret;
+      }
+      ObjectsCache<E> cache=_cache;
+      ObjectsCache<E> partialsCache=_partialsCache;
+      for(E object : objects)
+      {
+        if (cache!=null)
+        {
+          cache.put(object);
+        }
+        if (partialsCache!=null)
+        {
+          partialsCache.remove(object.getPrimaryKey());
+        }
+      }
+      // The load succeeded: missing keys are really absent
+      NegativeCache negativeCache=_negativeCache;
+      if (negativeCache!=null)
+      {
+        for(long primaryKey : primaryKeys)
+        {
+          if (ret.get(primaryKey)==null)
+          {
+            negativeCache.markAbsent(Long.valueOf(primaryKey));
+          }
+        }
+      }
+    }
+    return ret;
   }
 
   /**
@@ -250,7 +1522,7 @@ public class ObjectsManager<E extends Identifiable<Long>>
       E o=null;
       for(int i=0;i<nb;i++)
       {
-        o=_driver.getPartialByPrimaryKey(primaryKeys.get(i));
+        o=loadPartial(primaryKeys.get(i));
         if(o!=null)
         {
           ret.add(o);
@@ -270,14 +1542,38 @@ public class ObjectsManager<E extends Identifiable<Long>>
   public List<E> loadRelation(String relationName, Long primaryKey)
   {
   	List<E> ret=null;
-    if(_driver!=null)
+    ObjectsConnector<E> driver=_driver;
+    if(driver!=null)
     {
-      List<Long> ids=_driver.getRelatedObjectIDs(relationName, primaryKey);
+      List<Long> ids=getRelatedObjectIDs(driver,relationName,primaryKey);
       ret=loadAll(ids);
     }
     return ret;
   }
 
+  private List<Long> getRelatedObjectIDs(ObjectsConnector<E> driver, String relationName, Long primaryKey)
+  {
+    IdentifiersCache relationsCache=_relationsCache;
+    if (relationsCache==null)
+    {
+      flush();
+      return driver.getRelatedObjectIDs(relationName,primaryKey);
+    }
+    RelationKey key=new RelationKey(relationName,primaryKey);
+    List<Long> ids=relationsCache.get(key);
+    if (ids==null)
+    {
+      flush();
+      long generation=relationsCache.getGeneration();
+      ids=driver.getRelatedObjectIDs(relationName,primaryKey);
+      if (ids!=null)
+      {
+        ids=relationsCache.put(key,ids,generation);
+      }
+    }
+    return ids;
+  }
+
   /**
    * Get the objects related to object whose primary
    * key is <code>primaryKey</code> using the designated relation.
@@ -289,11 +1585,64 @@ public class ObjectsManager<E extends Identifiable<Long>>
   public List<E> loadRelationUsingPartials(String relationName, Long primaryKey)
   {
     List<E> ret=null;
-    if(_driver!=null)
+    ObjectsConnector<E> driver=_driver;
+    if(driver!=null)
     {
-      List<Long> ids=_driver.getRelatedObjectIDs(relationName, primaryKey);
+      List<Long> ids=getRelatedObjectIDs(driver,relationName,primaryKey);
       ret=loadAllUsingPartials(ids);
     }
     return ret;
   }
+
+  /**
+   * Load an object asynchronously (see {@link #load(Long)}).
+   * @param primaryKey Identifying key for the targeted object.
+   * @return A future for the loaded object or <code>null</code> if not found.
+   */
+  public CompletableFuture<E> loadAsync(Long primaryKey)
+  {
+    return CompletableFuture.supplyAsync(() -> load(primaryKey),getExecutor());
+  }
+
+  /**
+   * Get all the objects of the managed class asynchronously (see {@link #loadAll()}).
+   * @return A future for a list of such objects.
+   */
+  public CompletableFuture<List<E>> loadAllAsync()
+  {
+    return CompletableFuture.supplyAsync(() -> loadAll(),getExecutor());
+  }
+
+  /**
+   * Get a series of objects of the managed class asynchronously (see {@link #loadAll(List)}).
+   * @param primaryKeys Primary keys of the objects to get.
+   * @return A future for a list of these objects.
+   */
+  public CompletableFuture<List<E>> loadAllAsync(List<Long> primaryKeys)
+  {
+    return CompletableFuture.supplyAsync(() -> loadAll(primaryKeys),getExecutor());
+  }
+
+  /**
+   * Get the objects related to an object asynchronously (see {@link #loadRelation(String, Long)}).
+   * @param relationName Name of the relation to use.
+   * @param primaryKey Primary key of the root object.
+   * @return A future for a list of such objects.
+   */
+  public CompletableFuture<List<E>> loadRelationAsync(String relationName, Long primaryKey)
+  {
+    return CompletableFuture.supplyAsync(() -> loadRelation(relationName,primaryKey),getExecutor());
+  }
+
+  /**
+   * Get the objects that belong to the designated set asynchronously
+   * (see {@link #loadObjectSet(String, Object[])}).
+   * @param setID Name of the set to use.
+   * @param parameters Parameters for this set.
+   * @return A future for a list of such objects.
+   */
+  public CompletableFuture<List<E>> loadObjectSetAsync(String setID, Object[] parameters)
+  {
+    return CompletableFuture.supplyAsync(() -> loadObjectSet(setID,parameters),getExecutor());
+  }
 }
@@ -1,8 +1,15 @@
 package delta.common.framework.objects.data;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
 
 /**
  * Objects source of a single data location.
@@ -10,14 +17,18 @@ import java.util.List;
  */
 public class ObjectsSource
 {
-  private HashMap<Class<?>,ObjectsManager<?>> _managers;
+  private Map<Class<?>,ObjectsManager<?>> _managers;
+  // Managed classes, in registration order
+  private CopyOnWriteArrayList<Class<?>> _classes;
+  private volatile Executor _executor;
 
   /**
    * Constructor.
    */
   public ObjectsSource()
   {
-    _managers=new HashMap<Class<?>,ObjectsManager<?>>();
+    _managers=new ConcurrentHashMap<Class<?>,ObjectsManager<?>>();
+    _classes=new CopyOnWriteArrayList<Class<?>>();
   }
 
   /**
@@ -29,16 +40,59 @@ public class ObjectsSource
   public <E extends Identifiable<Long>> DataProxy<E> buildProxy(Class<E> c, Long primaryKey)
   {
     ObjectsManager<E> mgr=getManager(c);
-    return new DataProxy<E>(primaryKey,mgr);
+    return mgr.buildProxy(primaryKey);
+  }
+
+  /**
+   * Load the objects of the given proxies, using a single batched load per class.
+   * @param proxies Proxies to resolve.
+   */
+  public void resolveAll(Collection<? extends DataProxy<?>> proxies)
+  {
+    Map<ObjectsManager<?>,List<DataProxy<?>>> proxiesByManager=new HashMap<ObjectsManager<?>,List<DataProxy<?>>>();
+    for(DataProxy<?> proxy : proxies)
+    {
+      List<DataProxy<?>> managerProxies=proxiesByManager.get(proxy.getSource());
+      if (managerProxies==null)
+      {
+        managerProxies=new ArrayList<DataProxy<?>>();
+        proxiesByManager.put(proxy.getSource(),managerProxies);
+      }
+      managerProxies.add(proxy);
+    }
+    for(Map.Entry<ObjectsManager<?>,List<DataProxy<?>>> entry : proxiesByManager.entrySet())
+    {
+      resolveAll(entry.getKey(),entry.getValue());
+    }
+  }
+
+  @SuppressWarnings({"unchecked","rawtypes"})
+  private <E extends Identifiable<Long>> void resolveAll(ObjectsManager<E> manager, List<DataProxy<?>> proxies)
+  {
+    manager.resolveAll((List)proxies);
+  }
+
+  /**
+   * Set the executor for the asynchronous operations of all managed classes.
+   * @param executor Executor to use, or <code>null</code> to use the default one
+   * (see {@link ObjectsExecutors#getDefaultExecutor()}).
+   */
+  public void setExecutor(Executor executor)
+  {
+    _executor=executor;
+    for(ObjectsManager<?> manager : _managers.values())
+    {
+      manager.setExecutor(executor);
+    }
   }
 
   /**
    * Get the managed classes.
-   * @return A list of managed classes.
+   * @return A list of managed classes, in registration order.
    */
   public List<Class<?>> getManagedClasses()
   {
-    List<Class<?>> ret=new ArrayList<Class<?>>(_managers.keySet());
+    List<Class<?>> ret=new ArrayList<Class<?>>(_classes);
     return ret;
   }
 
@@ -63,6 +117,20 @@ public class ObjectsSource
     return _managers.get(c);
   }
 
+  /**
+   * Get a snapshot of the load statistics of all managed classes.
+   * @return A map of statistics, indexed by managed class.
+   */
+  public Map<Class<?>,LoadStats> getStats()
+  {
+    Map<Class<?>,LoadStats> ret=new HashMap<Class<?>,LoadStats>();
+    for(Map.Entry<Class<?>,ObjectsManager<?>> entry : _managers.entrySet())
+    {
+      ret.put(entry.getKey(),entry.getValue().getStats());
+    }
+    return ret;
+  }
+
   /**
    * Create an object.
    * @param c Class of object to create.
@@ -83,6 +151,36 @@ public class ObjectsSource
     getManager(c).update(object);
   }
 
+  /**
+   * Create a series of objects, at once if the driver of the class supports it.
+   * @param c Class of objects to create.
+   * @param objects Objects to create.
+   */
+  public <E extends Identifiable<Long>> void createAll(Class<E> c, List<E> objects)
+  {
+    getManager(c).createAll(objects);
+  }
+
+  /**
+   * Update a series of objects, at once if the driver of the class supports it.
+   * @param c Class of objects to update.
+   * @param objects Objects to update.
+   */
+  public <E extends Identifiable<Long>> void updateAll(Class<E> c, List<E> objects)
+  {
+    getManager(c).updateAll(objects);
+  }
+
+  /**
+   * Delete a series of objects, at once if the driver of the class supports it.
+   * @param c Class of objects to delete.
+   * @param primaryKeys Primary keys of the objects to delete.
+   */
+  public <E extends Identifiable<Long>> void deleteAll(Class<E> c, List<Long> primaryKeys)
+  {
+    getManager(c).deleteAll(primaryKeys);
+  }
+
   /**
    * Load an object.
    * @param c Class of object to load.
@@ -94,6 +192,17 @@ public class ObjectsSource
     return getManager(c).load(primaryKey);
   }
 
+  /**
+   * Load an object asynchronously.
+   * @param c Class of object to load.
+   * @param primaryKey Identifying key for the targeted object.
+   * @return A future for the loaded object or <code>null</code> if not found.
+   */
+  public <E extends Identifiable<Long>> CompletableFuture<E> loadAsync(Class<E> c, Long primaryKey)
+  {
+    return getManager(c).loadAsync(primaryKey);
+  }
+
   /**
    * Get all the objects of the managed class.
    * @param c Class of objects to load.
@@ -104,6 +213,28 @@ public class ObjectsSource
     return getManager(c).loadAll();
   }
 
+  /**
+   * Get a stream on all the objects of the managed class.
+   * The returned stream shall be closed after use.
+   * @param c Class of objects to load.
+   * @param populateCache <code>true</code> to put the streamed objects in the cache (if any).
+   * @return a stream of such objects.
+   */
+  public <E extends Identifiable<Long>> Stream<E> streamAll(Class<E> c, boolean populateCache)
+  {
+    return getManager(c).streamAll(populateCache);
+  }
+
+  /**
+   * Get all the objects of the managed class asynchronously.
+   * @param c Class of objects to load.
+   * @return A future for a list of such objects.
+   */
+  public <E extends Identifiable<Long>> CompletableFuture<List<E>> loadAllAsync(Class<E> c)
+  {
+    return getManager(c).loadAllAsync();
+  }
+
   /**
    * Get the objects related to object whose primary
    * key is <code>primaryKey</code> using the designated relation.
@@ -117,6 +248,39 @@ public class ObjectsSource
     return getManager(c).loadRelation(relationName,primaryKey);
   }
 
+  /**
+   * Load a series of objects, designated by their primary keys.
+   * @param c Class of objects to load.
+   * @param primaryKeys Primary keys of the objects to load.
+   * @return A list of objects, in the order of the given keys.
+   */
+  public <E extends Identifiable<Long>> List<E> loadAll(Class<E> c, long[] primaryKeys)
+  {
+    return getManager(c).loadAll(primaryKeys);
+  }
+
+  /**
+   * Invalidate all the cached entries of a relation.
+   * @param c Class of related objects.
+   * @param relationName Name of the relation to invalidate.
+   */
+  public <E extends Identifiable<Long>> void invalidateRelation(Class<E> c, String relationName)
+  {
+    getManager(c).invalidateRelation(relationName);
+  }
+
+  /**
+   * Get the objects related to an object asynchronously.
+   * @param c Class of objects to load.
+   * @param relationName Name of the relation to use.
+   * @param primaryKey Primary key of the root object.
+   * @return A future for a list of such objects.
+   */
+  public <E extends Identifiable<Long>> CompletableFuture<List<E>> loadRelationAsync(Class<E> c, String relationName, Long primaryKey)
+  {
+    return getManager(c).loadRelationAsync(relationName,primaryKey);
+  }
+
   /**
    * Get the objects that belong to the designated set, using the given parameters
    * (the number and types of the parameters depend on the nature of the designated
@@ -131,6 +295,28 @@ public class ObjectsSource
     return getManager(c).loadObjectSet(setID,parameters);
   }
 
+  /**
+   * Invalidate all the cached results of an objects set.
+   * @param c Class of objects in the set.
+   * @param setID Identifier of the set to invalidate.
+   */
+  public <E extends Identifiable<Long>> void invalidateObjectSet(Class<E> c, String setID)
+  {
+    getManager(c).invalidateObjectSet(setID);
+  }
+
+  /**
+   * Get the objects that belong to the designated set asynchronously.
+   * @param c Class of objects to load.
+   * @param setID Name of the set to use.
+   * @param parameters Parameters for this set.
+   * @return A future for a list of such objects.
+   */
+  public <E extends Identifiable<Long>> CompletableFuture<List<E>> loadObjectSetAsync(Class<E> c, String setID, Object... parameters)
+  {
+    return getManager(c).loadObjectSetAsync(setID,parameters);
+  }
+
   /**
    * Delete an object in the managed persistence system.
    * @param c Class of objects to delete.
@@ -148,14 +334,114 @@ public class ObjectsSource
   public <E extends Identifiable<Long>> void addClass(Class<E> c)
   {
     ObjectsManager<E> manager=new ObjectsManager<E>();
+    manager.setExecutor(_executor);
     _managers.put(c,manager);
+    _classes.addIfAbsent(c);
+  }
+
+  /**
+   * Start a new unit of work on this source.
+   * @return A new unit of work.
+   */
+  public UnitOfWork newUnitOfWork()
+  {
+    return new UnitOfWork(this);
+  }
+
+  /**
+   * Commit the changes of a unit of work.
+   * Changes are applied between {@link #beginTransaction()} and {@link #commitTransaction()},
+   * and caches are updated only if they all succeeded. Whether failed changes are undone
+   * depends on the transaction support of the source.
+   * @param changes Changes to commit, in class registration order.
+   */
+  void commit(List<UnitOfWork.Changes<?>> changes)
+  {
+    // Pending writes come first
+    for(UnitOfWork.Changes<?> classChanges : changes)
+    {
+      classChanges.flushManager();
+    }
+    beginTransaction();
+    try
+    {
+      applyChanges(changes);
+      commitTransaction();
+    }
+    catch(RuntimeException|Error e)
+    {
+      rollbackTransaction();
+      throw e;
+    }
+    for(UnitOfWork.Changes<?> classChanges : changes)
+    {
+      classChanges.updateCaches();
+    }
+  }
+
+  /**
+   * Apply the changes of a unit of work, within a transaction.
+   * This default implementation applies creations and updates in class registration
+   * order, then deletions in the reverse order.
+   * @param changes Changes to apply, in class registration order.
+   */
+  protected void applyChanges(List<UnitOfWork.Changes<?>> changes)
+  {
+    for(UnitOfWork.Changes<?> classChanges : changes)
+    {
+      classChanges.applyWrites();
+    }
+    for(int i=changes.size()-1;i>=0;i--)
+    {
+      changes.get(i).applyDeletions();
+    }
+  }
+
+  /**
+   * Start a transaction (used by units of work).
+   * This default implementation does nothing: changes are not undone on error.
+   */
+  protected void beginTransaction()
+  {
+    // Nothing!
+  }
+
+  /**
+   * Commit the current transaction (used by units of work).
+   */
+  protected void commitTransaction()
+  {
+    // Nothing!
+  }
+
+  /**
+   * Roll back the current transaction (used by units of work).
+   */
+  protected void rollbackTransaction()
+  {
+    // Nothing!
+  }
+
+  /**
+   * Apply the pending writes of all managed classes (write-behind mode).
+   */
+  public void flush()
+  {
+    for(ObjectsManager<?> manager : _managers.values())
+    {
+      manager.flush();
+    }
   }
 
   /**
    * Close this data source.
+   * Pending writes of all managed classes are flushed.
    */
   public void close()
   {
-    // Nothing!
+    for(ObjectsManager<?> manager : _managers.values())
+    {
+      manager.close();
+    }
   }
 }
@@ -0,0 +1,193 @@
+package delta.common.framework.objects.data;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * Second-level objects store, that keeps serialized objects outside of the Java heap.
+ * <p>
+ * Objects are encoded by a codec and appended to a direct buffer of fixed capacity,
+ * used as a circular log: when the end of the buffer is reached, writes start again
+ * from the beginning and overwrite the oldest objects, which are evicted.
+ * This class is thread-safe.
+ * @author DAM
+ * @param <E> Type of the data objects to manage.
+ */
+public class OffHeapObjectsStore<E extends Identifiable<Long>>
+{
+  private ObjectCodec<E> _codec;
+  private ByteBuffer _buffer;
+  private int _capacity;
+  private int _writePosition;
+  private LongHashMap<Slot> _index;
+  // Slots in write order, stale ones included
+  private ArrayDeque<Slot> _slots;
+  private long _usedBytes;
+
+  /**
+   * Constructor.
+   * @param capacity Capacity of the store, in bytes.
+   * @param codec Codec for objects.
+   */
+  public OffHeapObjectsStore(int capacity, ObjectCodec<E> codec)
+  {
+    if (capacity<=0)
+    {
+      throw new IllegalArgumentException("Bad capacity: "+capacity);
+    }
+    _codec=codec;
+    _capacity=capacity;
+    _buffer=ByteBuffer.allocateDirect(capacity);
+    _writePosition=0;
+    _index=new LongHashMap<Slot>();
+    _slots=new ArrayDeque<Slot>();
+    _usedBytes=0;
+  }
+
+  /**
+   * Get the capacity of this store.
+   * @return a number of bytes.
+   */
+  public int getCapacity()
+  {
+    return _capacity;
+  }
+
+  /**
+   * Get the number of bytes used by the stored objects.
+   * @return a number of bytes.
+   */
+  public synchronized long getUsedBytes()
+  {
+    return _usedBytes;
+  }
+
+  /**
+   * Get the number of stored objects.
+   * @return a number of objects.
+   */
+  public synchronized int size()
+  {
+    return _index.size();
+  }
+
+  /**
+   * Get an object.
+   * @param primaryKey Primary key of the object to get.
+   * @return the decoded object or <code>null</code> if not found.
+   */
+  public synchronized E get(long primaryKey)
+  {
+    Slot slot=_index.get(primaryKey);
+    if (slot==null)
+    {
+      return null;
+    }
+    ByteBuffer view=_buffer.duplicate();
+    view.limit(slot._offset+slot._length);
+    view.position(slot._offset);
+    return _codec.decode(view.slice().asReadOnlyBuffer());
+  }
+
+  /**
+   * Store an object.
+   * The oldest objects may be evicted to make room for it.
+   * @param object Object to store.
+   * @return <code>true</code> if it was stored, <code>false</code> if it is too big.
+   */
+  public boolean put(E object)
+  {
+    Long id=object.getPrimaryKey();
+    if (id==null)
+    {
+      return false;
+    }
+    byte[] data=_codec.encode(object);
+    long key=id.longValue();
+    synchronized(this)
+    {
+      remove(key);
+      int length=data.length;
+      if (length>_capacity)
+      {
+        return false;
+      }
+      if (_writePosition+length>_capacity)
+      {
+        evictRange(_writePosition,Integer.MAX_VALUE);
+        _writePosition=0;
+      }
+      evictRange(_writePosition,_writePosition+length);
+      ByteBuffer view=_buffer.duplicate();
+      view.position(_writePosition);
+      view.put(data);
+      Slot slot=new Slot(key,_writePosition,length);
+      _slots.addLast(slot);
+      _index.put(key,slot);
+      _usedBytes+=length;
+      _writePosition+=length;
+    }
+    return true;
+  }
+
+  /**
+   * Remove an object.
+   * @param primaryKey Primary key of the object to remove.
+   */
+  public synchronized void remove(long primaryKey)
+  {
+    Slot slot=_index.remove(primaryKey);
+    if (slot!=null)
+    {
+      _usedBytes-=slot._length;
+    }
+  }
+
+  /**
+   * Remove all objects.
+   */
+  public synchronized void clear()
+  {
+    _index.clear();
+    _slots.clear();
+    _writePosition=0;
+    _usedBytes=0;
+  }
+
+  private void evictRange(int start, int end)
+  {
+    while (!_slots.isEmpty())
+    {
+      Slot oldest=_slots.peekFirst();
+      // Slots are contiguous from the write position, in write order
+      boolean overwritten=(oldest._offset>=start) && (oldest._offset<end);
+      if (!overwritten)
+      {
+        break;
+      }
+      _slots.pollFirst();
+      if (_index.get(oldest._key)==oldest)
+      {
+        _index.remove(oldest._key);
+        _usedBytes-=oldest._length;
+      }
+    }
+  }
+
+  /**
+   * Location of an object in the buffer.
+   */
+  private static class Slot
+  {
+    private long _key;
+    private int _offset;
+    private int _length;
+
+    private Slot(long key, int offset, int length)
+    {
+      _key=key;
+      _offset=offset;
+      _length=length;
+    }
+  }
+}
@@ -0,0 +1,35 @@
+package delta.common.framework.objects.data;
+
+/**
+ * Exception thrown by a bulk write that failed after some of its objects were
+ * durably written (for instance, committed by chunks).
+ * The written objects are the first ones of the list given to the bulk write.
+ * @author DAM
+ */
+public class PartialWriteException extends IllegalStateException
+{
+  private static final long serialVersionUID=1L;
+
+  private final int _nbWritten;
+
+  /**
+   * Constructor.
+   * @param message Message.
+   * @param nbWritten Number of objects written before the failure.
+   * @param cause Cause of the failure.
+   */
+  public PartialWriteException(String message, int nbWritten, Throwable cause)
+  {
+    super(message,cause);
+    _nbWritten=nbWritten;
+  }
+
+  /**
+   * Get the number of objects written before the failure.
+   * @return a number of objects.
+   */
+  public int getNbWritten()
+  {
+    return _nbWritten;
+  }
+}
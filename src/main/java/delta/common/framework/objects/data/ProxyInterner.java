@@ -0,0 +1,94 @@
+package delta.common.framework.objects.data;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+
+/**
+ * Registry of shared proxies: one proxy per primary key.
+ * <p>
+ * Proxies are weakly referenced, so that unused proxies are garbage collected.
+ * Entries of collected proxies are removed during the next operations.
+ * This class is thread-safe.
+ * @author DAM
+ * @param <E> Type of the data objects to manage.
+ */
+final class ProxyInterner<E extends Identifiable<Long>>
+{
+  private HashMap<Long,KeyedProxyReference<E>> _proxies;
+  private ReferenceQueue<DataProxy<E>> _queue;
+
+  /**
+   * Constructor.
+   */
+  ProxyInterner()
+  {
+    _proxies=new HashMap<Long,KeyedProxyReference<E>>();
+    _queue=new ReferenceQueue<DataProxy<E>>();
+  }
+
+  /**
+   * Get the shared proxy for a primary key.
+   * @param primaryKey Primary key.
+   * @return A proxy or <code>null</code> if none.
+   */
+  synchronized DataProxy<E> get(Long primaryKey)
+  {
+    purge();
+    KeyedProxyReference<E> reference=_proxies.get(primaryKey);
+    return (reference!=null)?reference.get():null;
+  }
+
+  /**
+   * Register a shared proxy.
+   * @param proxy Proxy to register.
+   */
+  synchronized void put(DataProxy<E> proxy)
+  {
+    purge();
+    Long primaryKey=proxy.getPrimaryKey();
+    _proxies.put(primaryKey,new KeyedProxyReference<E>(primaryKey,proxy,_queue));
+  }
+
+  /**
+   * Get the number of registered proxies (collected proxies not yet removed included).
+   * @return a number of proxies.
+   */
+  synchronized int size()
+  {
+    purge();
+    return _proxies.size();
+  }
+
+  /**
+   * Remove the entries of collected proxies.
+   */
+  private void purge()
+  {
+    Reference<? extends DataProxy<E>> reference;
+    while ((reference=_queue.poll())!=null)
+    {
+      Long primaryKey=((KeyedProxyReference<?>)reference)._primaryKey;
+      if (_proxies.get(primaryKey)==reference)
+      {
+        _proxies.remove(primaryKey);
+      }
+    }
+  }
+
+  /**
+   * Weak reference to a proxy, with its primary key.
+   * @param <E> Type of the data objects to manage.
+   */
+  private static class KeyedProxyReference<E extends Identifiable<Long>> extends WeakReference<DataProxy<E>>
+  {
+    private Long _primaryKey;
+
+    private KeyedProxyReference(Long primaryKey, DataProxy<E> proxy, ReferenceQueue<DataProxy<E>> queue)
+    {
+      super(proxy,queue);
+      _primaryKey=primaryKey;
+    }
+  }
+}
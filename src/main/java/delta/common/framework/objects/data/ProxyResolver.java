@@ -0,0 +1,132 @@
+package delta.common.framework.objects.data;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Resolves the proxies of an objects manager by batches.
+ * <p>
+ * Proxies are recorded in a batch when they are built. When one of them is dereferenced,
+ * all the proxies of its batch are resolved using a single batched load
+ * (see {@link ObjectsManager#loadAll(List)}). A batch holds at most
+ * <code>maxBatchSize</code> proxies: further proxies are recorded in a new batch.
+ * Batches are referenced by their proxies only, so that unused batches are garbage collected.
+ * @author DAM
+ * @param <E> Type of the data objects to manage.
+ */
+final class ProxyResolver<E extends Identifiable<Long>>
+{
+  private ObjectsManager<E> _manager;
+  private int _maxBatchSize;
+  private List<DataProxy<E>> _currentBatch;
+
+  /**
+   * Constructor.
+   * @param manager Parent manager.
+   * @param maxBatchSize Maximum number of proxies in a batch.
+   */
+  ProxyResolver(ObjectsManager<E> manager, int maxBatchSize)
+  {
+    _manager=manager;
+    _maxBatchSize=maxBatchSize;
+  }
+
+  /**
+   * Register a new proxy.
+   * @param proxy Proxy to register.
+   */
+  synchronized void register(DataProxy<E> proxy)
+  {
+    if (proxy.getPrimaryKey()==null)
+    {
+      return;
+    }
+    if ((_currentBatch==null) || (_currentBatch.size()>=_maxBatchSize))
+    {
+      _currentBatch=new ArrayList<DataProxy<E>>();
+    }
+    _currentBatch.add(proxy);
+    proxy.setBatch(_currentBatch);
+  }
+
+  /**
+   * Resolve a proxy, along with the other proxies of its batch.
+   * @param proxy Proxy to resolve.
+   * @return The proxied object or <code>null</code> if not found.
+   */
+  E resolve(DataProxy<E> proxy)
+  {
+    List<DataProxy<E>> batch;
+    synchronized (this)
+    {
+      batch=proxy.getBatch();
+      if (batch==null)
+      {
+        batch=Collections.singletonList(proxy);
+      }
+      else if (batch==_currentBatch)
+      {
+        // Close the current batch
+        _currentBatch=null;
+      }
+    }
+    Map<Long,E> objects=resolveAll(batch);
+    for(DataProxy<E> batchProxy : batch)
+    {
+      batchProxy.setBatch(null);
+    }
+    // The proxy may have been reset meanwhile: the loaded object is returned anyway
+    E ret=objects.get(proxy.getPrimaryKey());
+    return (ret!=null)?ret:proxy.getResolvedObject();
+  }
+
+  /**
+   * Resolve the given proxies using a single batched load.
+   * Proxies reset during the load are left unresolved.
+   * @param proxies Proxies to resolve.
+   * @return the loaded objects, by primary key.
+   */
+  Map<Long,E> resolveAll(Collection<DataProxy<E>> proxies)
+  {
+    List<DataProxy<E>> toResolve=new ArrayList<DataProxy<E>>();
+    Set<Long> keys=new LinkedHashSet<Long>();
+    for(DataProxy<E> proxy : proxies)
+    {
+      if ((!proxy.isResolved()) && (proxy.getPrimaryKey()!=null))
+      {
+        toResolve.add(proxy);
+        keys.add(proxy.getPrimaryKey());
+      }
+    }
+    Map<Long,E> objects=new HashMap<Long,E>();
+    if (keys.isEmpty())
+    {
+      return objects;
+    }
+    int[] generations=new int[toResolve.size()];
+    for(int i=0;i<generations.length;i++)
+    {
+      generations[i]=toResolve.get(i).getGeneration();
+    }
+    for(E object : _manager.loadAll(new ArrayList<Long>(keys)))
+    {
+      objects.put(object.getPrimaryKey(),object);
+    }
+    for(int i=0;i<generations.length;i++)
+    {
+      DataProxy<E> proxy=toResolve.get(i);
+      E object=objects.get(proxy.getPrimaryKey());
+      if (object!=null)
+      {
+        proxy.setResolvedObject(object,generations[i]);
+      }
+    }
+    return objects;
+  }
+}
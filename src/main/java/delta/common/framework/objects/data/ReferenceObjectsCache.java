@@ -0,0 +1,227 @@
+package delta.common.framework.objects.data;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Thread-safe cache for data objects, that holds objects through soft or weak references.
+ * <p>
+ * The garbage collector may reclaim cached objects:
+ * <ul>
+ * <li>soft references: only when memory is short, so that the cache grows while
+ * heap is available and shrinks under memory pressure,
+ * <li>weak references: as soon as objects are not used anymore outside of the cache.
+ * </ul>
+ * Entries of reclaimed objects are removed during the next cache operations.
+ * @author DAM
+ * @param <E> Type of the data objects to manage.
+ */
+public class ReferenceObjectsCache<E extends Identifiable<Long>> extends ObjectsCache<E>
+{
+  /**
+   * Type of references used to hold objects.
+   */
+  public enum ReferenceType
+  {
+    /**
+     * Soft references.
+     */
+    SOFT,
+    /**
+     * Weak references.
+     */
+    WEAK
+  }
+
+  private ReferenceType _type;
+  private ConcurrentHashMap<Long,Reference<E>> _references;
+  private ReferenceQueue<E> _queue;
+
+  /**
+   * Constructor.
+   * @param type Type of references to use.
+   */
+  public ReferenceObjectsCache(ReferenceType type)
+  {
+    super(null);
+    _type=type;
+    _references=new ConcurrentHashMap<Long,Reference<E>>();
+    _queue=new ReferenceQueue<E>();
+  }
+
+  /**
+   * Get the type of references used by this cache.
+   * @return a reference type.
+   */
+  public ReferenceType getReferenceType()
+  {
+    return _type;
+  }
+
+  @Override
+  public E get(Long primaryKey)
+  {
+    purge();
+    if (primaryKey==null)
+    {
+      return null;
+    }
+    Reference<E> reference=_references.get(primaryKey);
+    if (reference==null)
+    {
+      return recordAccess(null);
+    }
+    E ret=reference.get();
+    if (ret==null)
+    {
+      _references.remove(primaryKey,reference);
+    }
+    return recordAccess(ret);
+  }
+
+  @Override
+  public List<E> getAll()
+  {
+    purge();
+    List<E> ret=new ArrayList<E>(_references.size());
+    for(Reference<E> reference : _references.values())
+    {
+      E object=reference.get();
+      if (object!=null)
+      {
+        ret.add(object);
+      }
+    }
+    return ret;
+  }
+
+  @Override
+  public boolean hasWeaklyConsistentViews()
+  {
+    return true;
+  }
+
+  @Override
+  public Spliterator<E> spliterator()
+  {
+    purge();
+    return new MappingSpliterator<Reference<E>,E>(_references.values().spliterator(),reference -> reference.get());
+  }
+
+  @Override
+  public void put(E object)
+  {
+    purge();
+    Long id=object.getPrimaryKey();
+    if (id!=null)
+    {
+      Reference<E> reference;
+      if (_type==ReferenceType.SOFT)
+      {
+        reference=new KeyedSoftReference<E>(id,object,_queue);
+      }
+      else
+      {
+        reference=new KeyedWeakReference<E>(id,object,_queue);
+      }
+      _references.put(id,reference);
+    }
+  }
+
+  @Override
+  public void remove(Long primaryKey)
+  {
+    purge();
+    if (primaryKey!=null)
+    {
+      _references.remove(primaryKey);
+    }
+  }
+
+  /**
+   * Get the number of cached entries (reclaimed objects not yet removed included).
+   * @return a number of entries.
+   */
+  @Override
+  public int size()
+  {
+    purge();
+    return _references.size();
+  }
+
+  @Override
+  public void clear()
+  {
+    _references.clear();
+    purge();
+  }
+
+  /**
+   * Remove the entries of reclaimed objects.
+   */
+  private void purge()
+  {
+    Reference<? extends E> reference;
+    while ((reference=_queue.poll())!=null)
+    {
+      Long key=((KeyedReference)reference).getKey();
+      _references.remove(key,reference);
+    }
+  }
+
+  /**
+   * Interface of a reference that knows the key of its referent.
+   */
+  private interface KeyedReference
+  {
+    Long getKey();
+  }
+
+  /**
+   * Soft reference with key.
+   * @param <E> Type of the data objects to manage.
+   */
+  private static class KeyedSoftReference<E> extends SoftReference<E> implements KeyedReference
+  {
+    private Long _key;
+
+    private KeyedSoftReference(Long key, E object, ReferenceQueue<E> queue)
+    {
+      super(object,queue);
+      _key=key;
+    }
+
+    @Override
+    public Long getKey()
+    {
+      return _key;
+    }
+  }
+
+  /**
+   * Weak reference with key.
+   * @param <E> Type of the data objects to manage.
+   */
+  private static class KeyedWeakReference<E> extends WeakReference<E> implements KeyedReference
+  {
+    private Long _key;
+
+    private KeyedWeakReference(Long key, E object, ReferenceQueue<E> queue)
+    {
+      super(object,queue);
+      _key=key;
+    }
+
+    @Override
+    public Long getKey()
+    {
+      return _key;
+    }
+  }
+}
@@ -0,0 +1,60 @@
+package delta.common.framework.objects.data;
+
+import java.util.Objects;
+
+/**
+ * Key of a relation query: relation name and primary key of the root object.
+ * @author DAM
+ */
+final class RelationKey
+{
+  private final String _relationName;
+  private final Long _rootKey;
+
+  /**
+   * Constructor.
+   * @param relationName Name of the relation.
+   * @param rootKey Primary key of the root object.
+   */
+  RelationKey(String relationName, Long rootKey)
+  {
+    _relationName=relationName;
+    _rootKey=rootKey;
+  }
+
+  /**
+   * Get the relation name.
+   * @return a relation name.
+   */
+  String getRelationName()
+  {
+    return _relationName;
+  }
+
+  @Override
+  public boolean equals(Object obj)
+  {
+    if (this==obj)
+    {
+      return true;
+    }
+    if (!(obj instanceof RelationKey))
+    {
+      return false;
+    }
+    RelationKey other=(RelationKey)obj;
+    return Objects.equals(_relationName,other._relationName) && Objects.equals(_rootKey,other._rootKey);
+  }
+
+  @Override
+  public int hashCode()
+  {
+    return Objects.hash(_relationName,_rootKey);
+  }
+
+  @Override
+  public String toString()
+  {
+    return _relationName+"("+_rootKey+")";
+  }
+}
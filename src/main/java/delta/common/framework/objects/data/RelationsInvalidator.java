@@ -0,0 +1,21 @@
+package delta.common.framework.objects.data;
+
+/**
+ * Invalidates the cached relations of a manager when objects are written.
+ * <p>
+ * It may use {@link ObjectsManager#invalidateRelation(String)} and
+ * {@link ObjectsManager#invalidateRelation(String, Long)} to remove only the
+ * relations that may have changed.
+ * @author DAM
+ * @param <E> Type of the managed objects.
+ */
+public interface RelationsInvalidator<E extends Identifiable<Long>>
+{
+  /**
+   * Called when an object has been created, updated or deleted.
+   * @param manager Manager of this object.
+   * @param primaryKey Primary key of the written object.
+   * @param object Written object, or <code>null</code> for a deletion.
+   */
+  void objectWritten(ObjectsManager<E> manager, Long primaryKey, E object);
+}
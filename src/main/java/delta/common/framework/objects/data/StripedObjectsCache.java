@@ -0,0 +1,280 @@
+package delta.common.framework.objects.data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Thread-safe cache for data objects, built on top of non thread-safe caches.
+ * <p>
+ * Objects are spread over several stripes, using their primary key.
+ * Each stripe is an independent cache guarded by its own lock, so that
+ * threads that use different stripes do not contend. For instance, a
+ * concurrent bounded cache can be built with stripes of type {@link BoundedObjectsCache}.
+ * <p>
+ * Stripes shall have weakly consistent views (see {@link ObjectsCache#hasWeaklyConsistentViews()}):
+ * traversals use the spliterators of the stripes, one after the other, without copy and without
+ * locking, so that traversal actions may use this cache. Parallel traversals split on stripes.
+ * @author DAM
+ * @param <E> Type of the data objects to manage.
+ */
+public class StripedObjectsCache<E extends Identifiable<Long>> extends ObjectsCache<E>
+{
+  private ObjectsCache<E>[] _stripes;
+  private int _mask;
+
+  /**
+   * Constructor.
+   * @param nbStripes Number of stripes (rounded up to a power of 2).
+   * @param stripesFactory Factory for stripe caches.
+   */
+  @SuppressWarnings("unchecked")
+  public StripedObjectsCache(int nbStripes, Supplier<ObjectsCache<E>> stripesFactory)
+  {
+    super(null);
+    if (nbStripes<=0)
+    {
+      throw new IllegalArgumentException("Bad number of stripes: "+nbStripes);
+    }
+    int size=(nbStripes==1)?1:Integer.highestOneBit(nbStripes-1)<<1;
+    _stripes=(ObjectsCache<E>[])new ObjectsCache<?>[size];
+    for(int i=0;i<size;i++)
+    {
+      _stripes[i]=stripesFactory.get();
+      if (!_stripes[i].hasWeaklyConsistentViews())
+      {
+        throw new IllegalArgumentException("Stripes shall have weakly consistent views: "+_stripes[i].getClass().getName());
+      }
+    }
+    _mask=size-1;
+  }
+
+  @Override
+  public void setEvictionListener(EvictionListener<E> listener)
+  {
+    super.setEvictionListener(listener);
+    for(ObjectsCache<E> stripe : _stripes)
+    {
+      synchronized(stripe)
+      {
+        stripe.setEvictionListener(listener);
+      }
+    }
+  }
+
+  /**
+   * Get a snapshot of the statistics of this cache (sum of the statistics of the stripes).
+   * @return some statistics.
+   */
+  @Override
+  public CacheStats getStats()
+  {
+    CacheStats ret=super.getStats();
+    for(ObjectsCache<E> stripe : _stripes)
+    {
+      ret=ret.plus(stripe.getStats());
+    }
+    return ret;
+  }
+
+  private ObjectsCache<E> getStripe(long primaryKey)
+  {
+    long h=primaryKey*0x9E3779B97F4A7C15L;
+    int index=((int)(h^(h>>>32)))&_mask;
+    return _stripes[index];
+  }
+
+  @Override
+  public E get(Long primaryKey)
+  {
+    if (primaryKey==null)
+    {
+      return null;
+    }
+    return get(primaryKey.longValue());
+  }
+
+  @Override
+  public E get(long primaryKey)
+  {
+    ObjectsCache<E> stripe=getStripe(primaryKey);
+    synchronized(stripe)
+    {
+      return stripe.get(primaryKey);
+    }
+  }
+
+  @Override
+  public List<E> getAll()
+  {
+    List<E> ret=new ArrayList<E>();
+    for(ObjectsCache<E> stripe : _stripes)
+    {
+      synchronized(stripe)
+      {
+        ret.addAll(stripe.getAll());
+      }
+    }
+    return ret;
+  }
+
+  @Override
+  public boolean hasWeaklyConsistentViews()
+  {
+    return true;
+  }
+
+  @Override
+  public Spliterator<E> spliterator()
+  {
+    return new StripesSpliterator<E>(_stripes,0,_stripes.length);
+  }
+
+  @Override
+  public void put(E object)
+  {
+    Long id=object.getPrimaryKey();
+    if (id!=null)
+    {
+      ObjectsCache<E> stripe=getStripe(id.longValue());
+      synchronized(stripe)
+      {
+        stripe.put(object);
+      }
+    }
+  }
+
+  @Override
+  public void remove(Long primaryKey)
+  {
+    if (primaryKey!=null)
+    {
+      remove(primaryKey.longValue());
+    }
+  }
+
+  @Override
+  public void remove(long primaryKey)
+  {
+    ObjectsCache<E> stripe=getStripe(primaryKey);
+    synchronized(stripe)
+    {
+      stripe.remove(primaryKey);
+    }
+  }
+
+  @Override
+  public int size()
+  {
+    int ret=0;
+    for(ObjectsCache<E> stripe : _stripes)
+    {
+      synchronized(stripe)
+      {
+        ret+=stripe.size();
+      }
+    }
+    return ret;
+  }
+
+  @Override
+  public void clear()
+  {
+    for(ObjectsCache<E> stripe : _stripes)
+    {
+      synchronized(stripe)
+      {
+        stripe.clear();
+      }
+    }
+  }
+
+  /**
+   * Spliterator on a range of stripes.
+   * @param <E> Type of the data objects to manage.
+   */
+  private static class StripesSpliterator<E extends Identifiable<Long>> implements Spliterator<E>
+  {
+    private ObjectsCache<E>[] _stripes;
+    private int _index;
+    private int _end;
+    // Spliterator of the stripe being traversed
+    private Spliterator<E> _current;
+
+    private StripesSpliterator(ObjectsCache<E>[] stripes, int start, int end)
+    {
+      _stripes=stripes;
+      _index=start;
+      _end=end;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super E> action)
+    {
+      while (true)
+      {
+        if ((_current!=null) && (_current.tryAdvance(action)))
+        {
+          return true;
+        }
+        _current=null;
+        if (_index>=_end)
+        {
+          return false;
+        }
+        _current=_stripes[_index++].spliterator();
+      }
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super E> action)
+    {
+      if (_current!=null)
+      {
+        _current.forEachRemaining(action);
+        _current=null;
+      }
+      while (_index<_end)
+      {
+        _stripes[_index++].spliterator().forEachRemaining(action);
+      }
+    }
+
+    @Override
+    public Spliterator<E> trySplit()
+    {
+      int remaining=_end-_index;
+      if (remaining<2)
+      {
+        return null;
+      }
+      int middle=_index+(remaining>>>1);
+      Spliterator<E> ret=new StripesSpliterator<E>(_stripes,_index,middle);
+      _index=middle;
+      return ret;
+    }
+
+    @Override
+    public long estimateSize()
+    {
+      long ret=0;
+      for(int i=_index;i<_end;i++)
+      {
+        ObjectsCache<E> stripe=_stripes[i];
+        synchronized(stripe)
+        {
+          ret+=stripe.size();
+        }
+      }
+      return ret;
+    }
+
+    @Override
+    public int characteristics()
+    {
+      return Spliterator.NONNULL;
+    }
+  }
+}
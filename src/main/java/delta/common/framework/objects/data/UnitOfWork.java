@@ -0,0 +1,326 @@
+package delta.common.framework.objects.data;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Unit of work: a group of writes on the objects of a source, committed at once.
+ * <p>
+ * Writes are collected, and coalesced per primary key
+ * (see {@link WriteOperation#merge(WriteOperation, WriteOperation)}).
+ * On commit, creations and updates are applied class by class, in the order of
+ * class registration, then deletions are applied in the reverse order, so that
+ * referenced objects are registered (and written) first.
+ * Caches are updated only when the changes have been committed.
+ * <p>
+ * A unit of work is not thread-safe and may be committed only once.
+ * @author DAM
+ */
+public class UnitOfWork
+{
+  private ObjectsSource _source;
+  private Map<Class<?>,Changes<?>> _changes;
+  private boolean _done;
+
+  /**
+   * Constructor.
+   * @param source Parent source.
+   */
+  UnitOfWork(ObjectsSource source)
+  {
+    _source=source;
+    _changes=new HashMap<Class<?>,Changes<?>>();
+    _done=false;
+  }
+
+  /**
+   * Register the creation of an object.
+   * @param c Class of object to create.
+   * @param object Object to create.
+   */
+  public <E extends Identifiable<Long>> void create(Class<E> c, E object)
+  {
+    getChanges(c).add(WriteOperation.Type.CREATE,object.getPrimaryKey(),object);
+  }
+
+  /**
+   * Register the update of an object.
+   * @param c Class of object to update.
+   * @param object Object to update.
+   */
+  public <E extends Identifiable<Long>> void update(Class<E> c, E object)
+  {
+    getChanges(c).add(WriteOperation.Type.UPDATE,object.getPrimaryKey(),object);
+  }
+
+  /**
+   * Register the deletion of an object.
+   * @param c Class of object to delete.
+   * @param primaryKey Primary key of the object to delete.
+   */
+  public <E extends Identifiable<Long>> void delete(Class<E> c, Long primaryKey)
+  {
+    getChanges(c).add(WriteOperation.Type.DELETE,primaryKey,null);
+  }
+
+  /**
+   * Indicates if this unit of work has no change.
+   * @return <code>true</code> if it is empty, <code>false</code> otherwise.
+   */
+  public boolean isEmpty()
+  {
+    for(Changes<?> changes : _changes.values())
+    {
+      if (!changes.isEmpty())
+      {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Apply all the changes of this unit of work.
+   * <p>
+   * SQL sources apply them in a single transaction on their shared connection:
+   * if an error occurs, nothing is persisted and caches are left untouched.
+   * Other sources have no transaction: caches are left untouched on error,
+   * but the changes applied before the error remain persisted
+   * (the XML source writes each class file at once).
+   */
+  public void commit()
+  {
+    checkNotDone();
+    _done=true;
+    List<Changes<?>> changes=new ArrayList<Changes<?>>();
+    for(Class<?> managedClass : _source.getManagedClasses())
+    {
+      Changes<?> classChanges=_changes.get(managedClass);
+      if ((classChanges!=null) && (!classChanges.isEmpty()))
+      {
+        changes.add(classChanges);
+      }
+    }
+    if (!changes.isEmpty())
+    {
+      _source.commit(changes);
+    }
+  }
+
+  /**
+   * Discard all the changes of this unit of work.
+   */
+  public void discard()
+  {
+    _done=true;
+    _changes.clear();
+  }
+
+  private void checkNotDone()
+  {
+    if (_done)
+    {
+      throw new IllegalStateException("Unit of work already committed or discarded!");
+    }
+  }
+
+  private <E extends Identifiable<Long>> Changes<E> getChanges(Class<E> c)
+  {
+    checkNotDone();
+    @SuppressWarnings("unchecked")
+    Changes<E> ret=(Changes<E>)_changes.get(c);
+    if (ret==null)
+    {
+      ObjectsManager<E> manager=_source.getManager(c);
+      if (manager==null)
+      {
+        throw new IllegalArgumentException("Unmanaged class: "+c.getName());
+      }
+      ret=new Changes<E>(c,manager);
+      _changes.put(c,ret);
+    }
+    return ret;
+  }
+
+  /**
+   * Changes on the objects of a single class.
+   * @param <E> Type of the data objects to manage.
+   */
+  public static final class Changes<E extends Identifiable<Long>>
+  {
+    private Class<E> _class;
+    private ObjectsManager<E> _manager;
+    // Changes on objects with a primary key, in the order of their first write
+    private LinkedHashMap<Long,WriteOperation<E>> _operations;
+    // Creations of objects without primary key
+    private List<E> _createdObjectsWithoutKey;
+
+    private Changes(Class<E> c, ObjectsManager<E> manager)
+    {
+      _class=c;
+      _manager=manager;
+      _operations=new LinkedHashMap<Long,WriteOperation<E>>();
+      _createdObjectsWithoutKey=new ArrayList<E>();
+    }
+
+    private void add(WriteOperation.Type type, Long primaryKey, E object)
+    {
+      if (primaryKey==null)
+      {
+        if (type!=WriteOperation.Type.CREATE)
+        {
+          throw new IllegalArgumentException("No primary key for: "+type);
+        }
+        _createdObjectsWithoutKey.add(object);
+        return;
+      }
+      WriteOperation<E> operation=new WriteOperation<E>(type,primaryKey,object);
+      WriteOperation<E> merged=WriteOperation.merge(_operations.get(primaryKey),operation);
+      if (merged!=null)
+      {
+        _operations.put(primaryKey,merged);
+      }
+      else
+      {
+        _operations.remove(primaryKey);
+      }
+    }
+
+    private boolean isEmpty()
+    {
+      return _operations.isEmpty() && _createdObjectsWithoutKey.isEmpty();
+    }
+
+    /**
+     * Get the class of the changed objects.
+     * @return a class.
+     */
+    public Class<E> getManagedClass()
+    {
+      return _class;
+    }
+
+    /**
+     * Get the objects to create.
+     * @return a list of objects.
+     */
+    public List<E> getCreatedObjects()
+    {
+      List<E> ret=new ArrayList<E>(_createdObjectsWithoutKey);
+      for(WriteOperation<E> operation : _operations.values())
+      {
+        if (operation.getType()==WriteOperation.Type.CREATE)
+        {
+          ret.add(operation.getObject());
+        }
+      }
+      return ret;
+    }
+
+    /**
+     * Get the objects to update.
+     * @return a list of objects.
+     */
+    public List<E> getUpdatedObjects()
+    {
+      List<E> ret=new ArrayList<E>();
+      for(WriteOperation<E> operation : _operations.values())
+      {
+        if (operation.getType()==WriteOperation.Type.UPDATE)
+        {
+          ret.add(operation.getObject());
+        }
+      }
+      return ret;
+    }
+
+    /**
+     * Get the primary keys of the objects to delete.
+     * @return a list of primary keys.
+     */
+    public List<Long> getDeletedKeys()
+    {
+      List<Long> ret=new ArrayList<Long>();
+      for(WriteOperation<E> operation : _operations.values())
+      {
+        if (operation.getType()==WriteOperation.Type.DELETE)
+        {
+          ret.add(operation.getPrimaryKey());
+        }
+      }
+      return ret;
+    }
+
+    /**
+     * Apply creations and updates, using the connector of the managed class.
+     */
+    public void applyWrites()
+    {
+      List<E> createdObjects=getCreatedObjects();
+      List<E> updatedObjects=getUpdatedObjects();
+      if ((!createdObjects.isEmpty()) || (!updatedObjects.isEmpty()))
+      {
+        _manager.getDriver().applyChanges(createdObjects,updatedObjects,new ArrayList<Long>());
+      }
+    }
+
+    /**
+     * Apply deletions, using the connector of the managed class.
+     */
+    public void applyDeletions()
+    {
+      List<Long> deletedKeys=getDeletedKeys();
+      if (!deletedKeys.isEmpty())
+      {
+        _manager.getDriver().applyChanges(new ArrayList<E>(),new ArrayList<E>(),deletedKeys);
+      }
+    }
+
+    /**
+     * Apply all changes at once, using the connector of the managed class.
+     */
+    public void applyAll()
+    {
+      _manager.getDriver().applyChanges(getCreatedObjects(),getUpdatedObjects(),getDeletedKeys());
+    }
+
+    /**
+     * Flush the pending writes of the manager of the managed class.
+     */
+    void flushManager()
+    {
+      _manager.flush();
+    }
+
+    /**
+     * Update the caches of the managed class, once changes are committed.
+     */
+    void updateCaches()
+    {
+      List<E> writtenObjects=new ArrayList<E>(_createdObjectsWithoutKey);
+      List<Long> deletedKeys=new ArrayList<Long>();
+      for(WriteOperation<E> operation : _operations.values())
+      {
+        if (operation.getType()==WriteOperation.Type.DELETE)
+        {
+          deletedKeys.add(operation.getPrimaryKey());
+        }
+        else
+        {
+          writtenObjects.add(operation.getObject());
+        }
+      }
+      if (!writtenObjects.isEmpty())
+      {
+        _manager.objectsWritten(writtenObjects);
+      }
+      if (!deletedKeys.isEmpty())
+      {
+        _manager.objectsDeleted(deletedKeys);
+      }
+    }
+  }
+}
@@ -0,0 +1,44 @@
+package delta.common.framework.objects.data;
+
+import java.util.List;
+
+/**
+ * Listener for the writes buffered by an objects manager in write-behind mode.
+ * <p>
+ * It may be used to make buffered writes durable (for instance, by journaling queued
+ * writes and discarding them once flushed), and to handle write failures.
+ * @author DAM
+ * @param <E> Type of the data objects to manage.
+ */
+public interface WriteBehindListener<E extends Identifiable<Long>>
+{
+  /**
+   * Called when a write is queued, before the write call returns.
+   * Calls are made in the order of writes: implementations shall be fast.
+   * @param operation Queued operation (before coalescing).
+   */
+  default void writeQueued(WriteOperation<E> operation)
+  {
+    // Nothing!
+  }
+
+  /**
+   * Called when writes have been applied to the persistence system.
+   * @param operations Applied operations (after coalescing).
+   */
+  default void writesFlushed(List<WriteOperation<E>> operations)
+  {
+    // Nothing!
+  }
+
+  /**
+   * Called when a write could not be applied to the persistence system.
+   * The cached object (if any) has been removed from the cache.
+   * @param operation Failed operation (after coalescing).
+   * @param error Error.
+   */
+  default void writeFailed(WriteOperation<E> operation, RuntimeException error)
+  {
+    // Nothing!
+  }
+}
@@ -0,0 +1,298 @@
+package delta.common.framework.objects.data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Queue of the pending writes of an objects manager in write-behind mode.
+ * <p>
+ * Writes on the same primary key are coalesced (see {@link WriteOperation#merge(WriteOperation, WriteOperation)}).
+ * Pending writes are flushed when their number reaches a threshold, after a
+ * maximum delay, or on demand. Flushes are serialized.
+ * @author DAM
+ * @param <E> Type of the data objects to manage.
+ */
+final class WriteBehindQueue<E extends Identifiable<Long>>
+{
+  private static final Logger LOGGER=LoggerFactory.getLogger(WriteBehindQueue.class);
+
+  private ObjectsManager<E> _manager;
+  private int _maxPendingWrites;
+  private long _maxDelay;
+  private WriteBehindListener<E> _listener;
+  // Pending writes, in the order of their first write
+  private LinkedHashMap<Long,WriteOperation<E>> _pending;
+  // Writes being flushed
+  private Map<Long,WriteOperation<E>> _flushing;
+  private boolean _flushScheduled;
+  private boolean _closed;
+  private final Object _flushLock;
+
+  /**
+   * Constructor.
+   * @param manager Parent manager.
+   * @param maxPendingWrites Number of pending writes that triggers a flush.
+   * @param maxDelay Maximum delay before pending writes are flushed (zero or negative for no delay).
+   * @param unit Unit of delay.
+   * @param listener Listener, or <code>null</code>.
+   */
+  WriteBehindQueue(ObjectsManager<E> manager, int maxPendingWrites, long maxDelay, TimeUnit unit, WriteBehindListener<E> listener)
+  {
+    _manager=manager;
+    _maxPendingWrites=Math.max(1,maxPendingWrites);
+    _maxDelay=(maxDelay>0)?unit.toNanos(maxDelay):0;
+    _listener=listener;
+    _pending=new LinkedHashMap<Long,WriteOperation<E>>();
+    _flushing=Collections.emptyMap();
+    _flushLock=new Object();
+  }
+
+  /**
+   * Queue a write.
+   * @param operation Operation to queue.
+   * @return <code>true</code> if it was queued, <code>false</code> if this queue is closed.
+   */
+  boolean enqueue(WriteOperation<E> operation)
+  {
+    boolean flush=false;
+    synchronized (this)
+    {
+      if (_closed)
+      {
+        return false;
+      }
+      if (_listener!=null)
+      {
+        _listener.writeQueued(operation);
+      }
+      Long key=operation.getPrimaryKey();
+      WriteOperation<E> previous=_pending.get(key);
+      WriteOperation<E> merged=WriteOperation.merge(previous,operation);
+      if (merged!=null)
+      {
+        _pending.put(key,merged);
+      }
+      else
+      {
+        _pending.remove(key);
+      }
+      if (_pending.size()>=_maxPendingWrites)
+      {
+        flush=true;
+      }
+      else if ((_maxDelay>0) && (!_flushScheduled) && (!_pending.isEmpty()))
+      {
+        _flushScheduled=true;
+        ObjectsExecutors.getDefaultScheduler().schedule(this::scheduledFlush,_maxDelay,TimeUnit.NANOSECONDS);
+      }
+    }
+    if (flush)
+    {
+      flush();
+    }
+    return true;
+  }
+
+  /**
+   * Get the pending write for a primary key.
+   * @param primaryKey Primary key to search.
+   * @return A write operation or <code>null</code> if none.
+   */
+  synchronized WriteOperation<E> getPendingWrite(Long primaryKey)
+  {
+    WriteOperation<E> ret=_pending.get(primaryKey);
+    if (ret==null)
+    {
+      ret=_flushing.get(primaryKey);
+    }
+    return ret;
+  }
+
+  /**
+   * Get the number of pending writes.
+   * @return a number of writes.
+   */
+  synchronized int size()
+  {
+    return _pending.size();
+  }
+
+  private void scheduledFlush()
+  {
+    synchronized (this)
+    {
+      _flushScheduled=false;
+    }
+    try
+    {
+      flush();
+    }
+    catch(RuntimeException e)
+    {
+      LOGGER.error("Write-behind flush failed",e);
+    }
+  }
+
+  /**
+   * Apply all the pending writes.
+   */
+  void flush()
+  {
+    synchronized (_flushLock)
+    {
+      List<WriteOperation<E>> operations;
+      synchronized (this)
+      {
+        if (_pending.isEmpty())
+        {
+          return;
+        }
+        operations=new ArrayList<WriteOperation<E>>(_pending.values());
+        _flushing=_pending;
+        _pending=new LinkedHashMap<Long,WriteOperation<E>>();
+      }
+      try
+      {
+        apply(operations);
+      }
+      finally
+      {
+        synchronized (this)
+        {
+          _flushing=Collections.emptyMap();
+        }
+      }
+    }
+  }
+
+  /**
+   * Apply operations: consecutive operations of the same type are applied at once
+   * (see {@link ObjectsConnector#createAll(List)}, {@link ObjectsConnector#updateAll(List)}
+   * and {@link ObjectsConnector#deleteAll(List)}). If a group fails, its operations are
+   * applied one by one, so that only the failing ones are reported (operations already
+   * written by the group, see {@link PartialWriteException}, are not applied again).
+   * @param operations Operations to apply, in order.
+   */
+  private void apply(List<WriteOperation<E>> operations)
+  {
+    List<WriteOperation<E>> applied=new ArrayList<WriteOperation<E>>(operations.size());
+    int nbOperations=operations.size();
+    int start=0;
+    while (start<nbOperations)
+    {
+      WriteOperation.Type type=operations.get(start).getType();
+      int end=start+1;
+      while ((end<nbOperations) && (operations.get(end).getType()==type))
+      {
+        end++;
+      }
+      List<WriteOperation<E>> group=operations.subList(start,end);
+      try
+      {
+        applyGroup(type,group);
+        applied.addAll(group);
+      }
+      catch(RuntimeException e)
+      {
+        LOGGER.debug("Write-behind batch failed, applying writes one by one",e);
+        // Writes already committed by the bulk write shall not be applied again
+        int nbWritten=(e instanceof PartialWriteException)?((PartialWriteException)e).getNbWritten():0;
+        nbWritten=Math.max(0,Math.min(nbWritten,group.size()));
+        applied.addAll(group.subList(0,nbWritten));
+        for(WriteOperation<E> operation : group.subList(nbWritten,group.size()))
+        {
+          if (applyOne(operation))
+          {
+            applied.add(operation);
+          }
+        }
+      }
+      start=end;
+    }
+    if ((_listener!=null) && (!applied.isEmpty()))
+    {
+      _listener.writesFlushed(applied);
+    }
+  }
+
+  private void applyGroup(WriteOperation.Type type, List<WriteOperation<E>> group)
+  {
+    ObjectsConnector<E> driver=_manager.getDriver();
+    if (type==WriteOperation.Type.DELETE)
+    {
+      List<Long> primaryKeys=new ArrayList<Long>(group.size());
+      for(WriteOperation<E> operation : group)
+      {
+        primaryKeys.add(operation.getPrimaryKey());
+      }
+      driver.deleteAll(primaryKeys);
+      return;
+    }
+    List<E> objects=new ArrayList<E>(group.size());
+    for(WriteOperation<E> operation : group)
+    {
+      objects.add(operation.getObject());
+    }
+    if (type==WriteOperation.Type.CREATE)
+    {
+      driver.createAll(objects);
+    }
+    else
+    {
+      driver.updateAll(objects);
+    }
+  }
+
+  private boolean applyOne(WriteOperation<E> operation)
+  {
+    ObjectsConnector<E> driver=_manager.getDriver();
+    try
+    {
+      switch (operation.getType())
+      {
+        case CREATE:
+          driver.create(operation.getObject());
+        break;
+        case UPDATE:
+          driver.update(operation.getObject());
+        break;
+        case DELETE:
+          driver.delete(operation.getPrimaryKey());
+        break;
+      }
+      return true;
+    }
+    catch(RuntimeException e)
+    {
+      _manager.writeBehindFailed(operation.getPrimaryKey());
+      if (_listener!=null)
+      {
+        _listener.writeFailed(operation,e);
+      }
+      else
+      {
+        LOGGER.error("Write-behind failed: "+operation,e);
+      }
+      return false;
+    }
+  }
+
+  /**
+   * Flush pending writes and refuse new writes.
+   */
+  void close()
+  {
+    synchronized (this)
+    {
+      _closed=true;
+    }
+    flush();
+  }
+}
@@ -0,0 +1,116 @@
+package delta.common.framework.objects.data;
+
+/**
+ * Write operation on a data object.
+ * @author DAM
+ * @param <E> Type of the data objects to manage.
+ */
+public final class WriteOperation<E extends Identifiable<Long>>
+{
+  /**
+   * Type of write operation.
+   */
+  public enum Type
+  {
+    /**
+     * Creation.
+     */
+    CREATE,
+    /**
+     * Update.
+     */
+    UPDATE,
+    /**
+     * Deletion.
+     */
+    DELETE
+  }
+
+  private final Type _type;
+  private final Long _primaryKey;
+  private final E _object;
+
+  /**
+   * Constructor.
+   * @param type Operation type.
+   * @param primaryKey Primary key of the written object.
+   * @param object Written object, or <code>null</code> for a deletion.
+   */
+  public WriteOperation(Type type, Long primaryKey, E object)
+  {
+    _type=type;
+    _primaryKey=primaryKey;
+    _object=object;
+  }
+
+  /**
+   * Get the type of this operation.
+   * @return an operation type.
+   */
+  public Type getType()
+  {
+    return _type;
+  }
+
+  /**
+   * Get the primary key of the written object.
+   * @return a primary key.
+   */
+  public Long getPrimaryKey()
+  {
+    return _primaryKey;
+  }
+
+  /**
+   * Get the written object.
+   * @return an object, or <code>null</code> for a deletion.
+   */
+  public E getObject()
+  {
+    return _object;
+  }
+
+  /**
+   * Coalesce two successive writes on the same primary key:
+   * <ul>
+   * <li>create then update: create,
+   * <li>create then delete: nothing,
+   * <li>update then delete: delete,
+   * <li>delete then create: update,
+   * <li>otherwise, the last write wins.
+   * </ul>
+   * @param previous Previous write, or <code>null</code>.
+   * @param operation New write.
+   * @return the resulting write, or <code>null</code> if writes cancel each other.
+   */
+  static <E extends Identifiable<Long>> WriteOperation<E> merge(WriteOperation<E> previous, WriteOperation<E> operation)
+  {
+    if (previous==null)
+    {
+      return operation;
+    }
+    Type previousType=previous.getType();
+    Type type=operation.getType();
+    if (type==Type.DELETE)
+    {
+      // The object may not exist in the persistence system
+      return (previousType==Type.CREATE)?null:operation;
+    }
+    if (previousType==Type.CREATE)
+    {
+      type=Type.CREATE;
+    }
+    else
+    {
+      // The object exists in the persistence system
+      type=Type.UPDATE;
+    }
+    return new WriteOperation<E>(type,operation.getPrimaryKey(),operation.getObject());
+  }
+
+  @Override
+  public String toString()
+  {
+    return _type+" "+_primaryKey;
+  }
+}
@@ -0,0 +1,553 @@
+package delta.common.framework.objects.sql;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import delta.common.framework.objects.data.ObjectsExecutors;
+
+/**
+ * Bounded pool of JDBC connections.
+ * <p>
+ * Connections are leased for a single operation ({@link #acquire()}/{@link #release(Connection)}),
+ * or bound to the current thread for a sequence of operations, typically a transaction
+ * ({@link #bindConnection()}/{@link #unbindConnection()}): while a connection is bound,
+ * {@link #acquire()} returns it.
+ * <p>
+ * Idle connections are validated before reuse (if they have been idle for more than the
+ * validation interval), and closed when they have been idle for more than the idle timeout.
+ * <p>
+ * Session statements (see {@link #setSessionStatement(String, String)}) are executed on
+ * each connection before it is leased, if they changed since its last lease.
+ * This class is thread-safe.
+ * @author DAM
+ */
+public class ConnectionPool
+{
+  private static final Logger LOGGER=LoggerFactory.getLogger(ConnectionPool.class);
+
+  private static final int VALIDATION_TIMEOUT_SECONDS=5;
+  private static final long DEFAULT_VALIDATION_INTERVAL=TimeUnit.SECONDS.toNanos(30);
+
+  private String _url;
+  private String _user;
+  private String _password;
+  private int _maxSize;
+  private long _idleTimeout;
+  private long _validationInterval;
+  private long _acquireTimeout;
+  // Permits for leased connections
+  private Semaphore _permits;
+  // Idle connections, most recently used first
+  private ArrayDeque<IdleConnection> _idle;
+  private ThreadLocal<BoundConnection> _boundConnection;
+  private ScheduledFuture<?> _evictionTask;
+  private CopyOnWriteArrayList<ConnectionPoolListener> _listeners;
+  // Session statements, by name, and their version
+  private Map<String,String> _sessionStatements;
+  private int _sessionVersion;
+  // Version of the session statements applied to each open connection
+  private Map<Connection,Integer> _sessionVersions;
+  private volatile boolean _closed;
+
+  /**
+   * Constructor.
+   * @param url JDBC URL.
+   * @param user User.
+   * @param password Password.
+   * @param maxSize Maximum number of open connections.
+   * @param idleTimeout Time after which idle connections are closed (zero or negative to keep them).
+   * @param unit Unit of the idle timeout.
+   */
+  public ConnectionPool(String url, String user, String password, int maxSize, long idleTimeout, TimeUnit unit)
+  {
+    if (maxSize<=0)
+    {
+      throw new IllegalArgumentException("Bad pool size: "+maxSize);
+    }
+    _url=url;
+    _user=user;
+    _password=password;
+    _maxSize=maxSize;
+    _idleTimeout=(idleTimeout>0)?unit.toNanos(idleTimeout):0;
+    _validationInterval=DEFAULT_VALIDATION_INTERVAL;
+    _acquireTimeout=TimeUnit.SECONDS.toNanos(30);
+    _permits=new Semaphore(maxSize,true);
+    _idle=new ArrayDeque<IdleConnection>();
+    _boundConnection=new ThreadLocal<BoundConnection>();
+    _listeners=new CopyOnWriteArrayList<ConnectionPoolListener>();
+    _sessionStatements=new LinkedHashMap<String,String>();
+    _sessionVersion=0;
+    _sessionVersions=new IdentityHashMap<Connection,Integer>();
+    if (_idleTimeout>0)
+    {
+      long period=Math.max(TimeUnit.SECONDS.toNanos(1),_idleTimeout/2);
+      _evictionTask=ObjectsExecutors.getDefaultScheduler().scheduleWithFixedDelay(this::evictIdleConnections,period,period,TimeUnit.NANOSECONDS);
+    }
+  }
+
+  /**
+   * Set the time after which idle connections are validated before reuse.
+   * @param interval Interval (zero to always validate).
+   * @param unit Unit of interval.
+   */
+  public void setValidationInterval(long interval, TimeUnit unit)
+  {
+    _validationInterval=Math.max(0,unit.toNanos(interval));
+  }
+
+  /**
+   * Set the maximum time to wait for a connection.
+   * @param timeout Timeout.
+   * @param unit Unit of timeout.
+   */
+  public void setAcquireTimeout(long timeout, TimeUnit unit)
+  {
+    _acquireTimeout=Math.max(0,unit.toNanos(timeout));
+  }
+
+  /**
+   * Add a listener.
+   * @param listener Listener to add.
+   */
+  public void addListener(ConnectionPoolListener listener)
+  {
+    _listeners.addIfAbsent(listener);
+  }
+
+  /**
+   * Remove a listener.
+   * @param listener Listener to remove.
+   */
+  public void removeListener(ConnectionPoolListener listener)
+  {
+    _listeners.remove(listener);
+  }
+
+  /**
+   * Set a statement to execute on every connection before it is leased,
+   * typically to set a session variable. It applies to the connections leased afterwards.
+   * @param name Name of the setting, that identifies the statement to replace.
+   * @param sql Statement to execute, <code>null</code> to remove it.
+   */
+  public synchronized void setSessionStatement(String name, String sql)
+  {
+    if (sql!=null)
+    {
+      _sessionStatements.put(name,sql);
+    }
+    else
+    {
+      _sessionStatements.remove(name);
+    }
+    _sessionVersion++;
+  }
+
+  /**
+   * Get the maximum number of open connections.
+   * @return a number of connections.
+   */
+  public int getMaxSize()
+  {
+    return _maxSize;
+  }
+
+  /**
+   * Get the number of leased connections.
+   * @return a number of connections.
+   */
+  public int getActiveCount()
+  {
+    return _maxSize-_permits.availablePermits();
+  }
+
+  /**
+   * Get the number of idle connections.
+   * @return a number of connections.
+   */
+  public synchronized int getIdleCount()
+  {
+    return _idle.size();
+  }
+
+  /**
+   * Lease a connection.
+   * If a connection is bound to the current thread, it is returned.
+   * @return A connection, to give back using {@link #release(Connection)}.
+   * @throws SQLException if no connection could be obtained.
+   */
+  public Connection acquire() throws SQLException
+  {
+    BoundConnection bound=_boundConnection.get();
+    if (bound!=null)
+    {
+      return bound._connection;
+    }
+    return acquirePooledConnection();
+  }
+
+  private Connection acquirePooledConnection() throws SQLException
+  {
+    if (_closed)
+    {
+      throw new SQLException("Connection pool is closed");
+    }
+    boolean acquired;
+    try
+    {
+      acquired=_permits.tryAcquire(_acquireTimeout,TimeUnit.NANOSECONDS);
+    }
+    catch(InterruptedException ie)
+    {
+      Thread.currentThread().interrupt();
+      throw new SQLException("Interrupted while waiting for a connection",ie);
+    }
+    if (!acquired)
+    {
+      throw new SQLException("Timeout while waiting for a connection");
+    }
+    try
+    {
+      Connection ret=pollValidIdleConnection();
+      if (ret==null)
+      {
+        ret=createConnection();
+      }
+      try
+      {
+        applySessionStatements(ret);
+      }
+      catch(SQLException|RuntimeException e)
+      {
+        closeQuietly(ret);
+        throw e;
+      }
+      return ret;
+    }
+    catch(SQLException|RuntimeException e)
+    {
+      _permits.release();
+      throw e;
+    }
+  }
+
+  private Connection pollValidIdleConnection()
+  {
+    while (true)
+    {
+      IdleConnection idle;
+      synchronized (this)
+      {
+        idle=_idle.pollFirst();
+      }
+      if (idle==null)
+      {
+        return null;
+      }
+      if (System.nanoTime()-idle._since<_validationInterval)
+      {
+        return idle._connection;
+      }
+      if (isValid(idle._connection))
+      {
+        return idle._connection;
+      }
+      closeQuietly(idle._connection);
+    }
+  }
+
+  private void applySessionStatements(Connection connection) throws SQLException
+  {
+    List<String> statements;
+    int version;
+    synchronized (this)
+    {
+      version=_sessionVersion;
+      Integer applied=_sessionVersions.get(connection);
+      if ((applied!=null) && (applied.intValue()==version))
+      {
+        return;
+      }
+      statements=new ArrayList<String>(_sessionStatements.values());
+    }
+    if (!statements.isEmpty())
+    {
+      try (Statement s=connection.createStatement())
+      {
+        for(String sql : statements)
+        {
+          s.execute(sql);
+        }
+      }
+    }
+    synchronized (this)
+    {
+      _sessionVersions.put(connection,Integer.valueOf(version));
+    }
+  }
+
+  private boolean isValid(Connection connection)
+  {
+    try
+    {
+      return connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+    }
+    catch(SQLException e)
+    {
+      return false;
+    }
+  }
+
+  /**
+   * Open a new connection.
+   * @return A new connection.
+   * @throws SQLException if an error occurs.
+   */
+  protected Connection createConnection() throws SQLException
+  {
+    return DriverManager.getConnection(_url,_user,_password);
+  }
+
+  /**
+   * Give back a connection leased using {@link #acquire()}.
+   * Nothing is done if it is the connection bound to the current thread.
+   * @param connection Connection to release.
+   */
+  public void release(Connection connection)
+  {
+    if (connection==null)
+    {
+      return;
+    }
+    BoundConnection bound=_boundConnection.get();
+    if ((bound!=null) && (bound._connection==connection))
+    {
+      return;
+    }
+    releasePooledConnection(connection);
+  }
+
+  private void releasePooledConnection(Connection connection)
+  {
+    try
+    {
+      boolean reusable=!_closed && !connection.isClosed();
+      if (reusable && !connection.getAutoCommit())
+      {
+        // Never keep a pending transaction
+        connection.rollback();
+        connection.setAutoCommit(true);
+      }
+      if (reusable)
+      {
+        synchronized (this)
+        {
+          _idle.addFirst(new IdleConnection(connection,System.nanoTime()));
+        }
+      }
+      else
+      {
+        closeQuietly(connection);
+      }
+    }
+    catch(SQLException e)
+    {
+      LOGGER.warn("Discarding broken connection",e);
+      closeQuietly(connection);
+    }
+    finally
+    {
+      _permits.release();
+    }
+  }
+
+  /**
+   * Bind a connection to the current thread, until {@link #unbindConnection()}.
+   * Calls may be nested: the connection is released by the outermost unbind.
+   * @return the bound connection.
+   * @throws SQLException if no connection could be obtained.
+   */
+  public Connection bindConnection() throws SQLException
+  {
+    BoundConnection bound=_boundConnection.get();
+    if (bound==null)
+    {
+      bound=new BoundConnection(acquirePooledConnection(),true);
+      _boundConnection.set(bound);
+    }
+    bound._depth++;
+    return bound._connection;
+  }
+
+  /**
+   * Bind a connection that does not belong to this pool to the current thread,
+   * until {@link #unbindConnection()}. Meanwhile, {@link #acquire()} returns it.
+   * The outermost unbind does not close it.
+   * @param connection Connection to bind.
+   * @throws IllegalStateException if another connection is bound to the current thread.
+   */
+  public void bindConnection(Connection connection)
+  {
+    BoundConnection bound=_boundConnection.get();
+    if (bound==null)
+    {
+      bound=new BoundConnection(connection,false);
+      _boundConnection.set(bound);
+    }
+    else if (bound._connection!=connection)
+    {
+      throw new IllegalStateException("Another connection is bound to the current thread!");
+    }
+    bound._depth++;
+  }
+
+  /**
+   * Get the connection bound to the current thread.
+   * @return A connection or <code>null</code> if none.
+   */
+  public Connection getBoundConnection()
+  {
+    BoundConnection bound=_boundConnection.get();
+    return (bound!=null)?bound._connection:null;
+  }
+
+  /**
+   * Unbind the connection bound to the current thread (see {@link #bindConnection()}).
+   */
+  public void unbindConnection()
+  {
+    BoundConnection bound=_boundConnection.get();
+    if (bound==null)
+    {
+      throw new IllegalStateException("No connection bound to the current thread!");
+    }
+    bound._depth--;
+    if (bound._depth==0)
+    {
+      _boundConnection.remove();
+      if (bound._pooled)
+      {
+        releasePooledConnection(bound._connection);
+      }
+    }
+  }
+
+  /**
+   * Close the idle connections that have been idle for more than the idle timeout.
+   */
+  public void evictIdleConnections()
+  {
+    if (_idleTimeout<=0)
+    {
+      return;
+    }
+    List<Connection> toClose=new ArrayList<Connection>();
+    long now=System.nanoTime();
+    synchronized (this)
+    {
+      for(Iterator<IdleConnection> it=_idle.iterator();it.hasNext();)
+      {
+        IdleConnection idle=it.next();
+        if (now-idle._since>=_idleTimeout)
+        {
+          it.remove();
+          toClose.add(idle._connection);
+        }
+      }
+    }
+    for(Connection connection : toClose)
+    {
+      closeQuietly(connection);
+    }
+  }
+
+  /**
+   * Close this pool: idle connections are closed, leased connections
+   * are closed when they are released.
+   */
+  public void close()
+  {
+    _closed=true;
+    if (_evictionTask!=null)
+    {
+      _evictionTask.cancel(false);
+    }
+    List<IdleConnection> toClose;
+    synchronized (this)
+    {
+      toClose=new ArrayList<IdleConnection>(_idle);
+      _idle.clear();
+    }
+    for(IdleConnection idle : toClose)
+    {
+      closeQuietly(idle._connection);
+    }
+  }
+
+  private void closeQuietly(Connection connection)
+  {
+    try
+    {
+      connection.close();
+    }
+    catch(SQLException e)
+    {
+      LOGGER.error("",e);
+    }
+    synchronized (this)
+    {
+      _sessionVersions.remove(connection);
+    }
+    for(ConnectionPoolListener listener : _listeners)
+    {
+      listener.connectionClosed(connection);
+    }
+  }
+
+  /**
+   * Idle connection.
+   */
+  private static class IdleConnection
+  {
+    private Connection _connection;
+    private long _since;
+
+    private IdleConnection(Connection connection, long since)
+    {
+      _connection=connection;
+      _since=since;
+    }
+  }
+
+  /**
+   * Connection bound to a thread.
+   */
+  private static class BoundConnection
+  {
+    private Connection _connection;
+    private boolean _pooled;
+    private int _depth;
+
+    private BoundConnection(Connection connection, boolean pooled)
+    {
+      _connection=connection;
+      _pooled=pooled;
+      _depth=0;
+    }
+  }
+}
@@ -0,0 +1,17 @@
+package delta.common.framework.objects.sql;
+
+import java.sql.Connection;
+
+/**
+ * Listener for the life cycle of the connections of a connection pool.
+ * @author DAM
+ */
+public interface ConnectionPoolListener
+{
+  /**
+   * Called when a pooled connection has been closed by the pool
+   * (idle timeout, failed validation, broken connection or pool closed).
+   * @param connection Closed connection.
+   */
+  void connectionClosed(Connection connection);
+}
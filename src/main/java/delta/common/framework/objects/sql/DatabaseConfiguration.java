@@ -21,6 +21,8 @@ public class DatabaseConfiguration
   private String _jdbcUrl;
   private String _jdbcUser;
   private String _jdbcPassword;
+  private int _poolMaxSize;
+  private int _poolIdleTimeout;
 
   /**
    * Constructor.
@@ -49,6 +51,8 @@ public class DatabaseConfiguration
     _jdbcUrl=props.getProperty(_dbType+".jdbc.urlPattern","jdbc:mysql://localhost:3306/${dbName}");
     _jdbcUser=props.getProperty(_dbType+".jdbc.user","scott");
     _jdbcPassword=props.getProperty(_dbType+".jdbc.password","tiger");
+    _poolMaxSize=Integer.parseInt(props.getProperty(_dbType+".pool.maxSize","10"));
+    _poolIdleTimeout=Integer.parseInt(props.getProperty(_dbType+".pool.idleTimeout","600"));
     if (LOGGER.isInfoEnabled())
     {
       LOGGER.info("_dbType="+_dbType);
@@ -56,6 +60,8 @@ public class DatabaseConfiguration
       LOGGER.info("_jdbcUrl="+_jdbcUrl);
       LOGGER.info("_jdbcUser="+_jdbcUser);
       LOGGER.info("_jdbcPassword="+_jdbcPassword);
+      LOGGER.info("_poolMaxSize="+_poolMaxSize);
+      LOGGER.info("_poolIdleTimeout="+_poolIdleTimeout);
     }
   }
 
@@ -124,4 +130,22 @@ public class DatabaseConfiguration
   {
     return _jdbcPassword;
   }
+
+  /**
+   * Get the maximum number of connections (shared connection of the drivers included).
+   * @return a number of connections.
+   */
+  public int getPoolMaxSize()
+  {
+    return _poolMaxSize;
+  }
+
+  /**
+   * Get the time after which idle pooled connections are closed.
+   * @return a duration in seconds (zero or negative: never).
+   */
+  public int getPoolIdleTimeout()
+  {
+    return _poolIdleTimeout;
+  }
 }
@@ -5,13 +5,20 @@ import java.util.Map;
 
 /**
  * Database types.
+ * <p>
+ * A database type is also the SQL dialect of a database: it gives the best forms of
+ * the statements that differ from one database to another (upsert, pagination,
+ * multi-row insert, constraints disabling...) and the tuning of queries (maximum
+ * size of <code>IN</code> lists, streaming fetch size).
+ * Other databases may be supported by sub-classing this class: new instances are
+ * registered (see {@link #getDBTypeByName(String)}).
  * @author DAM
  */
-public final class DatabaseType
+public class DatabaseType
 {
   private static Map<String,DatabaseType> _map;
 
-  private static Map<String,DatabaseType> getMap()
+  private static synchronized Map<String,DatabaseType> getMap()
   {
     if (_map==null)
     {
@@ -26,6 +33,9 @@ public final class DatabaseType
   }
 
   private String _name;
+  private int _maxInListSize;
+  private int _streamingFetchSize;
+  private boolean _multiRowInsert;
 
   /**
    * Name of the MySQL database type.
@@ -34,7 +44,7 @@ public final class DatabaseType
   /**
    * Constant for the MySQL database type.
    */
-  public static final DatabaseType MYSQL=new DatabaseType(MYSQL_DBNAME);
+  public static final DatabaseType MYSQL=new MySQLDatabaseType(MYSQL_DBNAME);
   /**
    * Name of the HSQLDB database type.
    */
@@ -42,7 +52,7 @@ public final class DatabaseType
   /**
    * Constant for the HSQLDB database type.
    */
-  public static final DatabaseType HSQLDB=new DatabaseType(HSQLDB_DBNAME);
+  public static final DatabaseType HSQLDB=new HSQLDBDatabaseType(HSQLDB_DBNAME);
   /**
    * Name of the ORACLE database type.
    */
@@ -50,15 +60,22 @@ public final class DatabaseType
   /**
    * Constant for the Oracle database type.
    */
-  public static final DatabaseType ORACLE=new DatabaseType(ORACLE_DBNAME);
+  public static final DatabaseType ORACLE=new OracleDatabaseType(ORACLE_DBNAME);
 
   /**
-   * Private constructor.
+   * Constructor.
+   * The new type is registered.
    * @param name Name of this type.
+   * @param maxInListSize Maximum number of values in a <code>IN (...)</code> clause.
+   * @param streamingFetchSize Fetch size for streamed queries.
+   * @param multiRowInsert Indicates if <code>INSERT ... VALUES (...),(...)</code> is supported.
    */
-  private DatabaseType(String name)
+  protected DatabaseType(String name, int maxInListSize, int streamingFetchSize, boolean multiRowInsert)
   {
     _name=name;
+    _maxInListSize=maxInListSize;
+    _streamingFetchSize=streamingFetchSize;
+    _multiRowInsert=multiRowInsert;
     registerType(this);
   }
 
@@ -71,6 +88,89 @@ public final class DatabaseType
     return _name;
   }
 
+  /**
+   * Get the maximum number of values to use in a <code>IN (...)</code> clause.
+   * @return a number of values.
+   */
+  public int getMaxInListSize()
+  {
+    return _maxInListSize;
+  }
+
+  /**
+   * Get the fetch size to use for queries that stream a lot of rows.
+   * For MySQL, this is <code>Integer.MIN_VALUE</code>, that makes the driver stream
+   * rows one by one instead of reading the whole result set.
+   * @return a fetch size.
+   */
+  public int getStreamingFetchSize()
+  {
+    return _streamingFetchSize;
+  }
+
+  /**
+   * Indicates if this database supports multi-row inserts
+   * (<code>INSERT INTO t (...) VALUES (...),(...)</code>).
+   * @return <code>true</code> if it does, <code>false</code> otherwise.
+   */
+  public boolean supportsMultiRowInsert()
+  {
+    return _multiRowInsert;
+  }
+
+  /**
+   * Build a statement that inserts a row, or updates it if a row with
+   * the same primary key exists, in a single round trip.
+   * Parameters are the primary key, then the other columns, in the given order.
+   * @param tableName Table name.
+   * @param primaryKeyColumn Name of the primary key column.
+   * @param columns Names of the other columns.
+   * @return An SQL statement, or <code>null</code> if not supported (default behaviour).
+   */
+  public String buildUpsertQuery(String tableName, String primaryKeyColumn, String[] columns)
+  {
+    return null;
+  }
+
+  /**
+   * Indicates if this database supports upserts (see {@link #buildUpsertQuery(String, String, String[])}).
+   * @return <code>true</code> if it does, <code>false</code> otherwise.
+   */
+  public boolean supportsUpsert()
+  {
+    return buildUpsertQuery("t","id",new String[]{"c"})!=null;
+  }
+
+  /**
+   * Build a query that returns a page of the rows of a query.
+   * This default implementation uses the SQL:2008 <code>OFFSET ... FETCH</code> clause.
+   * @param sql Query, that shall be ordered to get stable pages.
+   * @param offset Index of the first row to get (starting at 0).
+   * @param limit Maximum number of rows to get.
+   * @return An SQL query.
+   */
+  public String buildPageQuery(String sql, long offset, int limit)
+  {
+    return sql+" OFFSET "+offset+" ROWS FETCH NEXT "+limit+" ROWS ONLY";
+  }
+
+  /**
+   * Get the statement that enables or disables the foreign key checks for a connection
+   * (typically during bulk loads).
+   * @param enable <code>true</code> to enable checks, <code>false</code> to disable them.
+   * @return An SQL statement, or <code>null</code> if not supported (default behaviour).
+   */
+  public String getForeignKeyChecksStatement(boolean enable)
+  {
+    return null;
+  }
+
+  @Override
+  public String toString()
+  {
+    return _name;
+  }
+
   /**
    * Get a database type by name.
    * @param name Name to search.
@@ -81,4 +181,22 @@ public final class DatabaseType
     DatabaseType ret=getMap().get(name);
     return ret;
   }
+
+  /**
+   * Append a comma-separated list of columns.
+   * @param sb Storage.
+   * @param prefix Prefix for each column (may be empty).
+   * @param columns Columns to append.
+   */
+  protected static void appendColumns(StringBuilder sb, String prefix, String[] columns)
+  {
+    for(int i=0;i<columns.length;i++)
+    {
+      if (i>0)
+      {
+        sb.append(',');
+      }
+      sb.append(prefix).append(columns[i]);
+    }
+  }
 }
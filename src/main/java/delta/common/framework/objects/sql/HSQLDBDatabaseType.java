@@ -0,0 +1,41 @@
+package delta.common.framework.objects.sql;
+
+/**
+ * HSQLDB dialect.
+ * @author DAM
+ */
+final class HSQLDBDatabaseType extends DatabaseType
+{
+  /**
+   * Constructor.
+   * @param name Name of this type.
+   */
+  HSQLDBDatabaseType(String name)
+  {
+    super(name,1000,1000,true);
+  }
+
+  /**
+   * Uses <code>MERGE INTO ... USING (VALUES(...))</code>.
+   */
+  @Override
+  public String buildUpsertQuery(String tableName, String primaryKeyColumn, String[] columns)
+  {
+    return MergeQueryBuilder.build(tableName,primaryKeyColumn,columns,false);
+  }
+
+  /**
+   * Uses <code>LIMIT ... OFFSET ...</code>.
+   */
+  @Override
+  public String buildPageQuery(String sql, long offset, int limit)
+  {
+    return sql+" LIMIT "+limit+" OFFSET "+offset;
+  }
+
+  @Override
+  public String getForeignKeyChecksStatement(boolean enable)
+  {
+    return "SET DATABASE REFERENTIAL INTEGRITY "+(enable?"TRUE":"FALSE");
+  }
+}
@@ -0,0 +1,79 @@
+package delta.common.framework.objects.sql;
+
+/**
+ * Builds SQL <code>MERGE</code> statements for upserts.
+ * @author DAM
+ */
+final class MergeQueryBuilder
+{
+  private MergeQueryBuilder()
+  {
+    // Nothing!
+  }
+
+  /**
+   * Build a <code>MERGE</code> statement that inserts or updates a row.
+   * Parameters are the primary key, then the other columns, in the given order.
+   * @param tableName Table name.
+   * @param primaryKeyColumn Name of the primary key column.
+   * @param columns Names of the other columns.
+   * @param selectFromDual <code>true</code> to use <code>SELECT ... FROM DUAL</code> as source,
+   * <code>false</code> to use a <code>VALUES</code> table constructor.
+   * @return An SQL statement.
+   */
+  static String build(String tableName, String primaryKeyColumn, String[] columns, boolean selectFromDual)
+  {
+    String[] allColumns=new String[columns.length+1];
+    allColumns[0]=primaryKeyColumn;
+    System.arraycopy(columns,0,allColumns,1,columns.length);
+    StringBuilder sb=new StringBuilder();
+    sb.append("MERGE INTO ").append(tableName).append(" t USING (");
+    if (selectFromDual)
+    {
+      sb.append("SELECT ");
+      for(int i=0;i<allColumns.length;i++)
+      {
+        if (i>0)
+        {
+          sb.append(',');
+        }
+        sb.append("? ").append(allColumns[i]);
+      }
+      sb.append(" FROM DUAL) v");
+    }
+    else
+    {
+      sb.append("VALUES(");
+      for(int i=0;i<allColumns.length;i++)
+      {
+        if (i>0)
+        {
+          sb.append(',');
+        }
+        sb.append('?');
+      }
+      sb.append(")) AS v(");
+      DatabaseType.appendColumns(sb,"",allColumns);
+      sb.append(')');
+    }
+    sb.append(" ON (t.").append(primaryKeyColumn).append("=v.").append(primaryKeyColumn).append(')');
+    if (columns.length>0)
+    {
+      sb.append(" WHEN MATCHED THEN UPDATE SET ");
+      for(int i=0;i<columns.length;i++)
+      {
+        if (i>0)
+        {
+          sb.append(',');
+        }
+        sb.append("t.").append(columns[i]).append("=v.").append(columns[i]);
+      }
+    }
+    sb.append(" WHEN NOT MATCHED THEN INSERT (");
+    DatabaseType.appendColumns(sb,"",allColumns);
+    sb.append(") VALUES (");
+    DatabaseType.appendColumns(sb,"v.",allColumns);
+    sb.append(')');
+    return sb.toString();
+  }
+}
@@ -0,0 +1,65 @@
+package delta.common.framework.objects.sql;
+
+/**
+ * MySQL dialect.
+ * @author DAM
+ */
+final class MySQLDatabaseType extends DatabaseType
+{
+  /**
+   * Constructor.
+   * @param name Name of this type.
+   */
+  MySQLDatabaseType(String name)
+  {
+    super(name,5000,Integer.MIN_VALUE,true);
+  }
+
+  /**
+   * Uses <code>INSERT ... ON DUPLICATE KEY UPDATE</code>.
+   */
+  @Override
+  public String buildUpsertQuery(String tableName, String primaryKeyColumn, String[] columns)
+  {
+    StringBuilder sb=new StringBuilder();
+    sb.append("INSERT INTO ").append(tableName).append(" (").append(primaryKeyColumn);
+    for(String column : columns)
+    {
+      sb.append(',').append(column);
+    }
+    sb.append(") VALUES (?");
+    for(int i=0;i<columns.length;i++)
+    {
+      sb.append(",?");
+    }
+    sb.append(") ON DUPLICATE KEY UPDATE ");
+    if (columns.length==0)
+    {
+      sb.append(primaryKeyColumn).append('=').append(primaryKeyColumn);
+    }
+    for(int i=0;i<columns.length;i++)
+    {
+      if (i>0)
+      {
+        sb.append(',');
+      }
+      sb.append(columns[i]).append("=VALUES(").append(columns[i]).append(')');
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Uses <code>LIMIT ... OFFSET ...</code>.
+   */
+  @Override
+  public String buildPageQuery(String sql, long offset, int limit)
+  {
+    return sql+" LIMIT "+limit+" OFFSET "+offset;
+  }
+
+  @Override
+  public String getForeignKeyChecksStatement(boolean enable)
+  {
+    return "SET FOREIGN_KEY_CHECKS="+(enable?"1":"0");
+  }
+}
@@ -1,23 +1,63 @@
 package delta.common.framework.objects.sql;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import delta.common.framework.objects.data.Identifiable;
 import delta.common.framework.objects.data.ObjectsConnector;
+import delta.common.framework.objects.data.PartialWriteException;
 
 /**
  * JDBC-based objects driver.
+ * <p>
+ * Sub-classes that describe their table (see {@link #getTableName()},
+ * {@link #getPrimaryKeyColumnName()}, {@link #getSelectColumns()} and
+ * {@link #readObject(ResultSet)}) get default implementations of bulk operations.
+ * Bulk operations use pooled connections when a pool is set (see
+ * {@link #leaseConnection()}), so that they may run concurrently.
+ * Sub-classes that also describe their columns (see {@link #getColumnNames()} and
+ * {@link #bindColumns(PreparedStatement, int, Identifiable)}) get batched bulk writes,
+ * if a connection pool is set (bulk writes manage auto-commit, so they never use the
+ * shared connection outside of a transaction).
  * @author DAM
  * @param <E> Type of the data objects to manage.
  */
 public class ObjectSqlDriver<E extends Identifiable<Long>> extends ObjectsConnector<E>
 {
+  private static final Logger LOGGER=LoggerFactory.getLogger(ObjectSqlDriver.class);
+
+  private static final int DEFAULT_MAX_IN_LIST_SIZE=1000;
+  private static final int DEFAULT_STREAMING_FETCH_SIZE=500;
+  private static final int DEFAULT_STATEMENT_CACHE_SIZE=50;
+  private static final int DEFAULT_BATCH_SIZE=500;
+  private static final int DEFAULT_COMMIT_SIZE=10000;
+  // Maximum number of parameters in a multi-row insert statement
+  private static final int MAX_STATEMENT_PARAMETERS=30000;
+
   private Connection _connection;
+  private ConnectionPool _pool;
   private DatabaseType _dbType;
+  private StatementCache _statementCache;
+  private int _batchSize;
+  private int _commitSize;
 
   protected ObjectSqlDriver()
   {
-    // Nothing !!
+    _statementCache=new StatementCache(DEFAULT_STATEMENT_CACHE_SIZE);
+    _batchSize=DEFAULT_BATCH_SIZE;
+    _commitSize=DEFAULT_COMMIT_SIZE;
   }
 
   protected boolean usesHSQLDB()
@@ -25,6 +65,15 @@ public class ObjectSqlDriver<E extends Identifiable<Long>> extends ObjectsConnec
     return (_dbType==DatabaseType.HSQLDB);
   }
 
+  /**
+   * Get the database type.
+   * @return a database type or <code>null</code> if not connected.
+   */
+  public DatabaseType getDatabaseType()
+  {
+    return _dbType;
+  }
+
   /**
    * Set the connection to use with this driver.
    * @param c Connection to use.
@@ -50,8 +99,112 @@ public class ObjectSqlDriver<E extends Identifiable<Long>> extends ObjectsConnec
     return _connection;
   }
 
+  /**
+   * Set the connection pool to use with this driver.
+   * @param pool Connection pool to use, or <code>null</code> to use the managed connection.
+   */
+  public void setConnectionPool(ConnectionPool pool)
+  {
+    if (_pool!=null)
+    {
+      _pool.removeListener(_statementCache);
+    }
+    _pool=pool;
+    if (_pool!=null)
+    {
+      _pool.addListener(_statementCache);
+    }
+  }
+
+  /**
+   * Get the connection pool.
+   * @return the connection pool, or <code>null</code> if none.
+   */
+  public ConnectionPool getConnectionPool()
+  {
+    return _pool;
+  }
+
+  /**
+   * Indicates if this driver has a connection or a connection pool.
+   * @return <code>true</code> if it does, <code>false</code> otherwise.
+   */
+  protected boolean isConnected()
+  {
+    return (_pool!=null) || (_connection!=null);
+  }
+
+  /**
+   * Lease a connection for an operation.
+   * It is the connection of the transaction of the current thread if any,
+   * a pooled connection otherwise, or the managed connection if there's no pool.
+   * @return A connection, to give back using {@link #releaseConnection(Connection)}.
+   * @throws SQLException if no connection could be obtained.
+   */
+  protected Connection leaseConnection() throws SQLException
+  {
+    if (_pool!=null)
+    {
+      return _pool.acquire();
+    }
+    if (_connection==null)
+    {
+      throw new SQLException("No connection");
+    }
+    return _connection;
+  }
+
+  /**
+   * Give back a connection leased using {@link #leaseConnection()}.
+   * @param connection Connection to release.
+   */
+  protected void releaseConnection(Connection connection)
+  {
+    if ((_pool!=null) && (connection!=_connection))
+    {
+      _pool.release(connection);
+    }
+  }
+
+  /**
+   * Get the cache of the prepared statements of this driver.
+   * @return the statement cache.
+   */
+  public StatementCache getStatementCache()
+  {
+    return _statementCache;
+  }
+
+  /**
+   * Get a prepared statement from the statement cache (see {@link #getStatementCache()}).
+   * It shall be given back using {@link #releaseStatement(Connection, PreparedStatement)},
+   * once its result sets are closed.
+   * @param connection Connection to use.
+   * @param sql SQL text.
+   * @return A prepared statement.
+   * @throws SQLException if the statement could not be prepared.
+   */
+  protected PreparedStatement prepareStatement(Connection connection, String sql) throws SQLException
+  {
+    return _statementCache.prepareStatement(connection,sql);
+  }
+
+  /**
+   * Give back a statement obtained using {@link #prepareStatement(Connection, String)}.
+   * @param connection Connection of this statement.
+   * @param statement Statement to release (may be <code>null</code>).
+   */
+  protected void releaseStatement(Connection connection, PreparedStatement statement)
+  {
+    _statementCache.releaseStatement(connection,statement);
+  }
+
   protected void connectionChanged(Connection oldConnection, Connection newConnection)
   {
+    if (oldConnection!=null)
+    {
+      _statementCache.removeConnection(oldConnection);
+    }
     destroyPreparedStatements(oldConnection);
     buildPreparedStatements(newConnection);
   }
@@ -65,4 +218,734 @@ public class ObjectSqlDriver<E extends Identifiable<Long>> extends ObjectsConnec
   {
     // Nothing to do !
   }
+
+  /**
+   * Get the name of the table of the managed objects.
+   * @return a table name, or <code>null</code> if the default bulk operations shall not be used.
+   */
+  protected String getTableName()
+  {
+    return null;
+  }
+
+  /**
+   * Get the name of the primary key column.
+   * @return a column name.
+   */
+  protected String getPrimaryKeyColumnName()
+  {
+    return "id";
+  }
+
+  /**
+   * Get the columns to select when loading objects.
+   * @return a comma-separated list of columns.
+   */
+  protected String getSelectColumns()
+  {
+    return "*";
+  }
+
+  /**
+   * Build an object from the current row of a result set.
+   * The result set contains the columns given by {@link #getSelectColumns()}.
+   * @param rs Result set to read.
+   * @return the loaded object.
+   * @throws SQLException if an error occurs.
+   */
+  protected E readObject(ResultSet rs) throws SQLException
+  {
+    return null;
+  }
+
+  /**
+   * Get the names of the columns written for an object, primary key excepted.
+   * @return column names, or <code>null</code> if the default bulk writes shall not be used.
+   */
+  protected String[] getColumnNames()
+  {
+    return null;
+  }
+
+  /**
+   * Bind the values of the columns given by {@link #getColumnNames()}, in the same order.
+   * @param statement Statement to use.
+   * @param index Index of the first parameter to bind.
+   * @param object Object to write.
+   * @return the index of the next parameter.
+   * @throws SQLException if an error occurs.
+   */
+  protected int bindColumns(PreparedStatement statement, int index, E object) throws SQLException
+  {
+    return index;
+  }
+
+  /**
+   * Set the number of rows sent to the database at once by bulk writes.
+   * @param batchSize Batch size.
+   */
+  public void setBatchSize(int batchSize)
+  {
+    _batchSize=Math.max(1,batchSize);
+  }
+
+  /**
+   * Get the number of rows sent to the database at once by bulk writes.
+   * @return a number of rows.
+   */
+  public int getBatchSize()
+  {
+    return _batchSize;
+  }
+
+  /**
+   * Set the number of rows committed at once by bulk writes made outside of a transaction.
+   * Within a transaction, bulk writes are committed with the transaction.
+   * @param commitSize Commit size.
+   */
+  public void setCommitSize(int commitSize)
+  {
+    _commitSize=Math.max(1,commitSize);
+  }
+
+  /**
+   * Get the number of rows committed at once by bulk writes made outside of a transaction.
+   * @return a number of rows.
+   */
+  public int getCommitSize()
+  {
+    return _commitSize;
+  }
+
+  /**
+   * Get the maximum number of values in a <code>IN (...)</code> clause.
+   * @return a number of values.
+   */
+  protected int getMaxInListSize()
+  {
+    return (_dbType!=null)?_dbType.getMaxInListSize():DEFAULT_MAX_IN_LIST_SIZE;
+  }
+
+  /**
+   * Get a stream on all the objects of the managed class.
+   * If the table of the managed objects is described, rows are read from a
+   * forward-only result set, so that the whole table is never held in memory.
+   * The returned stream shall be closed after use: this closes the result set.
+   * @return a stream of such objects.
+   */
+  @Override
+  public Stream<E> streamAll()
+  {
+    String tableName=getTableName();
+    if ((tableName==null) || (!isConnected()))
+    {
+      return super.streamAll();
+    }
+    String sql="SELECT "+getSelectColumns()+" FROM "+tableName;
+    Connection connection=null;
+    PreparedStatement statement=null;
+    ResultSet rs=null;
+    try
+    {
+      connection=leaseConnection();
+      statement=prepareStatement(connection,sql);
+      int fetchSize=(_dbType!=null)?_dbType.getStreamingFetchSize():DEFAULT_STREAMING_FETCH_SIZE;
+      statement.setFetchSize(fetchSize);
+      rs=statement.executeQuery();
+    }
+    catch(SQLException sqlException)
+    {
+      closeQuietly(rs,null);
+      releaseStatement(connection,statement);
+      releaseConnection(connection);
+      throw new IllegalStateException("Cannot query table: "+tableName,sqlException);
+    }
+    final Connection queryConnection=connection;
+    final ResultSet resultSet=rs;
+    final PreparedStatement queryStatement=statement;
+    Spliterator<E> spliterator=new Spliterators.AbstractSpliterator<E>(Long.MAX_VALUE,Spliterator.NONNULL|Spliterator.ORDERED)
+    {
+      @Override
+      public boolean tryAdvance(Consumer<? super E> action)
+      {
+        try
+        {
+          while (resultSet.next())
+          {
+            E object=readObject(resultSet);
+            if (object!=null)
+            {
+              action.accept(object);
+              return true;
+            }
+          }
+          return false;
+        }
+        catch(SQLException sqlException)
+        {
+          throw new IllegalStateException("Cannot read table: "+getTableName(),sqlException);
+        }
+      }
+    };
+    return StreamSupport.stream(spliterator,false).onClose(() -> {
+      closeQuietly(resultSet,null);
+      releaseStatement(queryConnection,queryStatement);
+      releaseConnection(queryConnection);
+    });
+  }
+
+  /**
+   * Get a list of objects of the managed class, designated by their primary keys.
+   * If the table of the managed objects is described, objects are loaded
+   * by chunks, using <code>SELECT ... WHERE pk IN (...)</code> queries.
+   * @param primaryKeys List of primary keys to use.
+   * @return A list of objects, in the order of the given keys.
+   * @throws IllegalStateException if a query fails: no partial result is returned.
+   */
+  @Override
+  public List<E> getByPrimaryKeyList(List<Long> primaryKeys)
+  {
+    if ((getTableName()==null) || (!isConnected()))
+    {
+      return super.getByPrimaryKeyList(primaryKeys);
+    }
+    return getByPrimaryKeys(toPrimaryKeyValues(primaryKeys));
+  }
+
+  /**
+   * Get a list of objects of the managed class, designated by their primary keys.
+   * If the table of the managed objects is described, objects are loaded
+   * by chunks, using <code>SELECT ... WHERE pk IN (...)</code> queries.
+   * @param primaryKeys Primary keys to use.
+   * @return A list of objects, in the order of the given keys.
+   * @throws IllegalStateException if a query fails: no partial result is returned.
+   */
+  @Override
+  public List<E> getByPrimaryKeys(long[] primaryKeys)
+  {
+    String tableName=getTableName();
+    if ((tableName==null) || (!isConnected()))
+    {
+      return super.getByPrimaryKeys(primaryKeys);
+    }
+    List<E> loadedObjects=new ArrayList<E>(primaryKeys.length);
+    int nbKeys=primaryKeys.length;
+    int chunkSize=Math.max(1,getMaxInListSize());
+    Connection connection=null;
+    try
+    {
+      connection=leaseConnection();
+      for(int start=0;start<nbKeys;start+=chunkSize)
+      {
+        loadChunk(connection,tableName,primaryKeys,start,Math.min(nbKeys,start+chunkSize),loadedObjects);
+      }
+    }
+    catch(SQLException sqlException)
+    {
+      throw new IllegalStateException("Cannot load objects from table: "+tableName,sqlException);
+    }
+    finally
+    {
+      releaseConnection(connection);
+    }
+    return sortByKeys(primaryKeys,loadedObjects);
+  }
+
+  private void loadChunk(Connection connection, String tableName, long[] primaryKeys, int start, int end, List<E> storage) throws SQLException
+  {
+    String sql=buildSelectByKeysQuery(tableName,end-start);
+    PreparedStatement statement=null;
+    ResultSet rs=null;
+    try
+    {
+      statement=prepareStatement(connection,sql);
+      int index=1;
+      for(int i=start;i<end;i++)
+      {
+        statement.setLong(index,primaryKeys[i]);
+        index++;
+      }
+      rs=statement.executeQuery();
+      while (rs.next())
+      {
+        E object=readObject(rs);
+        if (object!=null)
+        {
+          storage.add(object);
+        }
+      }
+    }
+    finally
+    {
+      closeQuietly(rs,null);
+      releaseStatement(connection,statement);
+    }
+  }
+
+  private String buildSelectByKeysQuery(String tableName, int nbKeys)
+  {
+    StringBuilder sb=new StringBuilder();
+    sb.append("SELECT ").append(getSelectColumns());
+    sb.append(" FROM ").append(tableName);
+    sb.append(" WHERE ").append(getPrimaryKeyColumnName()).append(" IN (");
+    appendParameters(sb,nbKeys);
+    sb.append(')');
+    return sb.toString();
+  }
+
+  /**
+   * Create a series of objects.
+   * If the table and columns of the managed objects are described and a connection pool is set, objects are
+   * inserted by batches (using multi-row inserts if the database supports it).
+   * Objects without primary key are created one by one (see {@link #create(Identifiable)}).
+   * @param objectsToCreate Objects to create.
+   * @throws PartialWriteException if it fails after some objects were committed
+   * (only if all the objects have a primary key).
+   */
+  @Override
+  public void createAll(List<E> objectsToCreate)
+  {
+    final String tableName=getTableName();
+    final String[] columns=getColumnNames();
+    if ((tableName==null) || (columns==null) || (_pool==null))
+    {
+      super.createAll(objectsToCreate);
+      return;
+    }
+    List<E> objects=new ArrayList<E>(objectsToCreate.size());
+    List<E> objectsWithoutKey=new ArrayList<E>();
+    for(E object : objectsToCreate)
+    {
+      if (object.getPrimaryKey()!=null)
+      {
+        objects.add(object);
+      }
+      else
+      {
+        objectsWithoutKey.add(object);
+      }
+    }
+    boolean multiRow=(_dbType!=null) && (_dbType.supportsMultiRowInsert());
+    ChunkWriter writer;
+    if (multiRow)
+    {
+      int rowsPerStatement=Math.max(1,Math.min(_batchSize,MAX_STATEMENT_PARAMETERS/(columns.length+1)));
+      writer=(connection,start,end) -> {
+        for(int index=start;index<end;index+=rowsPerStatement)
+        {
+          int nbRows=Math.min(rowsPerStatement,end-index);
+          PreparedStatement statement=prepareStatement(connection,buildInsertQuery(tableName,columns,nbRows));
+          try
+          {
+            int parameterIndex=1;
+            for(int i=index;i<index+nbRows;i++)
+            {
+              parameterIndex=bindInsert(statement,parameterIndex,objects.get(i));
+            }
+            statement.executeUpdate();
+          }
+          finally
+          {
+            releaseStatement(connection,statement);
+          }
+        }
+      };
+    }
+    else
+    {
+      final String sql=buildInsertQuery(tableName,columns,1);
+      writer=(connection,start,end) -> {
+        executeBatches(connection,sql,objects,start,end,(statement,object) -> bindInsert(statement,1,object));
+      };
+    }
+    try
+    {
+      writeByChunks("create",objects,writer);
+    }
+    catch(PartialWriteException e)
+    {
+      if (!objectsWithoutKey.isEmpty())
+      {
+        // Written objects are not the first ones of the given list
+        throw new IllegalStateException(e.getMessage(),e.getCause());
+      }
+      throw e;
+    }
+    for(E object : objectsWithoutKey)
+    {
+      create(object);
+    }
+  }
+
+  /**
+   * Update a series of objects.
+   * If the table and columns of the managed objects are described and a connection pool is set, objects are
+   * updated by batches.
+   * @param objectsToUpdate Objects to update.
+   * @throws PartialWriteException if it fails after some objects were committed.
+   */
+  @Override
+  public void updateAll(List<E> objectsToUpdate)
+  {
+    final String tableName=getTableName();
+    final String[] columns=getColumnNames();
+    if ((tableName==null) || (columns==null) || (_pool==null))
+    {
+      super.updateAll(objectsToUpdate);
+      return;
+    }
+    final String sql=buildUpdateQuery(tableName,columns);
+    writeByChunks("update",objectsToUpdate,(connection,start,end) -> {
+      executeBatches(connection,sql,objectsToUpdate,start,end,(statement,object) -> {
+        int index=bindColumns(statement,1,object);
+        statement.setLong(index,getPrimaryKey(object));
+      });
+    });
+  }
+
+  /**
+   * Delete a series of objects.
+   * If the table of the managed objects is described and a connection pool is set, objects are deleted
+   * by chunks, using <code>DELETE ... WHERE pk IN (...)</code> statements.
+   * @param primaryKeys Primary keys of the objects to delete.
+   * @throws PartialWriteException if it fails after some objects were committed.
+   */
+  @Override
+  public void deleteAll(List<Long> primaryKeys)
+  {
+    final String tableName=getTableName();
+    if ((tableName==null) || (_pool==null))
+    {
+      super.deleteAll(primaryKeys);
+      return;
+    }
+    final int chunkSize=Math.max(1,getMaxInListSize());
+    writeByChunks("delete",primaryKeys,(connection,start,end) -> {
+      for(int index=start;index<end;index+=chunkSize)
+      {
+        int nbKeys=Math.min(chunkSize,end-index);
+        PreparedStatement statement=prepareStatement(connection,buildDeleteByKeysQuery(tableName,nbKeys));
+        try
+        {
+          for(int i=0;i<nbKeys;i++)
+          {
+            statement.setLong(i+1,primaryKeys.get(index+i).longValue());
+          }
+          statement.executeUpdate();
+        }
+        finally
+        {
+          releaseStatement(connection,statement);
+        }
+      }
+    });
+  }
+
+  /**
+   * Create or update a series of objects, using the upsert statement of the database
+   * (see {@link DatabaseType#buildUpsertQuery(String, String, String[])}), by batches.
+   * The table and columns of the managed objects shall be described.
+   * @param objects Objects to write.
+   */
+  public void upsertAll(final List<E> objects)
+  {
+    final String tableName=getTableName();
+    final String[] columns=getColumnNames();
+    if ((tableName==null) || (columns==null) || (_pool==null))
+    {
+      throw new IllegalStateException("Table and columns are not described, or no connection pool!");
+    }
+    final String sql=(_dbType!=null)?_dbType.buildUpsertQuery(tableName,getPrimaryKeyColumnName(),columns):null;
+    if (sql==null)
+    {
+      throw new IllegalStateException("Upserts are not supported by database type: "+_dbType);
+    }
+    writeByChunks("upsert",objects,(connection,start,end) -> {
+      executeBatches(connection,sql,objects,start,end,(statement,object) -> bindInsert(statement,1,object));
+    });
+  }
+
+  /**
+   * Get a page of the objects of the managed class, ordered by primary key.
+   * The table of the managed objects shall be described.
+   * @param offset Index of the first object to get (starting at 0).
+   * @param limit Maximum number of objects to get.
+   * @return A list of objects.
+   * @throws IllegalStateException if the query fails: no partial page is returned.
+   */
+  public List<E> getPage(long offset, int limit)
+  {
+    String tableName=getTableName();
+    if ((tableName==null) || (!isConnected()) || (_dbType==null))
+    {
+      throw new IllegalStateException("Table is not described!");
+    }
+    String sql="SELECT "+getSelectColumns()+" FROM "+tableName+" ORDER BY "+getPrimaryKeyColumnName();
+    // Not cached: offset and limit are part of the SQL text
+    sql=_dbType.buildPageQuery(sql,offset,limit);
+    List<E> ret=new ArrayList<E>();
+    Connection connection=null;
+    PreparedStatement statement=null;
+    ResultSet rs=null;
+    try
+    {
+      connection=leaseConnection();
+      statement=connection.prepareStatement(sql);
+      rs=statement.executeQuery();
+      while (rs.next())
+      {
+        E object=readObject(rs);
+        if (object!=null)
+        {
+          ret.add(object);
+        }
+      }
+    }
+    catch(SQLException sqlException)
+    {
+      throw new IllegalStateException("Cannot load page from table: "+tableName,sqlException);
+    }
+    finally
+    {
+      closeQuietly(rs,statement);
+      releaseConnection(connection);
+    }
+    return ret;
+  }
+
+  /**
+   * Writer for a chunk of items.
+   */
+  private interface ChunkWriter
+  {
+    void write(Connection connection, int start, int end) throws SQLException;
+  }
+
+  /**
+   * Binder for the parameters of a statement.
+   * @param <T> Type of items.
+   */
+  private interface ParametersBinder<T>
+  {
+    void bind(PreparedStatement statement, T item) throws SQLException;
+  }
+
+  /**
+   * Write items by chunks of at most <code>commitSize</code> items.
+   * Outside of a transaction, each chunk is committed (or rolled back) on its own.
+   * @param operation Name of the operation (for errors).
+   * @param items Items to write.
+   * @param writer Writer.
+   * @throws PartialWriteException if a chunk fails after previous chunks were committed.
+   */
+  private void writeByChunks(String operation, List<?> items, ChunkWriter writer)
+  {
+    if (items.isEmpty())
+    {
+      return;
+    }
+    Connection connection=null;
+    boolean ownTransaction=false;
+    int nbCommitted=0;
+    try
+    {
+      connection=leaseConnection();
+      ownTransaction=connection.getAutoCommit();
+      if (ownTransaction)
+      {
+        connection.setAutoCommit(false);
+      }
+      int nbItems=items.size();
+      int chunkSize=ownTransaction?_commitSize:nbItems;
+      for(int start=0;start<nbItems;start+=chunkSize)
+      {
+        int end=Math.min(nbItems,start+chunkSize);
+        writer.write(connection,start,end);
+        if (ownTransaction)
+        {
+          connection.commit();
+          nbCommitted=end;
+        }
+      }
+    }
+    catch(SQLException|RuntimeException e)
+    {
+      if (ownTransaction)
+      {
+        rollbackQuietly(connection);
+      }
+      String message="Cannot "+operation+" objects in table: "+getTableName();
+      if (nbCommitted>0)
+      {
+        throw new PartialWriteException(message+" ("+nbCommitted+" written)",nbCommitted,e);
+      }
+      if (e instanceof RuntimeException)
+      {
+        throw (RuntimeException)e;
+      }
+      throw new IllegalStateException(message,e);
+    }
+    finally
+    {
+      if (ownTransaction)
+      {
+        resetAutoCommit(connection);
+      }
+      releaseConnection(connection);
+    }
+  }
+
+  private <T> void executeBatches(Connection connection, String sql, List<T> items, int start, int end, ParametersBinder<T> binder) throws SQLException
+  {
+    PreparedStatement statement=prepareStatement(connection,sql);
+    try
+    {
+      int nbRows=0;
+      for(int i=start;i<end;i++)
+      {
+        binder.bind(statement,items.get(i));
+        statement.addBatch();
+        nbRows++;
+        if (nbRows==_batchSize)
+        {
+          statement.executeBatch();
+          nbRows=0;
+        }
+      }
+      if (nbRows>0)
+      {
+        statement.executeBatch();
+      }
+    }
+    finally
+    {
+      releaseStatement(connection,statement);
+    }
+  }
+
+  private int bindInsert(PreparedStatement statement, int index, E object) throws SQLException
+  {
+    statement.setLong(index,getPrimaryKey(object));
+    return bindColumns(statement,index+1,object);
+  }
+
+  private long getPrimaryKey(E object)
+  {
+    Long primaryKey=object.getPrimaryKey();
+    if (primaryKey==null)
+    {
+      throw new IllegalArgumentException("No primary key for object: "+object);
+    }
+    return primaryKey.longValue();
+  }
+
+  private void rollbackQuietly(Connection connection)
+  {
+    try
+    {
+      connection.rollback();
+    }
+    catch(SQLException e)
+    {
+      LOGGER.error("",e);
+    }
+  }
+
+  private void resetAutoCommit(Connection connection)
+  {
+    try
+    {
+      connection.setAutoCommit(true);
+    }
+    catch(SQLException e)
+    {
+      LOGGER.error("",e);
+    }
+  }
+
+  private String buildInsertQuery(String tableName, String[] columns, int nbRows)
+  {
+    StringBuilder sb=new StringBuilder();
+    sb.append("INSERT INTO ").append(tableName).append(" (").append(getPrimaryKeyColumnName());
+    for(String column : columns)
+    {
+      sb.append(',').append(column);
+    }
+    sb.append(") VALUES ");
+    for(int row=0;row<nbRows;row++)
+    {
+      if (row>0)
+      {
+        sb.append(',');
+      }
+      sb.append('(');
+      appendParameters(sb,columns.length+1);
+      sb.append(')');
+    }
+    return sb.toString();
+  }
+
+  private String buildUpdateQuery(String tableName, String[] columns)
+  {
+    StringBuilder sb=new StringBuilder();
+    sb.append("UPDATE ").append(tableName).append(" SET ");
+    for(int i=0;i<columns.length;i++)
+    {
+      if (i>0)
+      {
+        sb.append(',');
+      }
+      sb.append(columns[i]).append("=?");
+    }
+    sb.append(" WHERE ").append(getPrimaryKeyColumnName()).append("=?");
+    return sb.toString();
+  }
+
+  private String buildDeleteByKeysQuery(String tableName, int nbKeys)
+  {
+    StringBuilder sb=new StringBuilder();
+    sb.append("DELETE FROM ").append(tableName);
+    sb.append(" WHERE ").append(getPrimaryKeyColumnName()).append(" IN (");
+    appendParameters(sb,nbKeys);
+    sb.append(')');
+    return sb.toString();
+  }
+
+  private static void appendParameters(StringBuilder sb, int nbParameters)
+  {
+    for(int i=0;i<nbParameters;i++)
+    {
+      if (i>0)
+      {
+        sb.append(',');
+      }
+      sb.append('?');
+    }
+  }
+
+  protected static void closeQuietly(ResultSet rs, PreparedStatement statement)
+  {
+    if (rs!=null)
+    {
+      try
+      {
+        rs.close();
+      }
+      catch(SQLException e)
+      {
+        LOGGER.error("",e);
+      }
+    }
+    if (statement!=null)
+    {
+      try
+      {
+        statement.close();
+      }
+      catch(SQLException e)
+      {
+        LOGGER.error("",e);
+      }
+    }
+  }
 }
@@ -5,22 +5,34 @@ import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Manages the persistence drivers for an objects source.
+ * <p>
+ * Drivers get a shared connection (used by their prepared statements) and a pool of
+ * connections (used by concurrent bulk operations). The shared connection counts in the
+ * maximum number of connections of the configuration. Transactions use the shared connection,
+ * so that all the writes of the drivers take part in them: during a transaction, the shared
+ * connection is bound to the calling thread (bulk operations of this thread use it), and
+ * calls made on it by other threads wait until the transaction ends (see {@link SharedConnection}).
  * @author DAM
  */
 public class ObjectSqlDriverManager
 {
   private static final Logger LOGGER=LoggerFactory.getLogger(ObjectSqlDriverManager.class);
+  private static final String FOREIGN_KEY_CHECKS="foreignKeyChecks";
   private String _dbName;
   private DatabaseConfiguration _databaseCfg;
   private DatabaseType _databaseType;
   private Connection _dbConnection;
+  private ConnectionPool _pool;
   private HashMap<Class<?>,ObjectSqlDriver<?>> _drivers;
+  private ReentrantLock _transactionLock;
 
   /**
    * Default constructor.
@@ -32,6 +44,7 @@ public class ObjectSqlDriverManager
     _dbName=dbName;
     _databaseCfg=databaseCfg;
     _drivers=new HashMap<Class<?>,ObjectSqlDriver<?>>();
+    _transactionLock=new ReentrantLock();
   }
 
   /**
@@ -53,6 +66,7 @@ public class ObjectSqlDriverManager
     buildConnection();
     for(ObjectSqlDriver<?> driver : _drivers.values())
     {
+      driver.setConnectionPool(_pool);
       driver.setConnection(_dbConnection,_databaseType);
     }
   }
@@ -66,20 +80,49 @@ public class ObjectSqlDriverManager
     String url=_databaseCfg.getJdbcUrl(_dbName);
     String user=_databaseCfg.getJdbcUser();
     String password=_databaseCfg.getJdbcPassword();
-    _dbConnection=DriverManager.getConnection(url,user,password);
+    _dbConnection=SharedConnection.wrap(DriverManager.getConnection(url,user,password),_transactionLock);
+    // The shared connection is one of the allowed connections
+    int poolSize=Math.max(1,_databaseCfg.getPoolMaxSize()-1);
+    _pool=new ConnectionPool(url,user,password,poolSize,_databaseCfg.getPoolIdleTimeout(),TimeUnit.SECONDS);
   }
 
   /**
-   * Set the flag that drives foreign key checks.
+   * Get the connection pool.
+   * @return the connection pool, or <code>null</code> if not started.
+   */
+  public ConnectionPool getConnectionPool()
+  {
+    return _pool;
+  }
+
+  /**
+   * Set the flag that drives foreign key checks, if the database supports it
+   * (see {@link DatabaseType#getForeignKeyChecksStatement(boolean)}).
+   * It applies to the shared connection, and to the pooled connections
+   * leased afterwards (see {@link ConnectionPool#setSessionStatement(String, String)}).
    * @param doCheck <code>true</code> to perform checks, <code>false</code> otherwise.
    */
   public void setForeignKeyChecks(boolean doCheck)
+  {
+    String sql=(_databaseType!=null)?_databaseType.getForeignKeyChecksStatement(doCheck):null;
+    if (sql==null)
+    {
+      LOGGER.warn("Foreign key checks cannot be changed for database type: "+_databaseType);
+      return;
+    }
+    if (_pool!=null)
+    {
+      _pool.setSessionStatement(FOREIGN_KEY_CHECKS,sql);
+    }
+    setForeignKeyChecks(_dbConnection,sql);
+  }
+
+  private void setForeignKeyChecks(Connection connection, String sql)
   {
     Statement s=null;
     try
     {
-      s=_dbConnection.createStatement();
-      String sql="SET FOREIGN_KEY_CHECKS="+(doCheck?"1":"0");
+      s=connection.createStatement();
       s.execute(sql);
     }
     catch(Exception e)
@@ -103,6 +146,96 @@ public class ObjectSqlDriverManager
     }
   }
 
+  /**
+   * Start a transaction: auto-commit is disabled on the shared connection until {@link #commit()}
+   * or {@link #rollback()}, and this connection is bound to the calling thread.
+   * Transactions are serialized. Meanwhile, other threads cannot use the shared connection:
+   * their calls on it wait until the transaction ends.
+   * @throws IllegalStateException if the calling thread already has a transaction.
+   */
+  public void beginTransaction()
+  {
+    if ((_pool==null) || (_dbConnection==null))
+    {
+      throw new IllegalStateException("Not started!");
+    }
+    if (_transactionLock.isHeldByCurrentThread())
+    {
+      throw new IllegalStateException("Nested transactions are not supported!");
+    }
+    _transactionLock.lock();
+    try
+    {
+      _dbConnection.setAutoCommit(false);
+    }
+    catch(SQLException e)
+    {
+      _transactionLock.unlock();
+      throw new IllegalStateException("Cannot start transaction",e);
+    }
+    _pool.bindConnection(_dbConnection);
+  }
+
+  private void checkTransaction()
+  {
+    if (!_transactionLock.isHeldByCurrentThread())
+    {
+      throw new IllegalStateException("No transaction for the current thread!");
+    }
+  }
+
+  /**
+   * Commit the current transaction.
+   * If it fails, the transaction is still active: use {@link #rollback()}.
+   */
+  public void commit()
+  {
+    checkTransaction();
+    try
+    {
+      _dbConnection.commit();
+    }
+    catch(SQLException e)
+    {
+      throw new IllegalStateException("Cannot commit transaction",e);
+    }
+    endTransaction();
+  }
+
+  /**
+   * Roll back the current transaction.
+   */
+  public void rollback()
+  {
+    checkTransaction();
+    try
+    {
+      _dbConnection.rollback();
+    }
+    catch(SQLException e)
+    {
+      LOGGER.error("Cannot roll back transaction",e);
+    }
+    endTransaction();
+  }
+
+  private void endTransaction()
+  {
+    try
+    {
+      _dbConnection.setAutoCommit(true);
+    }
+    catch(SQLException e)
+    {
+      LOGGER.error("",e);
+    }
+    finally
+    {
+      _pool.unbindConnection();
+      _transactionLock.unlock();
+    }
+  }
+
   /**
    * Get the database type.
    * @return a database type.
@@ -117,6 +250,10 @@ public class ObjectSqlDriverManager
    */
   public void close()
   {
+    for(ObjectSqlDriver<?> driver : _drivers.values())
+    {
+      driver.getStatementCache().clear();
+    }
     try
     {
       if (_dbConnection!=null)
@@ -129,5 +266,10 @@ public class ObjectSqlDriverManager
     {
       LOGGER.error("",e);
     }
+    if (_pool!=null)
+    {
+      _pool.close();
+      _pool=null;
+    }
   }
 }
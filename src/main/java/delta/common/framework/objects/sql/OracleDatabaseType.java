@@ -0,0 +1,29 @@
+package delta.common.framework.objects.sql;
+
+/**
+ * Oracle dialect.
+ * <p>
+ * Pagination uses the <code>OFFSET ... FETCH</code> clause (Oracle 12c and later).
+ * Foreign key checks cannot be disabled at connection level.
+ * @author DAM
+ */
+final class OracleDatabaseType extends DatabaseType
+{
+  /**
+   * Constructor.
+   * @param name Name of this type.
+   */
+  OracleDatabaseType(String name)
+  {
+    super(name,1000,500,false);
+  }
+
+  /**
+   * Uses <code>MERGE INTO ... USING (SELECT ... FROM DUAL)</code>.
+   */
+  @Override
+  public String buildUpsertQuery(String tableName, String primaryKeyColumn, String[] columns)
+  {
+    return MergeQueryBuilder.build(tableName,primaryKeyColumn,columns,true);
+  }
+}
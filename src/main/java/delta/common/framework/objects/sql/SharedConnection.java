@@ -0,0 +1,96 @@
+package delta.common.framework.objects.sql;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Connection shared by the drivers of a drivers manager.
+ * <p>
+ * Each call on this connection, or on the statements it creates, holds a lock:
+ * the lock of the transactions of the manager. So, while a thread has a transaction
+ * on this connection, calls from other threads wait until it ends, instead of
+ * silently taking part in it. Calls are also serialized.
+ * @author DAM
+ */
+final class SharedConnection implements InvocationHandler
+{
+  private Object _target;
+  private Connection _connection;
+  private Lock _lock;
+
+  private SharedConnection(Object target, Connection connection, Lock lock)
+  {
+    _target=target;
+    _connection=connection;
+    _lock=lock;
+  }
+
+  /**
+   * Wrap a connection.
+   * @param connection Connection to wrap.
+   * @param lock Lock to hold during calls.
+   * @return A shared connection.
+   */
+  static Connection wrap(Connection connection, Lock lock)
+  {
+    SharedConnection handler=new SharedConnection(connection,null,lock);
+    Connection ret=(Connection)newProxy(Connection.class,handler);
+    handler._connection=ret;
+    return ret;
+  }
+
+  private static Object newProxy(Class<?> type, InvocationHandler handler)
+  {
+    return Proxy.newProxyInstance(SharedConnection.class.getClassLoader(),new Class<?>[]{type},handler);
+  }
+
+  @Override
+  public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+  {
+    String name=method.getName();
+    if (method.getDeclaringClass()==Object.class)
+    {
+      if ("equals".equals(name))
+      {
+        return Boolean.valueOf(proxy==args[0]);
+      }
+      if ("hashCode".equals(name))
+      {
+        return Integer.valueOf(System.identityHashCode(proxy));
+      }
+      return method.invoke(_target,args);
+    }
+    if (("getConnection".equals(name)) && (_target instanceof Statement))
+    {
+      return _connection;
+    }
+    Object ret;
+    _lock.lock();
+    try
+    {
+      ret=method.invoke(_target,args);
+    }
+    catch(InvocationTargetException e)
+    {
+      throw e.getCause();
+    }
+    finally
+    {
+      _lock.unlock();
+    }
+    // Statements are shared too
+    Class<?> returnType=method.getReturnType();
+    if ((ret!=null) && ((returnType==Statement.class) || (returnType==PreparedStatement.class) || (returnType==CallableStatement.class)))
+    {
+      ret=newProxy(returnType,new SharedConnection(ret,_connection,_lock));
+    }
+    return ret;
+  }
+}
@@ -1,5 +1,7 @@
 package delta.common.framework.objects.sql;
 
+import java.util.concurrent.atomic.LongAdder;
+
 import delta.common.framework.objects.data.Identifiable;
 import delta.common.framework.objects.data.ObjectsSource;
 
@@ -11,7 +13,7 @@ public abstract class SqlObjectsSource extends ObjectsSource
 {
   private String _dbName;
   private ObjectSqlDriverManager _driver;
-  private long _nbGetRequests;
+  private LongAdder _nbGetRequests;
 
   /**
    * Constructor.
@@ -20,6 +22,7 @@ public abstract class SqlObjectsSource extends ObjectsSource
   public SqlObjectsSource(String dbName)
   {
     _dbName=dbName;
+    _nbGetRequests=new LongAdder();
     DatabaseConfiguration cfg=buildDatabaseConfiguration(dbName);
     _driver=new ObjectSqlDriverManager(dbName,cfg);
   }
@@ -63,13 +66,13 @@ public abstract class SqlObjectsSource extends ObjectsSource
    */
   public long getNbGetRequests()
   {
-    return _nbGetRequests;
+    return _nbGetRequests.sum();
   }
 
   @Override
   public <E extends Identifiable<Long>> E load(Class<E> c, Long key)
   {
-    _nbGetRequests++;
+    _nbGetRequests.increment();
     return super.load(c,key);
   }
 
@@ -82,9 +85,28 @@ public abstract class SqlObjectsSource extends ObjectsSource
     _driver.setForeignKeyChecks(doCheck);
   }
 
+  @Override
+  protected void beginTransaction()
+  {
+    _driver.beginTransaction();
+  }
+
+  @Override
+  protected void commitTransaction()
+  {
+    _driver.commit();
+  }
+
+  @Override
+  protected void rollbackTransaction()
+  {
+    _driver.rollback();
+  }
+
   @Override
   public void close()
   {
+    super.close();
     if (_driver!=null)
     {
       _driver.close();
@@ -0,0 +1,245 @@
+package delta.common.framework.objects.sql;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cache of prepared statements, indexed by connection and SQL text.
+ * <p>
+ * Statements are checked out ({@link #prepareStatement(Connection, String)}) and
+ * given back ({@link #releaseStatement(Connection, PreparedStatement)}): a statement
+ * is never used by two callers at once, even if they share a connection.
+ * Idle statements are kept in a LRU list for each connection: when it is full,
+ * the least recently used statement is closed.
+ * This class is thread-safe.
+ * @author DAM
+ */
+public class StatementCache implements ConnectionPoolListener
+{
+  private static final Logger LOGGER=LoggerFactory.getLogger(StatementCache.class);
+
+  private int _maxStatementsPerConnection;
+  // Idle statements, by connection then SQL text (LRU order)
+  private Map<Connection,LinkedHashMap<String,PreparedStatement>> _statements;
+  // SQL text of checked out statements
+  private Map<PreparedStatement,String> _checkedOut;
+  private LongAdder _hits;
+  private LongAdder _misses;
+
+  /**
+   * Constructor.
+   * @param maxStatementsPerConnection Maximum number of idle statements for each connection
+   * (zero to disable caching).
+   */
+  public StatementCache(int maxStatementsPerConnection)
+  {
+    _maxStatementsPerConnection=Math.max(0,maxStatementsPerConnection);
+    _statements=new IdentityHashMap<Connection,LinkedHashMap<String,PreparedStatement>>();
+    _checkedOut=new IdentityHashMap<PreparedStatement,String>();
+    _hits=new LongAdder();
+    _misses=new LongAdder();
+  }
+
+  /**
+   * Get the maximum number of idle statements for each connection.
+   * @return a number of statements.
+   */
+  public int getMaxStatementsPerConnection()
+  {
+    return _maxStatementsPerConnection;
+  }
+
+  /**
+   * Get a prepared statement, from the cache if possible.
+   * @param connection Connection to use.
+   * @param sql SQL text.
+   * @return A prepared statement, to give back using {@link #releaseStatement(Connection, PreparedStatement)}.
+   * @throws SQLException if the statement could not be prepared.
+   */
+  public PreparedStatement prepareStatement(Connection connection, String sql) throws SQLException
+  {
+    PreparedStatement ret=null;
+    synchronized (this)
+    {
+      LinkedHashMap<String,PreparedStatement> statements=_statements.get(connection);
+      if (statements!=null)
+      {
+        ret=statements.remove(sql);
+      }
+    }
+    if ((ret!=null) && (!ret.isClosed()))
+    {
+      _hits.increment();
+    }
+    else
+    {
+      _misses.increment();
+      ret=connection.prepareStatement(sql);
+    }
+    synchronized (this)
+    {
+      _checkedOut.put(ret,sql);
+    }
+    return ret;
+  }
+
+  /**
+   * Give back a statement obtained using {@link #prepareStatement(Connection, String)}.
+   * Its result sets shall be closed. Its parameters and batch are cleared.
+   * @param connection Connection of this statement.
+   * @param statement Statement to release (may be <code>null</code>).
+   */
+  public void releaseStatement(Connection connection, PreparedStatement statement)
+  {
+    if (statement==null)
+    {
+      return;
+    }
+    String sql;
+    synchronized (this)
+    {
+      sql=_checkedOut.remove(statement);
+    }
+    List<PreparedStatement> toClose=new ArrayList<PreparedStatement>();
+    try
+    {
+      if ((sql==null) || (_maxStatementsPerConnection==0) || (statement.isClosed()))
+      {
+        toClose.add(statement);
+      }
+      else
+      {
+        statement.clearParameters();
+        statement.clearBatch();
+        synchronized (this)
+        {
+          LinkedHashMap<String,PreparedStatement> statements=_statements.get(connection);
+          if (statements==null)
+          {
+            statements=new LinkedHashMap<String,PreparedStatement>(16,0.75f,true);
+            _statements.put(connection,statements);
+          }
+          PreparedStatement old=statements.put(sql,statement);
+          if ((old!=null) && (old!=statement))
+          {
+            toClose.add(old);
+          }
+          Iterator<PreparedStatement> it=statements.values().iterator();
+          while (statements.size()>_maxStatementsPerConnection)
+          {
+            toClose.add(it.next());
+            it.remove();
+          }
+        }
+      }
+    }
+    catch(SQLException e)
+    {
+      LOGGER.warn("Discarding statement",e);
+      toClose.add(statement);
+    }
+    closeQuietly(toClose);
+  }
+
+  /**
+   * Remove the cached statements of a connection, and close them.
+   * @param connection Connection to use.
+   */
+  public void removeConnection(Connection connection)
+  {
+    LinkedHashMap<String,PreparedStatement> statements;
+    synchronized (this)
+    {
+      statements=_statements.remove(connection);
+    }
+    if (statements!=null)
+    {
+      closeQuietly(new ArrayList<PreparedStatement>(statements.values()));
+    }
+  }
+
+  @Override
+  public void connectionClosed(Connection connection)
+  {
+    // Statements were closed with their connection
+    synchronized (this)
+    {
+      _statements.remove(connection);
+    }
+  }
+
+  /**
+   * Close all the cached statements.
+   */
+  public void clear()
+  {
+    List<PreparedStatement> toClose=new ArrayList<PreparedStatement>();
+    synchronized (this)
+    {
+      for(LinkedHashMap<String,PreparedStatement> statements : _statements.values())
+      {
+        toClose.addAll(statements.values());
+      }
+      _statements.clear();
+    }
+    closeQuietly(toClose);
+  }
+
+  /**
+   * Get the number of idle statements in this cache.
+   * @return a number of statements.
+   */
+  public synchronized int size()
+  {
+    int ret=0;
+    for(LinkedHashMap<String,PreparedStatement> statements : _statements.values())
+    {
+      ret+=statements.size();
+    }
+    return ret;
+  }
+
+  /**
+   * Get the number of statements found in this cache.
+   * @return a number of hits.
+   */
+  public long getHits()
+  {
+    return _hits.sum();
+  }
+
+  /**
+   * Get the number of statements that had to be prepared.
+   * @return a number of misses.
+   */
+  public long getMisses()
+  {
+    return _misses.sum();
+  }
+
+  private void closeQuietly(List<PreparedStatement> statements)
+  {
+    for(PreparedStatement statement : statements)
+    {
+      try
+      {
+        statement.close();
+      }
+      catch(SQLException e)
+      {
+        LOGGER.error("",e);
+      }
+    }
+  }
+}
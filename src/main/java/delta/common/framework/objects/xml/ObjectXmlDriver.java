@@ -3,7 +3,10 @@ package delta.common.framework.objects.xml;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 import delta.common.framework.objects.data.Identifiable;
 import delta.common.framework.objects.data.IdentifiableComparator;
@@ -12,6 +15,11 @@ import delta.common.framework.objects.data.ObjectsManager;
 
 /**
  * XML-based objects driver.
+ * <p>
+ * The storage file is the reference state: every write (single or bulk)
+ * reads it, applies the changes and rewrites it, through {@link #applyChanges(List, List, List)}.
+ * Since each call rewrites the whole file, writes should be grouped in bulk
+ * operations or units of work whenever possible.
  * @author DAM
  * @param <E> Type of the data objects to manage.
  */
@@ -76,6 +84,17 @@ public class ObjectXmlDriver<E extends Identifiable<Long>> extends ObjectsConnec
     return new ArrayList<E>();
   }
 
+  @Override
+  public Stream<E> streamAll()
+  {
+    if (_xmlFile.exists())
+    {
+      ObjectsXMLReader<E> r=new ObjectsXMLReader<E>(_reader);
+      return r.streamObjectsFile(_xmlFile);
+    }
+    return Stream.empty();
+  }
+
   /**
    * Save the given objects to the storage file.
    * @param objects Objects to save.
@@ -88,6 +107,80 @@ public class ObjectXmlDriver<E extends Identifiable<Long>> extends ObjectsConnec
     w.writeObjectsFile(_xmlFile,sortedObjects);
   }
 
+  @Override
+  public void create(E objectToCreate)
+  {
+    createAll(Collections.singletonList(objectToCreate));
+  }
+
+  @Override
+  public void update(E objectToUpdate)
+  {
+    updateAll(Collections.singletonList(objectToUpdate));
+  }
+
+  @Override
+  public void delete(Long primaryKey)
+  {
+    deleteAll(Collections.singletonList(primaryKey));
+  }
+
+  @Override
+  public void createAll(List<E> objectsToCreate)
+  {
+    applyChanges(objectsToCreate,new ArrayList<E>(),new ArrayList<Long>());
+  }
+
+  @Override
+  public void updateAll(List<E> objectsToUpdate)
+  {
+    applyChanges(new ArrayList<E>(),objectsToUpdate,new ArrayList<Long>());
+  }
+
+  @Override
+  public void deleteAll(List<Long> primaryKeys)
+  {
+    applyChanges(new ArrayList<E>(),new ArrayList<E>(),primaryKeys);
+  }
+
+  /**
+   * Apply a set of changes: the storage file is read, then written once.
+   * Objects are read from the file rather than from the objects manager,
+   * whose cache is only updated once this driver has succeeded.
+   * @param createdObjects Objects to create.
+   * @param updatedObjects Objects to update.
+   * @param deletedKeys Primary keys of the objects to delete.
+   */
+  @Override
+  public void applyChanges(List<E> createdObjects, List<E> updatedObjects, List<Long> deletedKeys)
+  {
+    Map<Long,E> objects=new LinkedHashMap<Long,E>();
+    for(E object : getAll())
+    {
+      objects.put(object.getPrimaryKey(),object);
+    }
+    putAll(objects,createdObjects);
+    putAll(objects,updatedObjects);
+    for(Long deletedKey : deletedKeys)
+    {
+      objects.remove(deletedKey);
+    }
+    saveAll(new ArrayList<E>(objects.values()));
+  }
+
+  private void putAll(Map<Long,E> storage, List<E> objects)
+  {
+    for(E object : objects)
+    {
+      Long primaryKey=object.getPrimaryKey();
+      if (primaryKey==null)
+      {
+        throw new IllegalArgumentException("No primary key for object: "+object);
+      }
+      storage.put(primaryKey,object);
+    }
+  }
+
   @Override
   public List<Long> getRelatedObjectIDs(String relationName, Long primaryKey)
   {
@@ -1,11 +1,29 @@
 package delta.common.framework.objects.xml;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
 import delta.common.framework.objects.data.Identifiable;
@@ -68,4 +86,192 @@ public class ObjectsXMLReader<E extends Identifiable<Long>>
     LOGGER.debug("Read {} objects!",Integer.valueOf(ret.size()));
     return ret;
   }
+
+  /**
+   * Read objects from a file, incrementally.
+   * The file is parsed as the stream is consumed: only one object tag is held in memory at a time.
+   * The returned stream shall be closed after use: this closes the file.
+   * @param fromFile Input file.
+   * @return a stream of loaded objects.
+   */
+  public Stream<E> streamObjectsFile(File fromFile)
+  {
+    LOGGER.info("Streaming objects file: {}", fromFile);
+    InputStream is=null;
+    XMLStreamReader xmlReader=null;
+    Document document=null;
+    try
+    {
+      document=DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+      XMLInputFactory factory=XMLInputFactory.newInstance();
+      factory.setProperty(XMLInputFactory.SUPPORT_DTD,Boolean.FALSE);
+      factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES,Boolean.FALSE);
+      is=new FileInputStream(fromFile);
+      xmlReader=factory.createXMLStreamReader(is);
+      // Move to the root tag
+      xmlReader.nextTag();
+    }
+    catch(IOException|XMLStreamException|ParserConfigurationException e)
+    {
+      close(xmlReader,is);
+      throw new IllegalStateException("Cannot read XML file: "+fromFile,e);
+    }
+    final XMLStreamReader reader=xmlReader;
+    final InputStream inputStream=is;
+    final Document factoryDocument=document;
+    Spliterator<E> spliterator=new Spliterators.AbstractSpliterator<E>(Long.MAX_VALUE,Spliterator.NONNULL|Spliterator.ORDERED)
+    {
+      @Override
+      public boolean tryAdvance(Consumer<? super E> action)
+      {
+        try
+        {
+          Element objectTag;
+          while ((objectTag=readNextObjectTag(reader,factoryDocument))!=null)
+          {
+            long idValue=DOMParsingTools.getLongAttribute(objectTag.getAttributes(),ObjectsXMLConstants.ID_ATTR,-1);
+            Long id=(idValue>=0)?Long.valueOf(idValue):null;
+            E object=_reader.readObject(objectTag,id);
+            if (object!=null)
+            {
+              action.accept(object);
+              return true;
+            }
+            LOGGER.warn("Read a null object!");
+          }
+          return false;
+        }
+        catch(XMLStreamException e)
+        {
+          throw new IllegalStateException("Cannot read XML file: "+fromFile,e);
+        }
+      }
+    };
+    return StreamSupport.stream(spliterator,false).onClose(() -> close(reader,inputStream));
+  }
+
+  /**
+   * Read the next object tag, as a DOM element.
+   * The reader shall be positioned inside the root tag, outside of any child tag.
+   * @param reader Input reader.
+   * @param document Document used to build elements.
+   * @return An element or <code>null</code> if there is no more object tag.
+   * @throws XMLStreamException if an error occurs.
+   */
+  private Element readNextObjectTag(XMLStreamReader reader, Document document) throws XMLStreamException
+  {
+    // Find the start of the next object tag, among the children of the root tag
+    while (true)
+    {
+      if (!reader.hasNext())
+      {
+        return null;
+      }
+      int event=reader.next();
+      if (event==XMLStreamConstants.START_ELEMENT)
+      {
+        if (ObjectsXMLConstants.OBJECT_TAG.equals(reader.getLocalName()))
+        {
+          break;
+        }
+        skipElement(reader);
+      }
+      else if (event==XMLStreamConstants.END_ELEMENT)
+      {
+        // End of the root tag
+        return null;
+      }
+    }
+    // Build the DOM sub-tree of this tag
+    Deque<Element> stack=new ArrayDeque<Element>();
+    Element root=buildElement(reader,document);
+    stack.push(root);
+    while (!stack.isEmpty())
+    {
+      int event=reader.next();
+      if (event==XMLStreamConstants.START_ELEMENT)
+      {
+        Element child=buildElement(reader,document);
+        stack.peek().appendChild(child);
+        stack.push(child);
+      }
+      else if (event==XMLStreamConstants.END_ELEMENT)
+      {
+        stack.pop();
+      }
+      else if ((event==XMLStreamConstants.CHARACTERS) || (event==XMLStreamConstants.SPACE))
+      {
+        stack.peek().appendChild(document.createTextNode(reader.getText()));
+      }
+      else if (event==XMLStreamConstants.CDATA)
+      {
+        stack.peek().appendChild(document.createCDATASection(reader.getText()));
+      }
+    }
+    return root;
+  }
+
+  private Element buildElement(XMLStreamReader reader, Document document)
+  {
+    Element element=document.createElement(getQualifiedName(reader.getPrefix(),reader.getLocalName()));
+    int nbAttributes=reader.getAttributeCount();
+    for(int i=0;i<nbAttributes;i++)
+    {
+      String name=getQualifiedName(reader.getAttributePrefix(i),reader.getAttributeLocalName(i));
+      element.setAttribute(name,reader.getAttributeValue(i));
+    }
+    return element;
+  }
+
+  private String getQualifiedName(String prefix, String localName)
+  {
+    if ((prefix!=null) && (prefix.length()>0))
+    {
+      return prefix+":"+localName;
+    }
+    return localName;
+  }
+
+  private void skipElement(XMLStreamReader reader) throws XMLStreamException
+  {
+    int depth=1;
+    while (depth>0)
+    {
+      int event=reader.next();
+      if (event==XMLStreamConstants.START_ELEMENT)
+      {
+        depth++;
+      }
+      else if (event==XMLStreamConstants.END_ELEMENT)
+      {
+        depth--;
+      }
+    }
+  }
+
+  private void close(XMLStreamReader reader, InputStream is)
+  {
+    if (reader!=null)
+    {
+      try
+      {
+        reader.close();
+      }
+      catch(XMLStreamException e)
+      {
+        LOGGER.error("",e);
+      }
+    }
+    if (is!=null)
+    {
+      try
+      {
+        is.close();
+      }
+      catch(IOException e)
+      {
+        LOGGER.error("",e);
+      }
+    }
+  }
 }
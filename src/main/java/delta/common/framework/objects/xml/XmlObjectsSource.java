@@ -1,10 +1,12 @@
 package delta.common.framework.objects.xml;
 
 import java.io.File;
+import java.util.List;
 
 import delta.common.framework.objects.data.Identifiable;
 import delta.common.framework.objects.data.ObjectsManager;
 import delta.common.framework.objects.data.ObjectsSource;
+import delta.common.framework.objects.data.UnitOfWork;
 
 /**
  * Source for objects persisted in XML.
@@ -54,7 +56,20 @@ public class XmlObjectsSource extends ObjectsSource
    */
   public void close()
   {
-    // Nothing!
+    super.close();
+  }
+
+  /**
+   * Apply the changes of a unit of work: a single file write per class.
+   * @param changes Changes to apply.
+   */
+  @Override
+  protected void applyChanges(List<UnitOfWork.Changes<?>> changes)
+  {
+    for(UnitOfWork.Changes<?> classChanges : changes)
+    {
+      classChanges.applyAll();
+    }
   }
 
   /**
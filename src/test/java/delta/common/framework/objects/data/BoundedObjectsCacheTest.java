@@ -0,0 +1,151 @@
+package delta.common.framework.objects.data;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for the bounded objects cache (W-TinyLFU eviction) and its frequency sketch.
+ * @author DAM
+ */
+public class BoundedObjectsCacheTest
+{
+  /**
+   * Test that a frequently used object survives a scan of objects used once.
+   */
+  @Test
+  public void testHotKeySurvivesScan()
+  {
+    BoundedObjectsCache<TestObject> cache=new BoundedObjectsCache<TestObject>(100);
+    cache.put(new TestObject(1,"hot"));
+    for(int i=0;i<10;i++)
+    {
+      Assert.assertNotNull(cache.get(1));
+    }
+    for(int i=1000;i<1500;i++)
+    {
+      cache.put(new TestObject(i,"scan"));
+      Assert.assertTrue(cache.size()<=100);
+    }
+    Assert.assertEquals(100,cache.size());
+    Assert.assertNotNull(cache.get(1));
+  }
+
+  /**
+   * Test that the maximum weight is honoured, and that objects heavier than the maximum are not kept.
+   */
+  @Test
+  public void testWeightBound()
+  {
+    BoundedObjectsCache<TestObject> cache=new BoundedObjectsCache<TestObject>(100,object -> object.getName().length());
+    List<TestObject> evicted=new ArrayList<TestObject>();
+    cache.setEvictionListener(evicted::add);
+    for(int i=0;i<50;i++)
+    {
+      cache.put(new TestObject(i,buildName(1+(i%20))));
+      Assert.assertTrue(cache.getWeight()<=100);
+    }
+    long weight=0;
+    for(TestObject object : cache.getAll())
+    {
+      weight+=object.getName().length();
+    }
+    Assert.assertEquals(weight,cache.getWeight());
+    Assert.assertEquals(50,cache.size()+evicted.size());
+    cache.put(new TestObject(100,buildName(150)));
+    Assert.assertNull(cache.get(100));
+    Assert.assertTrue(cache.getWeight()<=100);
+    // Updating an object changes its weight
+    TestObject kept=cache.getAll().get(0);
+    long before=cache.getWeight();
+    cache.put(new TestObject(kept.getPrimaryKey().longValue(),buildName(kept.getName().length()+1)));
+    Assert.assertTrue(cache.getWeight()<=before+1);
+  }
+
+  /**
+   * Test that a candidate less frequently used than the probation victim is rejected,
+   * and admitted once it has been used more often (the sketch remembers evicted keys).
+   */
+  @Test
+  public void testAdmission()
+  {
+    BoundedObjectsCache<TestObject> cache=new BoundedObjectsCache<TestObject>(10);
+    for(int i=1;i<=10;i++)
+    {
+      cache.put(new TestObject(i,"frequent"));
+    }
+    for(int round=0;round<3;round++)
+    {
+      for(int i=1;i<=10;i++)
+      {
+        Assert.assertNotNull(cache.get(i));
+      }
+    }
+    Set<Long> frequentKeys=getKeys(cache);
+    // Used once: rejected when it leaves the window
+    cache.put(new TestObject(100,"rare"));
+    cache.put(new TestObject(101,"rare"));
+    Assert.assertFalse(getKeys(cache).contains(Long.valueOf(100)));
+    Set<Long> keys=getKeys(cache);
+    keys.retainAll(frequentKeys);
+    Assert.assertEquals(9,keys.size());
+    // Used more and more: eventually admitted
+    boolean admitted=false;
+    for(int i=0;(i<10) && (!admitted);i++)
+    {
+      cache.put(new TestObject(100,"rare"));
+      cache.put(new TestObject(200+i,"other"));
+      admitted=getKeys(cache).contains(Long.valueOf(100));
+    }
+    Assert.assertTrue(admitted);
+    Assert.assertEquals(10,cache.size());
+  }
+
+  /**
+   * Test the saturation and the aging of the frequency sketch.
+   */
+  @Test
+  public void testSketchAging()
+  {
+    FrequencySketch sketch=new FrequencySketch(16);
+    for(int i=0;i<20;i++)
+    {
+      sketch.increment(1);
+    }
+    Assert.assertEquals(15,sketch.frequency(1));
+    // Sample size is 10 times the capacity: this triggers a reset
+    for(long key=1000;key<1160;key++)
+    {
+      sketch.increment(key);
+    }
+    int frequency=sketch.frequency(1);
+    Assert.assertTrue("Frequency: "+frequency,(frequency>=7) && (frequency<15));
+    // Growing the sketch forgets frequencies
+    sketch.ensureCapacity(1000);
+    Assert.assertEquals(0,sketch.frequency(1));
+  }
+
+  private static Set<Long> getKeys(ObjectsCache<TestObject> cache)
+  {
+    Set<Long> ret=new HashSet<Long>();
+    for(TestObject object : cache.getAll())
+    {
+      ret.add(object.getPrimaryKey());
+    }
+    return ret;
+  }
+
+  private static String buildName(int length)
+  {
+    StringBuilder sb=new StringBuilder();
+    for(int i=0;i<length;i++)
+    {
+      sb.append('x');
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,133 @@
+package delta.common.framework.objects.data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for objects managers used by concurrent threads.
+ * @author DAM
+ */
+public class ConcurrentObjectsManagerTest
+{
+  private static final int NB_THREADS=8;
+
+  /**
+   * Test concurrent writes and loads on a manager with a concurrent cache.
+   * @throws Exception if an error occurs.
+   */
+  @Test
+  public void testConcurrentWritesAndLoads() throws Exception
+  {
+    TestConnector connector=new TestConnector();
+    ObjectsManager<TestObject> manager=new ObjectsManager<TestObject>();
+    manager.setDriver(connector);
+    manager.useCache(new ConcurrentObjectsCache<TestObject>());
+    final int nbObjects=1000;
+    ExecutorService executor=Executors.newFixedThreadPool(NB_THREADS);
+    try
+    {
+      List<Future<?>> futures=new ArrayList<Future<?>>();
+      for(int thread=0;thread<NB_THREADS;thread++)
+      {
+        final int offset=thread*nbObjects;
+        futures.add(executor.submit(() -> {
+          for(int i=0;i<nbObjects;i++)
+          {
+            long key=offset+i;
+            manager.create(new TestObject(key,"object "+key));
+            Assert.assertNotNull(manager.load(Long.valueOf(key)));
+            if ((i%2)==0)
+            {
+              manager.delete(Long.valueOf(key));
+            }
+            // Loads of the keys of the other threads
+            manager.load(Long.valueOf((key+nbObjects)%(NB_THREADS*nbObjects)));
+          }
+        }));
+      }
+      for(Future<?> future : futures)
+      {
+        future.get(30,TimeUnit.SECONDS);
+      }
+    }
+    finally
+    {
+      executor.shutdownNow();
+    }
+    // Cache and storage agree
+    for(long key=0;key<NB_THREADS*nbObjects;key++)
+    {
+      TestObject stored=connector.getStored(key);
+      Assert.assertEquals(((key%nbObjects)%2)!=0,stored!=null);
+      Assert.assertSame(stored,manager.load(Long.valueOf(key)));
+    }
+    Assert.assertEquals(NB_THREADS*nbObjects/2,manager.getCache().size());
+  }
+
+  /**
+   * Test that concurrent misses on the same key result in a single load.
+   * @throws Exception if an error occurs.
+   */
+  @Test
+  public void testSingleFlightLoads() throws Exception
+  {
+    TestConnector connector=new TestConnector();
+    connector.store(new TestObject(1,"one"));
+    ObjectsManager<TestObject> manager=new ObjectsManager<TestObject>();
+    manager.setDriver(connector);
+    manager.setCoalesceLoads(true);
+    CountDownLatch loading=new CountDownLatch(1);
+    CountDownLatch release=new CountDownLatch(1);
+    connector.setLoadHook(() -> {
+      loading.countDown();
+      await(release);
+    });
+    ExecutorService executor=Executors.newFixedThreadPool(NB_THREADS);
+    try
+    {
+      List<Future<TestObject>> futures=new ArrayList<Future<TestObject>>();
+      futures.add(executor.submit(() -> manager.load(Long.valueOf(1))));
+      await(loading);
+      for(int thread=1;thread<NB_THREADS;thread++)
+      {
+        futures.add(executor.submit(() -> manager.load(Long.valueOf(1))));
+      }
+      // Let the other callers reach the load in flight
+      Thread.sleep(200);
+      release.countDown();
+      for(Future<TestObject> future : futures)
+      {
+        Assert.assertSame(connector.getStored(1),future.get(10,TimeUnit.SECONDS));
+      }
+    }
+    finally
+    {
+      executor.shutdownNow();
+    }
+    Assert.assertEquals(1,connector.getSingleLoads());
+    // Loads are not coalesced once done
+    connector.setLoadHook(null);
+    manager.load(Long.valueOf(1));
+    Assert.assertEquals(2,connector.getSingleLoads());
+  }
+
+  private static void await(CountDownLatch latch)
+  {
+    try
+    {
+      Assert.assertTrue(latch.await(10,TimeUnit.SECONDS));
+    }
+    catch(InterruptedException e)
+    {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,110 @@
+package delta.common.framework.objects.data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for data proxies: batched resolution, sharing and reset.
+ * @author DAM
+ */
+public class DataProxyTest
+{
+  /**
+   * Test that the first dereference resolves all the proxies of its batch at once.
+   */
+  @Test
+  public void testBatchResolution()
+  {
+    TestConnector connector=new TestConnector();
+    for(int i=1;i<=5;i++)
+    {
+      connector.store(new TestObject(i,"object"+i));
+    }
+    ObjectsManager<TestObject> manager=buildManager(connector);
+    manager.setBatchProxyResolution(3);
+    List<DataProxy<TestObject>> proxies=new ArrayList<DataProxy<TestObject>>();
+    for(int i=1;i<=5;i++)
+    {
+      proxies.add(manager.buildProxy(Long.valueOf(i)));
+    }
+    Assert.assertEquals("object1",proxies.get(0).getDataObject().getName());
+    Assert.assertEquals(1,connector.getBulkLoads());
+    Assert.assertEquals("object3",proxies.get(2).getDataObject().getName());
+    Assert.assertEquals(1,connector.getBulkLoads());
+    // Second batch
+    Assert.assertEquals("object5",proxies.get(4).getDataObject().getName());
+    Assert.assertEquals("object4",proxies.get(3).getDataObject().getName());
+    Assert.assertEquals(2,connector.getBulkLoads());
+    Assert.assertEquals(0,connector.getSingleLoads());
+  }
+
+  /**
+   * Test that shared proxies are reset when their object is written.
+   */
+  @Test
+  public void testSharedProxies()
+  {
+    TestConnector connector=new TestConnector();
+    connector.store(new TestObject(1,"old"));
+    ObjectsManager<TestObject> manager=buildManager(connector);
+    manager.setInternProxies(true);
+    DataProxy<TestObject> proxy=manager.buildProxy(Long.valueOf(1));
+    Assert.assertSame(proxy,manager.buildProxy(Long.valueOf(1)));
+    Assert.assertEquals("old",proxy.getDataObject().getName());
+    manager.update(new TestObject(1,"new"));
+    Assert.assertEquals("new",proxy.getDataObject().getName());
+  }
+
+  /**
+   * Test that a resolution in progress during a reset does not restore a stale object.
+   * @throws Exception if an error occurs.
+   */
+  @Test
+  public void testResetDuringResolution() throws Exception
+  {
+    TestConnector connector=new TestConnector();
+    connector.store(new TestObject(1,"old"));
+    ObjectsManager<TestObject> manager=new ObjectsManager<TestObject>();
+    manager.setDriver(connector);
+    manager.setInternProxies(true);
+    DataProxy<TestObject> proxy=manager.buildProxy(Long.valueOf(1));
+    CountDownLatch loaded=new CountDownLatch(1);
+    CountDownLatch updated=new CountDownLatch(1);
+    connector.setLoadHook(() -> {
+      loaded.countDown();
+      await(updated);
+    });
+    Thread resolver=new Thread(() -> proxy.getDataObject());
+    resolver.start();
+    await(loaded);
+    manager.update(new TestObject(1,"new"));
+    updated.countDown();
+    resolver.join();
+    connector.setLoadHook(null);
+    Assert.assertEquals("new",proxy.getDataObject().getName());
+  }
+
+  private ObjectsManager<TestObject> buildManager(TestConnector connector)
+  {
+    ObjectsManager<TestObject> manager=new ObjectsManager<TestObject>();
+    manager.setDriver(connector);
+    manager.useCache(new ConcurrentObjectsCache<TestObject>());
+    return manager;
+  }
+
+  private static void await(CountDownLatch latch)
+  {
+    try
+    {
+      latch.await();
+    }
+    catch(InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
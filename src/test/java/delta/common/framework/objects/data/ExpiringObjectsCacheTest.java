@@ -0,0 +1,99 @@
+package delta.common.framework.objects.data;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for the expiring objects cache.
+ * @author DAM
+ */
+public class ExpiringObjectsCacheTest
+{
+  private static final Executor DIRECT=Runnable::run;
+
+  /**
+   * Test the expiration after write and after access.
+   * @throws InterruptedException if interrupted.
+   */
+  @Test
+  public void testExpiration() throws InterruptedException
+  {
+    ExpiringObjectsCache<TestObject> cache=new ExpiringObjectsCache<TestObject>();
+    cache.setExpireAfterWrite(100,TimeUnit.MILLISECONDS);
+    cache.put(new TestObject(1,"one"));
+    Assert.assertNotNull(cache.get(Long.valueOf(1)));
+    Thread.sleep(150);
+    Assert.assertNull(cache.get(Long.valueOf(1)));
+    Assert.assertEquals(0,cache.size());
+
+    cache.setExpireAfterWrite(0,TimeUnit.MILLISECONDS);
+    cache.setExpireAfterAccess(100,TimeUnit.MILLISECONDS);
+    cache.put(new TestObject(2,"two"));
+    Thread.sleep(150);
+    Assert.assertNull(cache.get(Long.valueOf(2)));
+  }
+
+  /**
+   * Test that refresh-ahead reloads objects through the manager.
+   * @throws InterruptedException if interrupted.
+   */
+  @Test
+  public void testRefresh() throws InterruptedException
+  {
+    TestConnector connector=new TestConnector();
+    ObjectsManager<TestObject> manager=buildManager(connector);
+    manager.create(new TestObject(1,"one"));
+    connector.store(new TestObject(1,"ONE"));
+    Thread.sleep(20);
+    // Stale value returned, then reloaded
+    Assert.assertEquals("one",manager.load(Long.valueOf(1)).getName());
+    Assert.assertEquals("ONE",manager.load(Long.valueOf(1)).getName());
+    Assert.assertEquals(1,connector.getSingleLoads());
+    Assert.assertEquals(1,manager.getStats().getLoads());
+    // Objects deleted from the storage are marked absent
+    connector.delete(Long.valueOf(1));
+    Thread.sleep(20);
+    manager.load(Long.valueOf(1));
+    Assert.assertTrue(manager.getNegativeCache().isAbsent(Long.valueOf(1)));
+    Assert.assertNull(manager.load(Long.valueOf(1)));
+    Assert.assertEquals(2,connector.getSingleLoads());
+  }
+
+  /**
+   * Test that objects with pending writes are not refreshed.
+   * @throws InterruptedException if interrupted.
+   */
+  @Test
+  public void testNoRefreshOfPendingWrites() throws InterruptedException
+  {
+    TestConnector connector=new TestConnector();
+    connector.store(new TestObject(1,"one"));
+    ObjectsManager<TestObject> manager=buildManager(connector);
+    manager.useWriteBehind(1000,1,TimeUnit.HOURS,null);
+    manager.update(new TestObject(1,"ONE"));
+    Thread.sleep(20);
+    Assert.assertEquals("ONE",manager.load(Long.valueOf(1)).getName());
+    Assert.assertEquals("ONE",manager.load(Long.valueOf(1)).getName());
+    Assert.assertEquals(0,connector.getSingleLoads());
+    // Refreshed once written
+    manager.flush();
+    Assert.assertEquals("ONE",connector.getStored(1).getName());
+    Assert.assertEquals("ONE",manager.load(Long.valueOf(1)).getName());
+    Assert.assertEquals(1,connector.getSingleLoads());
+    manager.close();
+  }
+
+  private static ObjectsManager<TestObject> buildManager(TestConnector connector)
+  {
+    ObjectsManager<TestObject> manager=new ObjectsManager<TestObject>();
+    manager.setDriver(connector);
+    ExpiringObjectsCache<TestObject> cache=new ExpiringObjectsCache<TestObject>();
+    cache.setRefreshAfterWrite(10,TimeUnit.MILLISECONDS,manager,DIRECT);
+    manager.useCache(cache);
+    manager.useNegativeCache(new NegativeCache(1,TimeUnit.MINUTES,100));
+    return manager;
+  }
+}
@@ -0,0 +1,57 @@
+package delta.common.framework.objects.data;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for the statistics of objects managers and caches.
+ * @author DAM
+ */
+public class LoadStatsTest
+{
+  /**
+   * Test the counters of a manager and of its cache.
+   */
+  @Test
+  public void testCounters()
+  {
+    TestConnector connector=new TestConnector();
+    connector.store(new TestObject(1,"one"),new TestObject(2,"two"));
+    ObjectsManager<TestObject> manager=new ObjectsManager<TestObject>();
+    manager.setDriver(connector);
+    manager.useCache(new BoundedObjectsCache<TestObject>(1));
+    manager.load(Long.valueOf(1));
+    manager.load(Long.valueOf(1));
+    manager.load(Long.valueOf(3));
+    connector.setLoadHook(() -> {
+      throw new IllegalStateException("Load failure");
+    });
+    try
+    {
+      manager.load(Long.valueOf(2));
+      Assert.fail("Load succeeded");
+    }
+    catch(IllegalStateException e)
+    {
+      // Expected
+    }
+    connector.setLoadHook(null);
+    manager.load(Long.valueOf(2));
+    LoadStats stats=manager.getStats();
+    Assert.assertEquals(1,stats.getHits());
+    Assert.assertEquals(4,stats.getMisses());
+    Assert.assertEquals(4,stats.getLoads());
+    Assert.assertEquals(1,stats.getLoadFailures());
+    Assert.assertEquals(0.2,stats.getHitRatio(),1e-9);
+    Assert.assertTrue(stats.getTotalLoadTime()>0);
+    Assert.assertTrue(stats.getLoadTimePercentile(50)<=stats.getLoadTimePercentile(100));
+    CacheStats cacheStats=stats.getCacheStats();
+    Assert.assertEquals(1,cacheStats.getHits());
+    Assert.assertEquals(4,cacheStats.getMisses());
+    // Object 1 evicted by object 2
+    Assert.assertEquals(1,cacheStats.getEvictions());
+    CacheStats sum=cacheStats.plus(cacheStats);
+    Assert.assertEquals(10,sum.getRequests());
+    Assert.assertEquals(2,sum.getEvictions());
+  }
+}
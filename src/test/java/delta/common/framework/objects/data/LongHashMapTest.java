@@ -0,0 +1,91 @@
+package delta.common.framework.objects.data;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for the map with primitive long keys, and the cache that uses it.
+ * @author DAM
+ */
+public class LongHashMapTest
+{
+  /**
+   * Test random operations against a reference map: removals in probe
+   * chains (backward-shift deletion) shall keep all the other keys reachable.
+   */
+  @Test
+  public void testRandomOperations()
+  {
+    LongHashMap<String> map=new LongHashMap<String>();
+    Map<Long,String> reference=new HashMap<Long,String>();
+    Random random=new Random(42);
+    for(int i=0;i<100000;i++)
+    {
+      // Small key range (with negative keys), so that probe chains and removals are frequent
+      long key=random.nextInt(200)-50;
+      if (random.nextInt(3)==0)
+      {
+        Assert.assertEquals(reference.remove(Long.valueOf(key)),map.remove(key));
+      }
+      else
+      {
+        String value="v"+i;
+        Assert.assertEquals(reference.put(Long.valueOf(key),value),map.put(key,value));
+      }
+      Assert.assertEquals(reference.size(),map.size());
+    }
+    for(long key=-50;key<150;key++)
+    {
+      Assert.assertEquals(reference.get(Long.valueOf(key)),map.get(key));
+    }
+    Assert.assertEquals(reference.size(),map.values().size());
+    map.clear();
+    Assert.assertEquals(0,map.size());
+    Assert.assertNull(map.get(0));
+  }
+
+  /**
+   * Test removals among colliding keys, around a resize.
+   */
+  @Test
+  public void testCollidingKeys()
+  {
+    LongHashMap<Long> map=new LongHashMap<Long>();
+    // Keys that differ only by high bits
+    for(long i=0;i<1000;i++)
+    {
+      map.put(i<<32,Long.valueOf(i));
+    }
+    for(long i=0;i<1000;i+=2)
+    {
+      Assert.assertEquals(Long.valueOf(i),map.remove(i<<32));
+    }
+    Assert.assertEquals(500,map.size());
+    for(long i=0;i<1000;i++)
+    {
+      Long expected=((i%2)==0)?null:Long.valueOf(i);
+      Assert.assertEquals(expected,map.get(i<<32));
+    }
+  }
+
+  /**
+   * Test the cache with primitive long keys.
+   */
+  @Test
+  public void testCache()
+  {
+    LongObjectsCache<TestObject> cache=new LongObjectsCache<TestObject>();
+    cache.put(new TestObject(1,"one"));
+    cache.put(new TestObject(2,"two"));
+    Assert.assertEquals("one",cache.get(1).getName());
+    Assert.assertEquals("two",cache.get(Long.valueOf(2)).getName());
+    cache.remove(1);
+    Assert.assertNull(cache.get(1));
+    Assert.assertEquals(1,cache.size());
+    Assert.assertEquals(1,cache.getAll().size());
+  }
+}
@@ -0,0 +1,134 @@
+package delta.common.framework.objects.data;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for the negative cache, alone and used by an objects manager,
+ * and for loads concurrent with writes.
+ * @author DAM
+ */
+public class NegativeCacheTest
+{
+  /**
+   * Test the expiration and the size bound of entries.
+   * @throws InterruptedException if interrupted.
+   */
+  @Test
+  public void testExpirationAndSize() throws InterruptedException
+  {
+    NegativeCache cache=new NegativeCache(50,TimeUnit.MILLISECONDS,2);
+    cache.markAbsent(Long.valueOf(1));
+    cache.markAbsent(Long.valueOf(2));
+    cache.markAbsent(Long.valueOf(3));
+    Assert.assertEquals(2,cache.size());
+    // Oldest entry removed
+    Assert.assertFalse(cache.isAbsent(Long.valueOf(1)));
+    Assert.assertTrue(cache.isAbsent(Long.valueOf(3)));
+    cache.remove(Long.valueOf(3));
+    Assert.assertFalse(cache.isAbsent(Long.valueOf(3)));
+    Thread.sleep(100);
+    Assert.assertFalse(cache.isAbsent(Long.valueOf(2)));
+  }
+
+  /**
+   * Test that absent objects are not loaded again, until they are created.
+   */
+  @Test
+  public void testManagerAbsences()
+  {
+    TestConnector connector=new TestConnector();
+    ObjectsManager<TestObject> manager=buildManager(connector);
+    Assert.assertNull(manager.load(Long.valueOf(1)));
+    Assert.assertNull(manager.load(Long.valueOf(1)));
+    Assert.assertEquals(1,connector.getSingleLoads());
+    // Bulk loads use and fill the negative cache too
+    Assert.assertTrue(manager.loadAll(new long[]{1,2}).isEmpty());
+    Assert.assertTrue(manager.loadAll(new long[]{1,2}).isEmpty());
+    Assert.assertEquals(1,connector.getBulkLoads());
+    manager.create(new TestObject(1,"one"));
+    Assert.assertEquals("one",manager.load(Long.valueOf(1)).getName());
+    manager.delete(Long.valueOf(1));
+    Assert.assertNull(manager.load(Long.valueOf(1)));
+    Assert.assertEquals(1,connector.getSingleLoads());
+  }
+
+  /**
+   * Test that a miss loaded concurrently with a creation does not hide the created object.
+   * @throws Exception if an error occurs.
+   */
+  @Test
+  public void testMissConcurrentWithCreation() throws Exception
+  {
+    TestConnector connector=new TestConnector();
+    ObjectsManager<TestObject> manager=buildManager(connector);
+    CountDownLatch loaded=new CountDownLatch(1);
+    CountDownLatch created=new CountDownLatch(1);
+    connector.setLoadHook(() -> {
+      loaded.countDown();
+      await(created);
+    });
+    AtomicReference<TestObject> staleResult=new AtomicReference<TestObject>(new TestObject(0,"none"));
+    Thread loader=new Thread(() -> staleResult.set(manager.load(Long.valueOf(1))));
+    loader.start();
+    await(loaded);
+    manager.create(new TestObject(1,"one"));
+    created.countDown();
+    loader.join();
+    Assert.assertNull(staleResult.get());
+    connector.setLoadHook(null);
+    Assert.assertFalse(manager.getNegativeCache().isAbsent(Long.valueOf(1)));
+    Assert.assertEquals("one",manager.load(Long.valueOf(1)).getName());
+    Assert.assertEquals(1,connector.getSingleLoads());
+  }
+
+  /**
+   * Test that an object loaded concurrently with an update is not cached.
+   * @throws Exception if an error occurs.
+   */
+  @Test
+  public void testLoadConcurrentWithUpdate() throws Exception
+  {
+    TestConnector connector=new TestConnector();
+    connector.store(new TestObject(1,"old"));
+    ObjectsManager<TestObject> manager=buildManager(connector);
+    CountDownLatch loaded=new CountDownLatch(1);
+    CountDownLatch updated=new CountDownLatch(1);
+    connector.setLoadHook(() -> {
+      loaded.countDown();
+      await(updated);
+    });
+    Thread loader=new Thread(() -> manager.load(Long.valueOf(1)));
+    loader.start();
+    await(loaded);
+    manager.update(new TestObject(1,"new"));
+    updated.countDown();
+    loader.join();
+    Assert.assertEquals("new",manager.getCache().get(1).getName());
+  }
+
+  private ObjectsManager<TestObject> buildManager(TestConnector connector)
+  {
+    ObjectsManager<TestObject> manager=new ObjectsManager<TestObject>();
+    manager.setDriver(connector);
+    manager.useCache(true);
+    manager.useNegativeCache(new NegativeCache(1,TimeUnit.MINUTES,100));
+    return manager;
+  }
+
+  private static void await(CountDownLatch latch)
+  {
+    try
+    {
+      latch.await();
+    }
+    catch(InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,173 @@
+package delta.common.framework.objects.data;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for the loads of objects managers.
+ * @author DAM
+ */
+public class ObjectsManagerTest
+{
+  /**
+   * Test that the objects missing in the cache are loaded by a single connector call.
+   */
+  @Test
+  public void testBatchedLoadAll()
+  {
+    TestConnector connector=new TestConnector();
+    ObjectsManager<TestObject> manager=buildManager(connector);
+    Assert.assertNotNull(manager.load(Long.valueOf(2)));
+    List<TestObject> objects=manager.loadAll(Arrays.asList(Long.valueOf(3),Long.valueOf(2),Long.valueOf(1),Long.valueOf(3),Long.valueOf(9)));
+    Assert.assertEquals(Arrays.asList("three","two","one","three"),getNames(objects));
+    Assert.assertEquals(1,connector.getBulkLoads());
+    Assert.assertEquals(1,connector.getSingleLoads());
+    // Loaded objects are cached
+    manager.loadAll(new long[]{1,2,3});
+    Assert.assertEquals(1,connector.getBulkLoads());
+    try
+    {
+      manager.loadAll(Arrays.asList(Long.valueOf(1),null));
+      Assert.fail("Null key accepted");
+    }
+    catch(IllegalArgumentException e)
+    {
+      // Expected
+    }
+  }
+
+  /**
+   * Test that asynchronous loads run on the executor of the manager and report failures.
+   * @throws Exception if an error occurs.
+   */
+  @Test
+  public void testAsyncLoads() throws Exception
+  {
+    TestConnector connector=new TestConnector();
+    ObjectsManager<TestObject> manager=buildManager(connector);
+    ExecutorService executor=Executors.newSingleThreadExecutor(r -> new Thread(r,"loader"));
+    try
+    {
+      manager.setExecutor(executor);
+      AtomicReference<String> threadName=new AtomicReference<String>();
+      connector.setLoadHook(() -> threadName.set(Thread.currentThread().getName()));
+      Assert.assertEquals("one",manager.loadAsync(Long.valueOf(1)).get(10,TimeUnit.SECONDS).getName());
+      Assert.assertEquals("loader",threadName.get());
+      List<TestObject> objects=manager.loadAllAsync(Arrays.asList(Long.valueOf(2),Long.valueOf(1))).get(10,TimeUnit.SECONDS);
+      Assert.assertEquals(Arrays.asList("two","one"),getNames(objects));
+      connector.setLoadHook(() -> {
+        throw new IllegalStateException("Load failure");
+      });
+      try
+      {
+        manager.loadAsync(Long.valueOf(3)).get(10,TimeUnit.SECONDS);
+        Assert.fail("Load succeeded");
+      }
+      catch(ExecutionException e)
+      {
+        Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+      }
+    }
+    finally
+    {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Test streams on all objects: pending writes are flushed first,
+   * and the cache is populated only if asked.
+   */
+  @Test
+  public void testStreamAll()
+  {
+    TestConnector connector=new TestConnector();
+    ObjectsManager<TestObject> manager=buildManager(connector);
+    manager.useWriteBehind(100,1,TimeUnit.HOURS,null);
+    manager.create(new TestObject(4,"four"));
+    try (Stream<TestObject> stream=manager.streamAll(false))
+    {
+      Assert.assertEquals(4,stream.count());
+    }
+    Assert.assertEquals(0,manager.getPendingWritesCount());
+    Assert.assertNull(manager.getCache().get(Long.valueOf(1)));
+    try (Stream<TestObject> stream=manager.streamAll(true))
+    {
+      Assert.assertEquals(Arrays.asList("one","two","three","four"),getNames(stream.collect(Collectors.toList())));
+    }
+    Assert.assertNotNull(manager.getCache().get(Long.valueOf(1)));
+    manager.close();
+  }
+
+  /**
+   * Test that partial objects are cached apart, and completed when full objects are requested.
+   */
+  @Test
+  public void testPartials()
+  {
+    final AtomicInteger partialLoads=new AtomicInteger();
+    final AtomicInteger completions=new AtomicInteger();
+    TestConnector connector=new TestConnector()
+    {
+      @Override
+      public TestObject getPartialByPrimaryKey(Long primaryKey)
+      {
+        partialLoads.incrementAndGet();
+        return new TestObject(primaryKey.longValue(),"partial");
+      }
+
+      @Override
+      public TestObject completePartial(TestObject partialObject)
+      {
+        completions.incrementAndGet();
+        return getStored(partialObject.getPrimaryKey().longValue());
+      }
+    };
+    ObjectsManager<TestObject> manager=buildManager(connector);
+    manager.usePartialsCache(new ObjectsCache<TestObject>());
+    Assert.assertEquals("partial",manager.loadPartial(Long.valueOf(1)).getName());
+    Assert.assertEquals(Arrays.asList("partial","partial"),getNames(manager.loadAllUsingPartials(Arrays.asList(Long.valueOf(1),Long.valueOf(2)))));
+    Assert.assertEquals(2,partialLoads.get());
+    // Full load: the partial object is completed and moved to the main cache
+    Assert.assertEquals("one",manager.load(Long.valueOf(1)).getName());
+    Assert.assertEquals(1,completions.get());
+    Assert.assertEquals(0,connector.getSingleLoads());
+    Assert.assertNull(manager.getPartialsCache().get(Long.valueOf(1)));
+    Assert.assertEquals("one",manager.loadPartial(Long.valueOf(1)).getName());
+    // Writes remove partial objects
+    manager.update(new TestObject(2,"TWO"));
+    Assert.assertNull(manager.getPartialsCache().get(Long.valueOf(2)));
+    Assert.assertEquals("TWO",manager.loadPartial(Long.valueOf(2)).getName());
+    Assert.assertEquals(2,partialLoads.get());
+  }
+
+  private static ObjectsManager<TestObject> buildManager(TestConnector connector)
+  {
+    connector.store(new TestObject(1,"one"),new TestObject(2,"two"),new TestObject(3,"three"));
+    ObjectsManager<TestObject> manager=new ObjectsManager<TestObject>();
+    manager.setDriver(connector);
+    manager.useCache(true);
+    return manager;
+  }
+
+  private static List<String> getNames(List<TestObject> objects)
+  {
+    String[] names=new String[objects.size()];
+    for(int i=0;i<names.length;i++)
+    {
+      names[i]=objects.get(i).getName();
+    }
+    return Arrays.asList(names);
+  }
+}
@@ -0,0 +1,90 @@
+package delta.common.framework.objects.data;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for the off-heap store, alone and as the second-level cache of an objects manager.
+ * @author DAM
+ */
+public class OffHeapObjectsStoreTest
+{
+  private static final ObjectCodec<TestObject> CODEC=new ObjectCodec<TestObject>()
+  {
+    @Override
+    public byte[] encode(TestObject object)
+    {
+      byte[] name=object.getName().getBytes(StandardCharsets.UTF_8);
+      ByteBuffer buffer=ByteBuffer.allocate(8+name.length);
+      buffer.putLong(object.getPrimaryKey().longValue());
+      buffer.put(name);
+      return buffer.array();
+    }
+
+    @Override
+    public TestObject decode(ByteBuffer buffer)
+    {
+      long primaryKey=buffer.getLong();
+      byte[] name=new byte[buffer.remaining()];
+      buffer.get(name);
+      return new TestObject(primaryKey,new String(name,StandardCharsets.UTF_8));
+    }
+  };
+
+  /**
+   * Test that objects are stored in a ring: the oldest ones are evicted first.
+   */
+  @Test
+  public void testRingEviction()
+  {
+    // 10 bytes per object
+    OffHeapObjectsStore<TestObject> store=new OffHeapObjectsStore<TestObject>(45,CODEC);
+    for(long i=0;i<6;i++)
+    {
+      Assert.assertTrue(store.put(new TestObject(i,"o"+i)));
+    }
+    Assert.assertEquals(4,store.size());
+    Assert.assertTrue(store.getUsedBytes()<=store.getCapacity());
+    Assert.assertNull(store.get(0));
+    Assert.assertNull(store.get(1));
+    Assert.assertEquals("o5",store.get(5).getName());
+    // Replacement
+    store.put(new TestObject(5,"O5"));
+    Assert.assertEquals("O5",store.get(5).getName());
+    store.remove(5);
+    Assert.assertNull(store.get(5));
+    Assert.assertFalse(store.put(new TestObject(9,"an object too big for the capacity of this store")));
+  }
+
+  /**
+   * Test that objects evicted from the cache of a manager are loaded back from its second level.
+   */
+  @Test
+  public void testSecondLevel()
+  {
+    TestConnector connector=new TestConnector();
+    ObjectsManager<TestObject> manager=new ObjectsManager<TestObject>();
+    manager.setDriver(connector);
+    manager.useCache(new BoundedObjectsCache<TestObject>(2));
+    manager.useSecondLevelCache(new OffHeapObjectsStore<TestObject>(1024,CODEC));
+    for(long i=0;i<10;i++)
+    {
+      manager.create(new TestObject(i,"object "+i));
+    }
+    Assert.assertTrue(manager.getSecondLevelCache().size()>=8);
+    for(long i=0;i<10;i++)
+    {
+      Assert.assertEquals("object "+i,manager.load(Long.valueOf(i)).getName());
+    }
+    Assert.assertEquals(0,connector.getSingleLoads());
+    Assert.assertTrue(manager.getStats().getSecondLevelHits()>=8);
+    // Writes replace the stored copy
+    manager.update(new TestObject(3,"three"));
+    Assert.assertEquals("three",manager.load(Long.valueOf(3)).getName());
+    manager.delete(Long.valueOf(4));
+    Assert.assertNull(manager.getSecondLevelCache().get(4));
+  }
+}
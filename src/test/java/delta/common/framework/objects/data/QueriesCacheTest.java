@@ -0,0 +1,87 @@
+package delta.common.framework.objects.data;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for the caches of query results of objects managers.
+ * @author DAM
+ */
+public class QueriesCacheTest
+{
+  /**
+   * Test that cached relations are used, and invalidated by writes.
+   */
+  @Test
+  public void testRelationsCache()
+  {
+    TestConnector connector=buildConnector();
+    ObjectsManager<TestObject> manager=buildManager(connector);
+    manager.useRelationsCache(new IdentifiersCache(100));
+    Long root=Long.valueOf(1);
+    Assert.assertEquals(2,manager.loadRelation("children",root).size());
+    Assert.assertEquals(2,manager.loadRelation("children",root).size());
+    Assert.assertEquals(1,connector.getQueries());
+    // By default, writes invalidate all relations
+    manager.update(new TestObject(3,"THREE"));
+    manager.loadRelation("children",root);
+    Assert.assertEquals(2,connector.getQueries());
+    // Invalidator that only invalidates the relations of written objects
+    manager.setRelationsInvalidator((source,primaryKey,object) -> source.invalidateRelation("children",primaryKey));
+    manager.update(new TestObject(3,"three"));
+    manager.loadRelation("children",root);
+    Assert.assertEquals(2,connector.getQueries());
+    manager.update(new TestObject(1,"ONE"));
+    manager.loadRelation("children",root);
+    Assert.assertEquals(3,connector.getQueries());
+    manager.invalidateRelation("children");
+    manager.loadRelation("children",root);
+    Assert.assertEquals(4,connector.getQueries());
+  }
+
+  /**
+   * Test that cached object sets are keyed by parameters, and invalidated by writes and time.
+   * @throws InterruptedException if interrupted.
+   */
+  @Test
+  public void testObjectSetsCache() throws InterruptedException
+  {
+    TestConnector connector=buildConnector();
+    ObjectsManager<TestObject> manager=buildManager(connector);
+    manager.useObjectSetsCache(new IdentifiersCache(200,TimeUnit.MILLISECONDS,100));
+    Assert.assertEquals(2,manager.loadObjectSet("children",new Object[]{"a",Integer.valueOf(1)}).size());
+    // Parameters are compared by value
+    manager.loadObjectSet("children",new Object[]{"a",Integer.valueOf(1)});
+    Assert.assertEquals(1,connector.getQueries());
+    manager.loadObjectSet("children",new Object[]{"a",Integer.valueOf(2)});
+    Assert.assertEquals(2,connector.getQueries());
+    manager.invalidateObjectSet("children");
+    manager.loadObjectSet("children",new Object[]{"a",Integer.valueOf(1)});
+    Assert.assertEquals(3,connector.getQueries());
+    manager.delete(Long.valueOf(1));
+    manager.loadObjectSet("children",new Object[]{"a",Integer.valueOf(1)});
+    Assert.assertEquals(4,connector.getQueries());
+    Thread.sleep(300);
+    manager.loadObjectSet("children",new Object[]{"a",Integer.valueOf(1)});
+    Assert.assertEquals(5,connector.getQueries());
+  }
+
+  private static TestConnector buildConnector()
+  {
+    TestConnector connector=new TestConnector();
+    connector.store(new TestObject(1,"one"),new TestObject(2,"two"),new TestObject(3,"three"));
+    connector.setRelation("children",Arrays.asList(Long.valueOf(2),Long.valueOf(3)));
+    return connector;
+  }
+
+  private static ObjectsManager<TestObject> buildManager(TestConnector connector)
+  {
+    ObjectsManager<TestObject> manager=new ObjectsManager<TestObject>();
+    manager.setDriver(connector);
+    manager.useCache(true);
+    return manager;
+  }
+}
@@ -0,0 +1,53 @@
+package delta.common.framework.objects.data;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import delta.common.framework.objects.data.ReferenceObjectsCache.ReferenceType;
+
+/**
+ * Tests for the caches of soft or weak references.
+ * @author DAM
+ */
+public class ReferenceObjectsCacheTest
+{
+  /**
+   * Test that weakly referenced objects are reclaimed, and that the reclaiming of a
+   * replaced object does not remove its replacement.
+   * @throws InterruptedException if interrupted.
+   */
+  @Test
+  public void testWeakReferences() throws InterruptedException
+  {
+    ReferenceObjectsCache<TestObject> cache=new ReferenceObjectsCache<TestObject>(ReferenceType.WEAK);
+    cache.put(new TestObject(1,"one"));
+    cache.put(new TestObject(2,"two"));
+    TestObject replacement=new TestObject(2,"TWO");
+    cache.put(replacement);
+    for(int i=0;(i<50) && (cache.get(Long.valueOf(1))!=null);i++)
+    {
+      System.gc();
+      Thread.sleep(10);
+    }
+    Assert.assertNull(cache.get(Long.valueOf(1)));
+    Assert.assertSame(replacement,cache.get(Long.valueOf(2)));
+    Assert.assertEquals(1,cache.size());
+    Assert.assertEquals(1,cache.getAll().size());
+  }
+
+  /**
+   * Test the soft references cache as a plain cache (objects are kept while memory is available).
+   */
+  @Test
+  public void testSoftReferences()
+  {
+    ReferenceObjectsCache<TestObject> cache=new ReferenceObjectsCache<TestObject>(ReferenceType.SOFT);
+    cache.put(new TestObject(1,"one"));
+    Assert.assertEquals("one",cache.get(Long.valueOf(1)).getName());
+    Assert.assertNull(cache.get(Long.valueOf(2)));
+    Assert.assertNull(cache.get(null));
+    cache.remove(Long.valueOf(1));
+    Assert.assertNull(cache.get(Long.valueOf(1)));
+    Assert.assertEquals(0,cache.size());
+  }
+}
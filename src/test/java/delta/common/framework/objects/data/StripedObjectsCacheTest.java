@@ -0,0 +1,120 @@
+package delta.common.framework.objects.data;
+
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for the striped objects cache and its views.
+ * @author DAM
+ */
+public class StripedObjectsCacheTest
+{
+  /**
+   * Test the sequential and parallel traversals.
+   */
+  @Test
+  public void testTraversals()
+  {
+    StripedObjectsCache<TestObject> cache=buildCache();
+    for(int i=1;i<=1000;i++)
+    {
+      cache.put(new TestObject(i,"object"));
+    }
+    Assert.assertEquals(1000,cache.values().size());
+    long sum=0;
+    for(TestObject object : cache)
+    {
+      sum+=object.getPrimaryKeyValue();
+    }
+    Assert.assertEquals(500500,sum);
+    Assert.assertEquals(500500,cache.parallelStream().mapToLong(TestObject::getPrimaryKeyValue).sum());
+    Assert.assertTrue(cache.stream().anyMatch(object -> object.getPrimaryKeyValue()==500));
+    Assert.assertEquals(1000,cache.getAll().size());
+  }
+
+  /**
+   * Test that traversal actions may modify the cache.
+   */
+  @Test
+  public void testActionModifiesCache()
+  {
+    StripedObjectsCache<TestObject> cache=buildCache();
+    for(int i=1;i<=100;i++)
+    {
+      cache.put(new TestObject(i,"object"));
+    }
+    cache.forEach(object -> cache.remove(object.getPrimaryKey()));
+    Assert.assertEquals(0,cache.size());
+    cache.put(new TestObject(1,"object"));
+    Iterator<TestObject> it=cache.iterator();
+    while (it.hasNext())
+    {
+      TestObject object=it.next();
+      cache.put(new TestObject(object.getPrimaryKeyValue(),"updated"));
+    }
+    Assert.assertEquals("updated",cache.get(1).getName());
+  }
+
+  /**
+   * Test traversals concurrent with writes.
+   * @throws InterruptedException if interrupted.
+   */
+  @Test
+  public void testConcurrentTraversals() throws InterruptedException
+  {
+    StripedObjectsCache<TestObject> cache=buildCache();
+    AtomicBoolean stop=new AtomicBoolean(false);
+    AtomicReference<Throwable> error=new AtomicReference<Throwable>();
+    Thread writer=new Thread(() -> {
+      try
+      {
+        for(int i=0;!stop.get();i++)
+        {
+          cache.put(new TestObject(i%5000,"object"));
+          cache.remove(Long.valueOf((i*7)%5000));
+        }
+      }
+      catch(Throwable t)
+      {
+        error.set(t);
+      }
+    });
+    writer.start();
+    try
+    {
+      for(int i=0;i<200;i++)
+      {
+        for(TestObject object : cache)
+        {
+          Assert.assertNotNull(object);
+        }
+        cache.stream().filter(object -> object.getPrimaryKeyValue()>100).findFirst();
+        cache.parallelStream().count();
+      }
+    }
+    finally
+    {
+      stop.set(true);
+      writer.join();
+    }
+    Assert.assertNull(error.get());
+  }
+
+  /**
+   * Test that stripes without weakly consistent views are rejected.
+   */
+  @Test(expected=IllegalArgumentException.class)
+  public void testBadStripes()
+  {
+    new StripedObjectsCache<TestObject>(4,ObjectsCache::new);
+  }
+
+  private StripedObjectsCache<TestObject> buildCache()
+  {
+    return new StripedObjectsCache<TestObject>(8,() -> new BoundedObjectsCache<TestObject>(10000));
+  }
+}
@@ -0,0 +1,309 @@
+package delta.common.framework.objects.data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-memory connector for tests.
+ * <p>
+ * Counts the calls to its load, query and write methods. Single loads may run a hook after
+ * reading the storage (for instance, to block until a concurrent write is done, so that
+ * the loaded result is stale).
+ * Writes of the failing key, if any, fail. Bulk writes are all or nothing, unless
+ * partial bulk writes are enabled: then objects before the failing one are written.
+ * @author DAM
+ */
+public class TestConnector extends ObjectsConnector<TestObject>
+{
+  private ConcurrentSkipListMap<Long,TestObject> _storage;
+  private Map<String,List<Long>> _relations;
+  private volatile Runnable _loadHook;
+  private volatile long _failingKey;
+  private volatile boolean _partialBulkWrites;
+  private AtomicInteger _singleLoads;
+  private AtomicInteger _bulkLoads;
+  private AtomicInteger _singleWrites;
+  private AtomicInteger _bulkWrites;
+  private AtomicInteger _queries;
+
+  /**
+   * Constructor.
+   */
+  public TestConnector()
+  {
+    _storage=new ConcurrentSkipListMap<Long,TestObject>();
+    _relations=new ConcurrentHashMap<String,List<Long>>();
+    _failingKey=-1;
+    _singleLoads=new AtomicInteger();
+    _bulkLoads=new AtomicInteger();
+    _singleWrites=new AtomicInteger();
+    _bulkWrites=new AtomicInteger();
+    _queries=new AtomicInteger();
+  }
+
+  /**
+   * Store objects directly, without counting writes.
+   * @param objects Objects to store.
+   */
+  public void store(TestObject... objects)
+  {
+    for(TestObject object : objects)
+    {
+      _storage.put(object.getPrimaryKey(),object);
+    }
+  }
+
+  /**
+   * Get a stored object.
+   * @param primaryKey Primary key.
+   * @return An object or <code>null</code>.
+   */
+  public TestObject getStored(long primaryKey)
+  {
+    return _storage.get(Long.valueOf(primaryKey));
+  }
+
+  /**
+   * Set the primary keys of a relation.
+   * @param relationName Relation name.
+   * @param primaryKeys Related primary keys.
+   */
+  public void setRelation(String relationName, List<Long> primaryKeys)
+  {
+    _relations.put(relationName,primaryKeys);
+  }
+
+  /**
+   * Set a hook to run at the end of single loads.
+   * @param loadHook Hook to set, or <code>null</code>.
+   */
+  public void setLoadHook(Runnable loadHook)
+  {
+    _loadHook=loadHook;
+  }
+
+  /**
+   * Set the key of objects whose writes fail.
+   * @param failingKey Key to set, <code>-1</code> for none.
+   */
+  public void setFailingKey(long failingKey)
+  {
+    _failingKey=failingKey;
+  }
+
+  /**
+   * Set whether bulk writes that fail keep the objects written before the failure.
+   * @param partialBulkWrites <code>true</code> to keep them, <code>false</code> for all or nothing.
+   */
+  public void setPartialBulkWrites(boolean partialBulkWrites)
+  {
+    _partialBulkWrites=partialBulkWrites;
+  }
+
+  /**
+   * Get the number of single loads.
+   * @return a number of calls.
+   */
+  public int getSingleLoads()
+  {
+    return _singleLoads.get();
+  }
+
+  /**
+   * Get the number of bulk loads.
+   * @return a number of calls.
+   */
+  public int getBulkLoads()
+  {
+    return _bulkLoads.get();
+  }
+
+  /**
+   * Get the number of single writes (creations, updates and deletions).
+   * @return a number of calls.
+   */
+  public int getSingleWrites()
+  {
+    return _singleWrites.get();
+  }
+
+  /**
+   * Get the number of bulk writes (creations, updates and deletions).
+   * @return a number of calls.
+   */
+  public int getBulkWrites()
+  {
+    return _bulkWrites.get();
+  }
+
+  /**
+   * Get the number of relation or set queries.
+   * @return a number of calls.
+   */
+  public int getQueries()
+  {
+    return _queries.get();
+  }
+
+  @Override
+  public TestObject getByPrimaryKey(Long primaryKey)
+  {
+    _singleLoads.incrementAndGet();
+    TestObject ret=_storage.get(primaryKey);
+    Runnable loadHook=_loadHook;
+    if (loadHook!=null)
+    {
+      loadHook.run();
+    }
+    return ret;
+  }
+
+  @Override
+  public List<TestObject> getByPrimaryKeys(long[] primaryKeys)
+  {
+    _bulkLoads.incrementAndGet();
+    List<TestObject> ret=new ArrayList<TestObject>();
+    for(long primaryKey : primaryKeys)
+    {
+      TestObject object=_storage.get(Long.valueOf(primaryKey));
+      if (object!=null)
+      {
+        ret.add(object);
+      }
+    }
+    return ret;
+  }
+
+  @Override
+  public List<TestObject> getAll()
+  {
+    return new ArrayList<TestObject>(_storage.values());
+  }
+
+  @Override
+  public List<Long> getRelatedObjectIDs(String relationName, Long primaryKey)
+  {
+    _queries.incrementAndGet();
+    List<Long> ret=_relations.get(relationName);
+    return (ret!=null)?new ArrayList<Long>(ret):new ArrayList<Long>();
+  }
+
+  @Override
+  public List<Long> getObjectIDsSet(String setID, Object[] parameters)
+  {
+    return getRelatedObjectIDs(setID,null);
+  }
+
+  @Override
+  public void create(TestObject objectToCreate)
+  {
+    _singleWrites.incrementAndGet();
+    write(objectToCreate);
+  }
+
+  @Override
+  public void update(TestObject objectToUpdate)
+  {
+    _singleWrites.incrementAndGet();
+    write(objectToUpdate);
+  }
+
+  @Override
+  public void delete(Long primaryKey)
+  {
+    _singleWrites.incrementAndGet();
+    checkKey(primaryKey);
+    _storage.remove(primaryKey);
+  }
+
+  @Override
+  public void createAll(List<TestObject> objectsToCreate)
+  {
+    _bulkWrites.incrementAndGet();
+    writeAll(objectsToCreate);
+  }
+
+  @Override
+  public void updateAll(List<TestObject> objectsToUpdate)
+  {
+    _bulkWrites.incrementAndGet();
+    writeAll(objectsToUpdate);
+  }
+
+  @Override
+  public void deleteAll(List<Long> primaryKeys)
+  {
+    _bulkWrites.incrementAndGet();
+    int nbWritten=checkKeys(primaryKeys);
+    for(Long primaryKey : primaryKeys.subList(0,nbWritten))
+    {
+      _storage.remove(primaryKey);
+    }
+    checkFailure(nbWritten,primaryKeys.size());
+  }
+
+  private void writeAll(List<TestObject> objects)
+  {
+    List<Long> primaryKeys=new ArrayList<Long>();
+    for(TestObject object : objects)
+    {
+      primaryKeys.add(object.getPrimaryKey());
+    }
+    int nbWritten=checkKeys(primaryKeys);
+    for(TestObject object : objects.subList(0,nbWritten))
+    {
+      _storage.put(object.getPrimaryKey(),object);
+    }
+    checkFailure(nbWritten,objects.size());
+  }
+
+  /**
+   * Get the number of objects that a bulk write writes.
+   * @param primaryKeys Keys of the written objects.
+   * @return a number of objects.
+   */
+  private int checkKeys(List<Long> primaryKeys)
+  {
+    int nbKeys=primaryKeys.size();
+    for(int i=0;i<nbKeys;i++)
+    {
+      if (primaryKeys.get(i).longValue()==_failingKey)
+      {
+        return _partialBulkWrites?i:0;
+      }
+    }
+    return nbKeys;
+  }
+
+  private void checkFailure(int nbWritten, int nbObjects)
+  {
+    if (nbWritten==nbObjects)
+    {
+      return;
+    }
+    IllegalStateException failure=new IllegalStateException("Cannot write object: "+_failingKey);
+    if (nbWritten>0)
+    {
+      throw new PartialWriteException("Partial write",nbWritten,failure);
+    }
+    throw failure;
+  }
+
+  private void write(TestObject object)
+  {
+    checkKey(object.getPrimaryKey());
+    _storage.put(object.getPrimaryKey(),object);
+  }
+
+  private void checkKey(Long primaryKey)
+  {
+    if (primaryKey.longValue()==_failingKey)
+    {
+      throw new IllegalStateException("Cannot write object: "+primaryKey);
+    }
+  }
+}
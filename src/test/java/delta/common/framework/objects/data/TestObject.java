@@ -0,0 +1,36 @@
+package delta.common.framework.objects.data;
+
+/**
+ * Data object for tests.
+ * @author DAM
+ */
+public class TestObject extends DataObject<TestObject>
+{
+  private String _name;
+
+  /**
+   * Constructor.
+   * @param primaryKey Primary key.
+   * @param name Name.
+   */
+  public TestObject(long primaryKey, String name)
+  {
+    setPrimaryKey(Long.valueOf(primaryKey));
+    _name=name;
+  }
+
+  /**
+   * Get the name of this object.
+   * @return a name.
+   */
+  public String getName()
+  {
+    return _name;
+  }
+
+  @Override
+  public String toString()
+  {
+    return getPrimaryKey()+":"+_name;
+  }
+}
@@ -0,0 +1,95 @@
+package delta.common.framework.objects.data;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for the units of work of a source without transactions.
+ * @author DAM
+ */
+public class UnitOfWorkTest
+{
+  /**
+   * Test that a unit of work applies its changes after pending writes, and updates caches.
+   */
+  @Test
+  public void testCommit()
+  {
+    TestConnector connector=new TestConnector();
+    connector.store(new TestObject(2,"two"),new TestObject(3,"three"));
+    ObjectsSource source=buildSource(connector);
+    ObjectsManager<TestObject> manager=source.getManager(TestObject.class);
+    manager.useWriteBehind(100,1,TimeUnit.HOURS,null);
+    manager.update(new TestObject(2,"pending"));
+    UnitOfWork unitOfWork=source.newUnitOfWork();
+    unitOfWork.create(TestObject.class,new TestObject(1,"one"));
+    unitOfWork.update(TestObject.class,new TestObject(2,"TWO"));
+    unitOfWork.delete(TestObject.class,Long.valueOf(3));
+    Assert.assertNull(connector.getStored(1));
+    unitOfWork.commit();
+    Assert.assertEquals(0,manager.getPendingWritesCount());
+    Assert.assertEquals("one",connector.getStored(1).getName());
+    Assert.assertEquals("TWO",connector.getStored(2).getName());
+    Assert.assertNull(connector.getStored(3));
+    Assert.assertEquals("TWO",manager.getCache().get(Long.valueOf(2)).getName());
+    Assert.assertNotNull(manager.getCache().get(Long.valueOf(1)));
+    try
+    {
+      unitOfWork.commit();
+      Assert.fail("Committed twice");
+    }
+    catch(IllegalStateException e)
+    {
+      // Expected
+    }
+    source.close();
+  }
+
+  /**
+   * Test that caches are left untouched when a unit of work fails, and that discarded
+   * units of work write nothing.
+   */
+  @Test
+  public void testFailedCommit()
+  {
+    TestConnector connector=new TestConnector();
+    connector.store(new TestObject(2,"two"));
+    connector.setFailingKey(2);
+    ObjectsSource source=buildSource(connector);
+    ObjectsManager<TestObject> manager=source.getManager(TestObject.class);
+    Assert.assertNotNull(manager.load(Long.valueOf(2)));
+    UnitOfWork unitOfWork=source.newUnitOfWork();
+    unitOfWork.create(TestObject.class,new TestObject(1,"one"));
+    unitOfWork.update(TestObject.class,new TestObject(2,"TWO"));
+    try
+    {
+      unitOfWork.commit();
+      Assert.fail("Commit succeeded");
+    }
+    catch(IllegalStateException e)
+    {
+      // Expected
+    }
+    // No transaction: the creation remains persisted, but caches are untouched
+    Assert.assertNotNull(connector.getStored(1));
+    Assert.assertNull(manager.getCache().get(Long.valueOf(1)));
+    Assert.assertEquals("two",manager.getCache().get(Long.valueOf(2)).getName());
+    UnitOfWork discarded=source.newUnitOfWork();
+    discarded.delete(TestObject.class,Long.valueOf(1));
+    discarded.discard();
+    Assert.assertNotNull(connector.getStored(1));
+    source.close();
+  }
+
+  private static ObjectsSource buildSource(TestConnector connector)
+  {
+    ObjectsSource source=new ObjectsSource();
+    source.addClass(TestObject.class);
+    ObjectsManager<TestObject> manager=source.getManager(TestObject.class);
+    manager.setDriver(connector);
+    manager.useCache(true);
+    return source;
+  }
+}
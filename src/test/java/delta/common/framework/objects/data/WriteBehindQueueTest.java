@@ -0,0 +1,102 @@
+package delta.common.framework.objects.data;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for the write-behind mode of objects managers.
+ * @author DAM
+ */
+public class WriteBehindQueueTest
+{
+  /**
+   * Test that writes are coalesced by key and applied by groups.
+   */
+  @Test
+  public void testCoalescing()
+  {
+    TestConnector connector=new TestConnector();
+    connector.store(new TestObject(3,"three"));
+    ObjectsManager<TestObject> manager=buildManager(connector,null);
+    manager.create(new TestObject(1,"one"));
+    manager.update(new TestObject(1,"ONE"));
+    manager.create(new TestObject(2,"two"));
+    manager.delete(Long.valueOf(3));
+    Assert.assertEquals(3,manager.getPendingWritesCount());
+    // Pending writes are visible
+    Assert.assertEquals("ONE",manager.load(Long.valueOf(1)).getName());
+    Assert.assertNull(connector.getStored(1));
+    manager.flush();
+    Assert.assertEquals(0,manager.getPendingWritesCount());
+    Assert.assertEquals("ONE",connector.getStored(1).getName());
+    Assert.assertNotNull(connector.getStored(2));
+    Assert.assertNull(connector.getStored(3));
+    // One creation of 2 objects, one deletion
+    Assert.assertEquals(2,connector.getBulkWrites());
+    Assert.assertEquals(0,connector.getSingleWrites());
+    manager.close();
+  }
+
+  /**
+   * Test that the writes of a failed group are applied one by one, except those
+   * already written by the group, so that only the failing one is reported.
+   */
+  @Test
+  public void testPartiallyFailedGroup()
+  {
+    TestConnector connector=new TestConnector();
+    connector.setFailingKey(2);
+    connector.setPartialBulkWrites(true);
+    final List<Long> flushed=new CopyOnWriteArrayList<Long>();
+    final List<Long> failed=new CopyOnWriteArrayList<Long>();
+    WriteBehindListener<TestObject> listener=new WriteBehindListener<TestObject>()
+    {
+      @Override
+      public void writesFlushed(List<WriteOperation<TestObject>> operations)
+      {
+        for(WriteOperation<TestObject> operation : operations)
+        {
+          flushed.add(operation.getPrimaryKey());
+        }
+      }
+
+      @Override
+      public void writeFailed(WriteOperation<TestObject> operation, RuntimeException error)
+      {
+        failed.add(operation.getPrimaryKey());
+      }
+    };
+    ObjectsManager<TestObject> manager=buildManager(connector,listener);
+    for(long i=1;i<=3;i++)
+    {
+      manager.create(new TestObject(i,"object "+i));
+    }
+    manager.flush();
+    Assert.assertEquals(1,connector.getBulkWrites());
+    // Object 1 is not created again
+    Assert.assertEquals(2,connector.getSingleWrites());
+    Assert.assertEquals(2,flushed.size());
+    Assert.assertTrue(flushed.contains(Long.valueOf(1)));
+    Assert.assertTrue(flushed.contains(Long.valueOf(3)));
+    Assert.assertEquals(1,failed.size());
+    Assert.assertEquals(Long.valueOf(2),failed.get(0));
+    // Failed write evicted from caches
+    Assert.assertNotNull(manager.load(Long.valueOf(1)));
+    Assert.assertNull(manager.load(Long.valueOf(2)));
+    Assert.assertNotNull(manager.load(Long.valueOf(3)));
+    manager.close();
+  }
+
+  private static ObjectsManager<TestObject> buildManager(TestConnector connector, WriteBehindListener<TestObject> listener)
+  {
+    ObjectsManager<TestObject> manager=new ObjectsManager<TestObject>();
+    manager.setDriver(connector);
+    manager.useCache(true);
+    manager.useWriteBehind(100,1,TimeUnit.HOURS,listener);
+    return manager;
+  }
+}
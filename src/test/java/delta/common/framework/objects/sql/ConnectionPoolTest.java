@@ -0,0 +1,228 @@
+package delta.common.framework.objects.sql;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the connection pool, on an in-memory HSQLDB database.
+ * @author DAM
+ */
+public class ConnectionPoolTest
+{
+  private static final String URL="jdbc:hsqldb:mem:poolTest";
+
+  private ConnectionPool _pool;
+
+  /**
+   * Create the pool and the test table.
+   * @throws SQLException if an error occurs.
+   */
+  @Before
+  public void setUp() throws SQLException
+  {
+    _pool=new ConnectionPool(URL,"SA","",2,0,TimeUnit.SECONDS);
+    _pool.setAcquireTimeout(100,TimeUnit.MILLISECONDS);
+    execute("CREATE TABLE item (id BIGINT PRIMARY KEY, name VARCHAR(50))");
+  }
+
+  /**
+   * Drop the test table and close the pool.
+   * @throws SQLException if an error occurs.
+   */
+  @After
+  public void tearDown() throws SQLException
+  {
+    execute("DROP TABLE item");
+    _pool.close();
+  }
+
+  /**
+   * Test that connections are given back to the pool, and that the pool size is bounded.
+   * @throws SQLException if an error occurs.
+   */
+  @Test
+  public void testCheckoutAndReturn() throws SQLException
+  {
+    Connection c1=_pool.acquire();
+    Connection c2=_pool.acquire();
+    Assert.assertNotSame(c1,c2);
+    Assert.assertEquals(2,_pool.getActiveCount());
+    try
+    {
+      _pool.acquire();
+      Assert.fail("Pool size exceeded");
+    }
+    catch(SQLException e)
+    {
+      // Expected: timeout
+    }
+    _pool.release(c2);
+    Assert.assertEquals(1,_pool.getActiveCount());
+    Assert.assertEquals(1,_pool.getIdleCount());
+    Assert.assertSame(c2,_pool.acquire());
+    _pool.release(c1);
+    _pool.release(c2);
+    Assert.assertEquals(0,_pool.getActiveCount());
+    Assert.assertEquals(2,_pool.getIdleCount());
+  }
+
+  /**
+   * Test that a pending transaction is rolled back when its connection is released.
+   * @throws SQLException if an error occurs.
+   */
+  @Test
+  public void testReleaseRollsBack() throws SQLException
+  {
+    Connection c=_pool.acquire();
+    c.setAutoCommit(false);
+    insert(c,1);
+    _pool.release(c);
+    Assert.assertTrue(c.getAutoCommit());
+    Assert.assertEquals(0,count());
+  }
+
+  /**
+   * Test that idle connections that are no longer valid are discarded.
+   * @throws SQLException if an error occurs.
+   */
+  @Test
+  public void testValidation() throws SQLException
+  {
+    _pool.setValidationInterval(0,TimeUnit.SECONDS);
+    Connection c=_pool.acquire();
+    _pool.release(c);
+    // Connection lost while idle
+    c.close();
+    Connection other=_pool.acquire();
+    Assert.assertNotSame(c,other);
+    Assert.assertTrue(other.isValid(1));
+    _pool.release(other);
+    Assert.assertEquals(1,_pool.getIdleCount());
+  }
+
+  /**
+   * Test that a connection bound to a thread is used by this thread until it is unbound.
+   * @throws SQLException if an error occurs.
+   */
+  @Test
+  public void testTransactionBinding() throws SQLException
+  {
+    Connection bound=_pool.bindConnection();
+    bound.setAutoCommit(false);
+    Assert.assertSame(bound,_pool.acquire());
+    Assert.assertSame(bound,_pool.getBoundConnection());
+    insert(_pool.acquire(),1);
+    // Nested binding
+    Assert.assertSame(bound,_pool.bindConnection());
+    _pool.unbindConnection();
+    Assert.assertSame(bound,_pool.getBoundConnection());
+    // Releasing the bound connection does nothing
+    _pool.release(bound);
+    Assert.assertEquals(1,_pool.getActiveCount());
+    bound.rollback();
+    bound.setAutoCommit(true);
+    _pool.unbindConnection();
+    Assert.assertNull(_pool.getBoundConnection());
+    Assert.assertEquals(0,_pool.getActiveCount());
+    Assert.assertEquals(0,count());
+  }
+
+  /**
+   * Test the binding of a connection that does not belong to the pool.
+   * @throws SQLException if an error occurs.
+   */
+  @Test
+  public void testExternalBinding() throws SQLException
+  {
+    Connection external=_pool.acquire();
+    _pool.bindConnection(external);
+    Assert.assertSame(external,_pool.acquire());
+    Connection other=DriverManager.getConnection(URL,"SA","");
+    try
+    {
+      _pool.bindConnection(other);
+      Assert.fail("Another connection was bound");
+    }
+    catch(IllegalStateException e)
+    {
+      // Expected
+    }
+    finally
+    {
+      other.close();
+    }
+    _pool.unbindConnection();
+    Assert.assertNull(_pool.getBoundConnection());
+    Assert.assertFalse(external.isClosed());
+    // Still leased
+    Assert.assertEquals(1,_pool.getActiveCount());
+    _pool.release(external);
+    Assert.assertEquals(0,_pool.getActiveCount());
+  }
+
+  /**
+   * Test that session statements are executed on leased connections, once per change.
+   * @throws SQLException if an error occurs.
+   */
+  @Test
+  public void testSessionStatements() throws SQLException
+  {
+    String sql="INSERT INTO item (id,name) SELECT COALESCE(MAX(id),0)+1,'session' FROM item";
+    _pool.setSessionStatement("insert",sql);
+    Connection c=_pool.acquire();
+    _pool.release(c);
+    Assert.assertEquals(1,count());
+    Assert.assertSame(c,_pool.acquire());
+    _pool.release(c);
+    Assert.assertEquals(1,count());
+    // Changed: applied again on next lease
+    _pool.setSessionStatement("insert",sql);
+    Assert.assertEquals(2,count());
+    _pool.setSessionStatement("insert",null);
+    Assert.assertEquals(2,count());
+  }
+
+  private void insert(Connection c, long id) throws SQLException
+  {
+    try (Statement s=c.createStatement())
+    {
+      s.executeUpdate("INSERT INTO item (id,name) VALUES ("+id+",'item"+id+"')");
+    }
+  }
+
+  private int count() throws SQLException
+  {
+    Connection c=_pool.acquire();
+    try (Statement s=c.createStatement(); ResultSet rs=s.executeQuery("SELECT COUNT(*) FROM item"))
+    {
+      rs.next();
+      return rs.getInt(1);
+    }
+    finally
+    {
+      _pool.release(c);
+    }
+  }
+
+  private void execute(String sql) throws SQLException
+  {
+    Connection c=_pool.acquire();
+    try (Statement s=c.createStatement())
+    {
+      s.execute(sql);
+    }
+    finally
+    {
+      _pool.release(c);
+    }
+  }
+}
@@ -0,0 +1,213 @@
+package delta.common.framework.objects.sql;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import delta.common.framework.objects.data.PartialWriteException;
+
+/**
+ * Tests for the transactions of the drivers manager, on an in-memory HSQLDB database.
+ * @author DAM
+ */
+public class ObjectSqlDriverManagerTest
+{
+  private ObjectSqlDriverManager _manager;
+  private TestItemDriver _driver;
+
+  /**
+   * Start a manager.
+   * @throws Exception if an error occurs.
+   */
+  @Before
+  public void setUp() throws Exception
+  {
+    DatabaseConfiguration cfg=new DatabaseConfiguration("hsqldb-test.properties");
+    _manager=new ObjectSqlDriverManager("managerTest",cfg);
+    _driver=new TestItemDriver("item",true);
+    _manager.addClass(TestItem.class,_driver);
+    _manager.start();
+  }
+
+  /**
+   * Stop the manager.
+   * @throws SQLException if an error occurs.
+   */
+  @After
+  public void tearDown() throws SQLException
+  {
+    _driver.dropTable();
+    _manager.close();
+  }
+
+  /**
+   * Test that single and bulk writes made in a transaction are rolled back.
+   * @throws SQLException if an error occurs.
+   */
+  @Test
+  public void testRollback() throws SQLException
+  {
+    ConnectionPool pool=_manager.getConnectionPool();
+    Connection shared=_driver.getConnection();
+    _manager.beginTransaction();
+    Assert.assertSame(shared,pool.acquire());
+    _driver.create(new TestItem(1,"one"));
+    _driver.createAll(Arrays.asList(new TestItem(2,"two"),new TestItem(3,"three")));
+    Assert.assertEquals(3,_driver.count());
+    _manager.rollback();
+    Assert.assertEquals(0,_driver.count());
+    Assert.assertTrue(shared.getAutoCommit());
+    Connection pooled=pool.acquire();
+    Assert.assertNotSame(shared,pooled);
+    pool.release(pooled);
+  }
+
+  /**
+   * Test that single writes of other threads do not take part in a transaction:
+   * they wait until it ends.
+   * @throws Exception if an error occurs.
+   */
+  @Test
+  public void testConcurrentWriteDuringTransaction() throws Exception
+  {
+    _manager.beginTransaction();
+    _driver.create(new TestItem(1,"one"));
+    Thread writer=new Thread(() -> _driver.create(new TestItem(2,"two")));
+    writer.start();
+    writer.join(200);
+    Assert.assertTrue(writer.isAlive());
+    _manager.rollback();
+    writer.join();
+    Assert.assertEquals(1,_driver.count());
+    Assert.assertEquals("two",_driver.getByPrimaryKeys(new long[]{2}).get(0).getName());
+    // The shared connection is one of the configured connections
+    Assert.assertEquals(3,_manager.getConnectionPool().getMaxSize());
+  }
+
+  /**
+   * Test that writes made in a transaction are committed.
+   * @throws SQLException if an error occurs.
+   */
+  @Test
+  public void testCommit() throws SQLException
+  {
+    _manager.beginTransaction();
+    _driver.create(new TestItem(1,"one"));
+    _driver.createAll(Arrays.asList(new TestItem(2,"two")));
+    _manager.commit();
+    Assert.assertEquals(2,_driver.count());
+    Assert.assertEquals(2,_driver.getByPrimaryKeys(new long[]{1,2}).size());
+  }
+
+  /**
+   * Test that nested transactions are rejected, without ending the current one.
+   * @throws SQLException if an error occurs.
+   */
+  @Test
+  public void testNestedTransaction() throws SQLException
+  {
+    _manager.beginTransaction();
+    try
+    {
+      _manager.beginTransaction();
+      Assert.fail("Nested transaction started");
+    }
+    catch(IllegalStateException e)
+    {
+      // Expected
+    }
+    _driver.create(new TestItem(1,"one"));
+    _manager.rollback();
+    Assert.assertEquals(0,_driver.count());
+    try
+    {
+      _manager.commit();
+      Assert.fail("Commit without transaction");
+    }
+    catch(IllegalStateException e)
+    {
+      // Expected
+    }
+  }
+
+  /**
+   * Test that a bulk write that fails after some chunks were committed reports them.
+   * @throws SQLException if an error occurs.
+   */
+  @Test
+  public void testPartialBulkWrite() throws SQLException
+  {
+    _driver.setCommitSize(2);
+    List<TestItem> items=Arrays.asList(new TestItem(1,"one"),new TestItem(2,"two"),new TestItem(3,"three"),new TestItem(4,null));
+    try
+    {
+      _driver.createAll(items);
+      Assert.fail("Bulk write succeeded");
+    }
+    catch(PartialWriteException e)
+    {
+      Assert.assertEquals(2,e.getNbWritten());
+    }
+    Assert.assertEquals(2,_driver.count());
+  }
+
+  /**
+   * Test that streams read all rows and give their connection back when closed.
+   */
+  @Test
+  public void testStreamAll()
+  {
+    _driver.createAll(Arrays.asList(new TestItem(1,"one"),new TestItem(2,"two"),new TestItem(3,"three")));
+    ConnectionPool pool=_manager.getConnectionPool();
+    try (Stream<TestItem> stream=_driver.streamAll())
+    {
+      Assert.assertEquals(1,pool.getActiveCount());
+      Assert.assertEquals(3,stream.count());
+    }
+    Assert.assertEquals(0,pool.getActiveCount());
+  }
+
+  /**
+   * Test the loading of pages.
+   */
+  @Test
+  public void testGetPage()
+  {
+    _driver.createAll(Arrays.asList(new TestItem(3,"three"),new TestItem(1,"one"),new TestItem(2,"two")));
+    List<TestItem> page=_driver.getPage(1,5);
+    Assert.assertEquals(2,page.size());
+    Assert.assertEquals(Long.valueOf(2),page.get(0).getPrimaryKey());
+    Assert.assertEquals(Long.valueOf(3),page.get(1).getPrimaryKey());
+    Assert.assertTrue(_driver.getPage(3,5).isEmpty());
+  }
+
+  /**
+   * Test that a failed page load is reported.
+   * @throws SQLException if an error occurs.
+   */
+  @Test
+  public void testGetPageError() throws SQLException
+  {
+    _driver.dropTable();
+    try
+    {
+      _driver.getPage(0,10);
+      Assert.fail("Page loaded from a missing table");
+    }
+    catch(IllegalStateException e)
+    {
+      // Expected
+    }
+    finally
+    {
+      _driver.createTable();
+    }
+  }
+}
@@ -0,0 +1,103 @@
+package delta.common.framework.objects.sql;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import delta.common.framework.objects.data.ObjectsCache;
+import delta.common.framework.objects.data.UnitOfWork;
+
+/**
+ * Tests for the units of work of a SQL source, on an in-memory HSQLDB database.
+ * @author DAM
+ */
+public class SqlObjectsSourceTest
+{
+  private SqlObjectsSource _source;
+  private TestItemDriver _driver;
+
+  /**
+   * Start a source.
+   * @throws Exception if an error occurs.
+   */
+  @Before
+  public void setUp() throws Exception
+  {
+    _source=new SqlObjectsSource("sourceTest")
+    {
+      @Override
+      protected DatabaseConfiguration buildDatabaseConfiguration(String dbName)
+      {
+        return new DatabaseConfiguration("hsqldb-test.properties");
+      }
+    };
+    _driver=new TestItemDriver("item",true);
+    _source.addClass(TestItem.class,_driver);
+    _source.getManager(TestItem.class).useCache(true);
+    _source.start();
+  }
+
+  /**
+   * Stop the source.
+   * @throws SQLException if an error occurs.
+   */
+  @After
+  public void tearDown() throws SQLException
+  {
+    _driver.dropTable();
+    _source.close();
+  }
+
+  /**
+   * Test that a unit of work that fails halfway persists nothing and leaves caches untouched.
+   * @throws SQLException if an error occurs.
+   */
+  @Test
+  public void testFailedCommit() throws SQLException
+  {
+    _driver.create(new TestItem(3,"three"));
+    UnitOfWork unitOfWork=_source.newUnitOfWork();
+    unitOfWork.create(TestItem.class,new TestItem(1,"one"));
+    unitOfWork.create(TestItem.class,new TestItem(2,"two"));
+    // Creations are applied first, then this update fails (NOT NULL)
+    unitOfWork.update(TestItem.class,new TestItem(3,null));
+    try
+    {
+      unitOfWork.commit();
+      Assert.fail("Commit succeeded");
+    }
+    catch(IllegalStateException e)
+    {
+      // Expected
+    }
+    Assert.assertEquals(1,_driver.count());
+    Assert.assertEquals("three",_driver.getByPrimaryKeys(new long[]{3}).get(0).getName());
+    ObjectsCache<TestItem> cache=_source.getManager(TestItem.class).getCache();
+    Assert.assertNull(cache.get(1));
+    Assert.assertNull(cache.get(3));
+  }
+
+  /**
+   * Test that a unit of work persists all its changes and updates caches.
+   * @throws SQLException if an error occurs.
+   */
+  @Test
+  public void testCommit() throws SQLException
+  {
+    _driver.createAll(Arrays.asList(new TestItem(3,"three"),new TestItem(4,"four")));
+    UnitOfWork unitOfWork=_source.newUnitOfWork();
+    unitOfWork.create(TestItem.class,new TestItem(1,"one"));
+    unitOfWork.update(TestItem.class,new TestItem(3,"THREE"));
+    unitOfWork.delete(TestItem.class,Long.valueOf(4));
+    unitOfWork.commit();
+    Assert.assertEquals(2,_driver.count());
+    Assert.assertEquals("THREE",_driver.getByPrimaryKeys(new long[]{3}).get(0).getName());
+    ObjectsCache<TestItem> cache=_source.getManager(TestItem.class).getCache();
+    Assert.assertNotNull(cache.get(1));
+    Assert.assertEquals("THREE",cache.get(3).getName());
+  }
+}
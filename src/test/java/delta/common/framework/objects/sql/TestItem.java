@@ -0,0 +1,32 @@
+package delta.common.framework.objects.sql;
+
+import delta.common.framework.objects.data.DataObject;
+
+/**
+ * Data object for tests.
+ * @author DAM
+ */
+public class TestItem extends DataObject<TestItem>
+{
+  private String _name;
+
+  /**
+   * Constructor.
+   * @param primaryKey Primary key.
+   * @param name Name.
+   */
+  public TestItem(long primaryKey, String name)
+  {
+    setPrimaryKey(Long.valueOf(primaryKey));
+    _name=name;
+  }
+
+  /**
+   * Get the name of this item.
+   * @return a name.
+   */
+  public String getName()
+  {
+    return _name;
+  }
+}
@@ -0,0 +1,138 @@
+package delta.common.framework.objects.sql;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Driver for test items.
+ * <p>
+ * Single writes use a statement prepared on the shared connection, as most drivers do.
+ * Bulk writes are batched if columns are described. The table is created when the driver gets connected.
+ * @author DAM
+ */
+public class TestItemDriver extends ObjectSqlDriver<TestItem>
+{
+  private String _tableName;
+  private boolean _batched;
+  private PreparedStatement _insertStatement;
+
+  /**
+   * Constructor.
+   * @param tableName Table name.
+   * @param batched <code>true</code> to describe columns (batched bulk writes), <code>false</code> otherwise.
+   */
+  public TestItemDriver(String tableName, boolean batched)
+  {
+    _tableName=tableName;
+    _batched=batched;
+  }
+
+  /**
+   * Create the table of items.
+   * @throws SQLException if an error occurs.
+   */
+  public void createTable() throws SQLException
+  {
+    execute("CREATE TABLE "+_tableName+" (id BIGINT PRIMARY KEY, name VARCHAR(50) NOT NULL)");
+  }
+
+  /**
+   * Drop the table of items.
+   * @throws SQLException if an error occurs.
+   */
+  public void dropTable() throws SQLException
+  {
+    execute("DROP TABLE "+_tableName);
+  }
+
+  /**
+   * Count the items in the database.
+   * @return a number of rows.
+   * @throws SQLException if an error occurs.
+   */
+  public int count() throws SQLException
+  {
+    try (Statement s=getConnection().createStatement();
+        ResultSet rs=s.executeQuery("SELECT COUNT(*) FROM "+_tableName))
+    {
+      rs.next();
+      return rs.getInt(1);
+    }
+  }
+
+  private void execute(String sql) throws SQLException
+  {
+    try (Statement s=getConnection().createStatement())
+    {
+      s.execute(sql);
+    }
+  }
+
+  @Override
+  protected void buildPreparedStatements(Connection newConnection)
+  {
+    if (newConnection==null)
+    {
+      return;
+    }
+    try
+    {
+      createTable();
+      _insertStatement=newConnection.prepareStatement("INSERT INTO "+_tableName+" (id,name) VALUES (?,?)");
+    }
+    catch(SQLException e)
+    {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @Override
+  protected void destroyPreparedStatements(Connection oldConnection)
+  {
+    closeQuietly(null,_insertStatement);
+    _insertStatement=null;
+  }
+
+  @Override
+  public void create(TestItem item)
+  {
+    try
+    {
+      _insertStatement.setLong(1,item.getPrimaryKey().longValue());
+      _insertStatement.setString(2,item.getName());
+      _insertStatement.executeUpdate();
+    }
+    catch(SQLException e)
+    {
+      throw new IllegalStateException("Cannot create item: "+item.getPrimaryKey(),e);
+    }
+  }
+
+  @Override
+  protected String getTableName()
+  {
+    return _tableName;
+  }
+
+  @Override
+  protected String[] getColumnNames()
+  {
+    return _batched?new String[]{"name"}:null;
+  }
+
+  @Override
+  protected int bindColumns(PreparedStatement statement, int index, TestItem item) throws SQLException
+  {
+    statement.setString(index,item.getName());
+    return index+1;
+  }
+
+  @Override
+  protected TestItem readObject(ResultSet rs) throws SQLException
+  {
+    return new TestItem(rs.getLong("id"),rs.getString("name"));
+  }
+}